@@ -0,0 +1,112 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.io.IOException;
+import java.rmi.RemoteException;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.SAXException;
+
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalysisResult;
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.SerializingMorphologicalAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.impl.HunspellAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.impl.LanguageToolAnalyzer;
+
+/**
+ * Measures {@link MorphologicalAnalyzer#analyze(String)} of each engine,
+ * with and without {@linkplain SerializingMorphologicalAnalyzer JSON
+ * serialization} of the results, on short (a sentence or two), medium
+ * (an article) and long (a document) Russian and Ukrainian texts.
+ *
+ * <p>Hunspell results depend on the dictionaries installed on the
+ * machine the benchmark runs on.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AnalyzerBenchmark {
+	@Param({"languagetool", "hunspell"})
+	public String engine;
+
+	@Param({Corpus.RUSSIAN, Corpus.UKRAINIAN})
+	public String corpus;
+
+	@Param({"256", "8192", "131072"})
+	public int length;
+
+	private String text;
+
+	private MorphologicalAnalyzer analyzer;
+
+	private SerializingMorphologicalAnalyzer serializingAnalyzer;
+
+	/**
+	 * @throws IOException
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 */
+	@Setup
+	public void setUp() throws IOException, ParserConfigurationException, SAXException {
+		this.text = Corpus.load(this.corpus, this.length);
+
+		switch (this.engine) {
+		case "languagetool":
+			this.analyzer = LanguageToolAnalyzer.builder()
+					.mode(LanguageToolAnalyzer.Mode.ANALYSIS)
+					.eager(true)
+					.build();
+			break;
+		case "hunspell":
+			this.analyzer = HunspellAnalyzer.builder().eager(true).build();
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown engine: " + this.engine);
+		}
+		this.serializingAnalyzer = new SerializingMorphologicalAnalyzer(this.analyzer);
+
+		/*
+		 * Load the dictionaries, which taggers only do on first use.
+		 */
+		this.analyzer.analyze(this.text);
+	}
+
+	/**
+	 * @throws RemoteException
+	 */
+	@Benchmark
+	public Map<String, Set<MorphologicalAnalysisResult>> analyze() throws RemoteException {
+		return this.analyzer.analyze(this.text);
+	}
+
+	/**
+	 * @throws RemoteException
+	 */
+	@Benchmark
+	public String analyzeToJson() throws RemoteException {
+		return this.serializingAnalyzer.analyze(this.text);
+	}
+}
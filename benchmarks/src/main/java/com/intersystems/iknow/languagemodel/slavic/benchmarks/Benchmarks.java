@@ -0,0 +1,53 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.benchmarks;
+
+import static java.util.Arrays.asList;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * The entry point of the benchmarks jar: runs JMH with the command line
+ * supplied, adding the {@code gc} profiler (allocation rate and GC
+ * counts) unless it's already there.
+ *
+ * <p>Usage: {@code java -jar benchmarks.jar [JMH options] [benchmark
+ * regexp...]}, e.&nbsp;g. {@code java -jar benchmarks.jar
+ * AnalyzerBenchmark -p engine=hunspell}.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class Benchmarks {
+	private static final String PROFILER_OPTION = "-prof";
+
+	private static final String GC_PROFILER = "gc";
+
+	private Benchmarks() {
+		assert false;
+	}
+
+	/**
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(final String args[]) throws IOException {
+		final List<String> arguments = new ArrayList<>(args.length + 2);
+		boolean gcProfiler = false;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals(PROFILER_OPTION) && i + 1 < args.length && args[i + 1].startsWith(GC_PROFILER)) {
+				gcProfiler = true;
+			}
+		}
+		if (!gcProfiler) {
+			arguments.add(PROFILER_OPTION);
+			arguments.add(GC_PROFILER);
+		}
+		arguments.addAll(asList(args));
+		Main.main(arguments.toArray(new String[arguments.size()]));
+	}
+}
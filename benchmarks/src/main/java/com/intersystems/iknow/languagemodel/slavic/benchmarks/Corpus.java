@@ -0,0 +1,92 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Sample texts bundled with the benchmarks.
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class Corpus {
+	/**
+	 * Russian text only.
+	 */
+	public static final String RUSSIAN = "ru";
+
+	/**
+	 * Ukrainian text, with plenty of apostrophes.
+	 */
+	public static final String UKRAINIAN = "uk";
+
+	/**
+	 * Russian and Ukrainian paragraphs, interleaved.
+	 */
+	public static final String MIXED = "mixed";
+
+	private Corpus() {
+		assert false;
+	}
+
+	/**
+	 * @param name one of {@link #RUSSIAN}, {@link #UKRAINIAN} or
+	 *        {@link #MIXED}.
+	 */
+	@Nonnull
+	public static String load(@Nonnull final String name) {
+		if (MIXED.equals(name)) {
+			final String russian[] = load(RUSSIAN).split("\n");
+			final String ukrainian[] = load(UKRAINIAN).split("\n");
+			final StringBuilder mixed = new StringBuilder();
+			for (int i = 0; i < Math.max(russian.length, ukrainian.length); i++) {
+				if (i < russian.length) {
+					mixed.append(russian[i]).append('\n');
+				}
+				if (i < ukrainian.length) {
+					mixed.append(ukrainian[i]).append('\n');
+				}
+			}
+			return mixed.toString();
+		}
+
+		try (final InputStream in = Corpus.class.getResourceAsStream("/corpus/" + name + ".txt")) {
+			if (in == null) {
+				throw new IllegalArgumentException("Unknown corpus: " + name);
+			}
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte buffer[] = new byte[8192];
+			for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+				out.write(buffer, 0, n);
+			}
+			return new String(out.toByteArray(), UTF_8);
+		} catch (final IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	/**
+	 * @param name
+	 * @param length the length of the text, in characters.
+	 * @return the corpus, repeated and truncated to the given
+	 *         <em>length</em>.
+	 */
+	@Nonnull
+	public static String load(@Nonnull final String name, final int length) {
+		final String text = load(name);
+		final StringBuilder builder = new StringBuilder(length + text.length());
+		while (builder.length() < length) {
+			builder.append(text);
+		}
+		builder.setLength(length);
+		return builder.toString();
+	}
+}
@@ -0,0 +1,181 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.SAXException;
+
+import com.intersystems.iknow.languagemodel.slavic.AnalysisException;
+import com.intersystems.iknow.languagemodel.slavic.GrammaticalCategory;
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalysisCodec;
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalysisResult;
+import com.intersystems.iknow.languagemodel.slavic.PartOfSpeech;
+import com.intersystems.iknow.languagemodel.slavic.impl.LanguageToolAnalyzer;
+
+/**
+ * Compares the serialized size (printed once per fork, in bytes per token)
+ * and the round-trip time of analysis results, as sent over RMI:
+ * the former default serialized form of {@link MorphologicalAnalysisResult}
+ * (reproduced by {@link LegacyResult}), the current one, and the {@link
+ * MorphologicalAnalysisCodec binary codec}.
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SerializationBenchmark {
+	private Map<String, Set<MorphologicalAnalysisResult>> results;
+
+	private Map<String, Set<LegacyResult>> legacyResults;
+
+	/**
+	 * @throws IOException
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws AnalysisException
+	 */
+	@Setup
+	public void setUp() throws IOException, ParserConfigurationException, SAXException, AnalysisException {
+		this.results = new LanguageToolAnalyzer().analyze(Corpus.load(Corpus.MIXED));
+
+		this.legacyResults = new LinkedHashMap<>();
+		this.results.forEach((token, tokenResults) -> {
+			final Set<LegacyResult> legacyTokenResults = new LinkedHashSet<>();
+			tokenResults.forEach(result -> legacyTokenResults.add(new LegacyResult(result)));
+			this.legacyResults.put(token, legacyTokenResults);
+		});
+
+		final double tokens = this.results.size();
+		System.out.printf("%nBytes per token: legacy %.1f, proxy %.1f, codec %.1f%n",
+				Double.valueOf(serialize(this.legacyResults).length / tokens),
+				Double.valueOf(serialize(this.results).length / tokens),
+				Double.valueOf(MorphologicalAnalysisCodec.encode(this.results).remaining() / tokens));
+	}
+
+	/**
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	@Benchmark
+	public Object legacyRoundTrip() throws IOException, ClassNotFoundException {
+		return deserialize(serialize(this.legacyResults));
+	}
+
+	/**
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	@Benchmark
+	public Object proxyRoundTrip() throws IOException, ClassNotFoundException {
+		return deserialize(serialize(this.results));
+	}
+
+	@Benchmark
+	public Object codecRoundTrip() {
+		return MorphologicalAnalysisCodec.decode(MorphologicalAnalysisCodec.encode(this.results));
+	}
+
+	/**
+	 * @param object
+	 * @throws IOException
+	 */
+	private static byte[] serialize(final Object object) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @param bytes
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private static Object deserialize(final byte bytes[]) throws IOException, ClassNotFoundException {
+		try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readObject();
+		}
+	}
+
+	/**
+	 * The fields of {@link MorphologicalAnalysisResult} before it got
+	 * a serialization proxy, with the default serialized form.
+	 *
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	private static final class LegacyResult implements Serializable {
+		private static final long serialVersionUID = 3598477807346909697L;
+
+		private final String language;
+
+		private final String stem;
+
+		private final PartOfSpeech partOfSpeech;
+
+		private final Set<GrammaticalCategory> categories = new HashSet<>();
+
+		/**
+		 * @param result
+		 */
+		LegacyResult(final MorphologicalAnalysisResult result) {
+			this.language = result.getLanguage();
+			this.stem = result.getStem();
+			this.partOfSpeech = result.getPartOfSpeech();
+			this.categories.addAll(result.getCategories());
+		}
+
+		/**
+		 * @see Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return this.stem.hashCode();
+		}
+
+		/**
+		 * @see Object#equals(Object)
+		 */
+		@Override
+		public boolean equals(final Object obj) {
+			if (obj instanceof LegacyResult) {
+				final LegacyResult that = (LegacyResult) obj;
+				return this.language.equals(that.language)
+						&& this.stem.equals(that.stem)
+						&& this.partOfSpeech == that.partOfSpeech
+						&& this.categories.equals(that.categories);
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.intersystems.iknow.languagemodel.slavic.impl.HunspellAnalyzer.Binding;
+import com.intersystems.iknow.languagemodel.slavic.impl.hunspell.Stemmer;
+
+/**
+ * Measures the cost of stemming a single word with each {@linkplain Binding
+ * Hunspell binding}, over the words of the {@linkplain Corpus corpus} of
+ * the language, in the order of occurrence.
+ *
+ * <p>The dictionaries are looked up in the directory given by the {@code
+ * dictionary.dir} system property ({@code /usr/share/hunspell} by default).
+ * Only {@link Binding#BRIDJ} is measured by default, since {@link
+ * Binding#FFM} requires Java 22+ and the library built with the {@code ffm}
+ * profile; there, compare both with {@code -p binding=BRIDJ,FFM}, and pass
+ * {@code -jvmArgsAppend --enable-native-access=ALL-UNNAMED} to silence
+ * the native access warning.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StemmerBenchmark {
+	@Param({"BRIDJ"})
+	public Binding binding;
+
+	@Param({Corpus.RUSSIAN, Corpus.UKRAINIAN})
+	public String language;
+
+	private String words[];
+
+	private int index;
+
+	private final List<String> stems = new ArrayList<>();
+
+	private Stemmer stemmer;
+
+	@Setup
+	public void setUp() {
+		if (!this.binding.isAvailable()) {
+			throw new IllegalStateException(this.binding + " binding is not available in Java " + System.getProperty("java.version"));
+		}
+
+		final String basename;
+		switch (this.language) {
+		case Corpus.RUSSIAN:
+			basename = "ru_RU";
+			break;
+		case Corpus.UKRAINIAN:
+			basename = "uk_UA";
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown language: " + this.language);
+		}
+		final File directory = new File(System.getProperty("dictionary.dir", "/usr/share/hunspell"));
+		this.stemmer = this.binding.open(new File(directory, basename + ".dic").getPath(), new File(directory, basename + ".aff").getPath());
+
+		final List<String> words = new ArrayList<>();
+		for (final String word : Corpus.load(this.language).split("[^\\p{L}'\\-]+")) {
+			if (word.length() != 0) {
+				words.add(word);
+			}
+		}
+		this.words = words.toArray(new String[words.size()]);
+		System.out.printf("%nWords: %d%n", Integer.valueOf(this.words.length));
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.stemmer.close();
+	}
+
+	/**
+	 * @return the number of stems, so that the call is not eliminated.
+	 */
+	@Benchmark
+	public int stem() {
+		final String word = this.words[this.index];
+		this.index = this.index + 1 == this.words.length ? 0 : this.index + 1;
+		this.stems.clear();
+		return this.stemmer.stem(word, this.stems);
+	}
+}
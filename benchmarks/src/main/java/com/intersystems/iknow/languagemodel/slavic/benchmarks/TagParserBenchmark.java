@@ -0,0 +1,118 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.languagetool.AnalyzedToken;
+import org.languagetool.AnalyzedTokenReadings;
+import org.languagetool.JLanguageTool;
+import org.languagetool.Language;
+import org.languagetool.language.Russian;
+import org.languagetool.language.Ukrainian;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.RussianTagParser;
+import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.SentenceAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.TagParser;
+import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.TagTable;
+import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.TaggingSentenceAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.UkrainianTagParser;
+
+/**
+ * Measures {@link TagParser#parse(String)} of each language, both
+ * uncached and through a {@link TagTable}, over the tags LanguageTool
+ * assigns to the words of the {@linkplain Corpus corpus} of the language,
+ * in the order of occurrence. Each operation is a single pass over all
+ * the tags.
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TagParserBenchmark {
+	@Param({Corpus.RUSSIAN, Corpus.UKRAINIAN})
+	public String language;
+
+	private String tags[];
+
+	private TagParser parser;
+
+	private TagParser table;
+
+	/**
+	 * @throws IOException
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		final Language language;
+		switch (this.language) {
+		case Corpus.RUSSIAN:
+			language = new Russian();
+			this.parser = new RussianTagParser();
+			break;
+		case Corpus.UKRAINIAN:
+			language = new Ukrainian();
+			this.parser = new UkrainianTagParser();
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown language: " + this.language);
+		}
+		this.table = new TagTable(this.parser);
+
+		final List<String> tags = new ArrayList<>();
+		final SentenceAnalyzer analyzer = new TaggingSentenceAnalyzer(language, false);
+		for (final String sentence : analyzer.sentenceTokenize(Corpus.load(this.language))) {
+			for (final AnalyzedTokenReadings readings : analyzer.getAnalyzedSentence(sentence).getTokensWithoutWhitespace()) {
+				for (final AnalyzedToken reading : readings.getReadings()) {
+					final String tag = reading.getPOSTag();
+					if (tag != null && reading.getLemma() != null && !tag.equals(JLanguageTool.SENTENCE_END_TAGNAME)) {
+						tags.add(tag);
+					}
+				}
+			}
+		}
+		this.tags = tags.toArray(new String[tags.size()]);
+		System.out.printf("%nTags: %d%n", Integer.valueOf(this.tags.length));
+	}
+
+	/**
+	 * @param blackhole
+	 */
+	@Benchmark
+	public void parse(final Blackhole blackhole) {
+		for (final String tag : this.tags) {
+			blackhole.consume(this.parser.parse(tag));
+		}
+	}
+
+	/**
+	 * @param blackhole
+	 */
+	@Benchmark
+	public void parseCached(final Blackhole blackhole) {
+		for (final String tag : this.tags) {
+			blackhole.consume(this.table.parse(tag));
+		}
+	}
+}
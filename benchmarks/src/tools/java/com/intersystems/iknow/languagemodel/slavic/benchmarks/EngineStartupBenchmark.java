@@ -0,0 +1,111 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.benchmarks;
+
+import static java.lang.System.getProperty;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.intersystems.iknow.languagemodel.slavic.impl.LanguageToolAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.impl.LanguageToolAnalyzer.Mode;
+
+/**
+ * Measures the startup time and the retained heap of a {@link
+ * LanguageToolAnalyzer} in each {@linkplain Mode mode}, with both
+ * languages loaded, and analyzes the mixed {@linkplain Corpus corpus}
+ * once, so that lazily loaded dictionaries are accounted for, too.
+ *
+ * <p>This is not a JMH benchmark: startup only happens once per JVM, so
+ * each mode is measured in a JVM of its own, which this class forks.</p>
+ *
+ * <p>Usage: {@code java -cp benchmarks.jar
+ * com.intersystems.iknow.languagemodel.slavic.benchmarks.EngineStartupBenchmark
+ * [poolSize [mode]]}</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class EngineStartupBenchmark {
+	private EngineStartupBenchmark() {
+		assert false;
+	}
+
+	/**
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(final String args[]) throws Exception {
+		final int poolSize = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+		if (args.length > 1) {
+			measure(Mode.valueOf(args[1]), poolSize);
+			return;
+		}
+
+		System.out.printf("%-10s %10s %14s %14s%n", "mode", "pool size", "startup, ms", "heap, MB");
+		for (final Mode mode : Mode.values()) {
+			final List<String> command = new ArrayList<>();
+			command.add(getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+			command.add("-cp");
+			command.add(getProperty("java.class.path"));
+			command.add(EngineStartupBenchmark.class.getName());
+			command.add(String.valueOf(poolSize));
+			command.add(mode.name());
+			final Process process = new ProcessBuilder(command).inheritIO().start();
+			if (process.waitFor() != 0) {
+				System.err.printf("%s: exit code %d%n", mode, Integer.valueOf(process.exitValue()));
+			}
+		}
+	}
+
+	/**
+	 * @param mode
+	 * @param poolSize
+	 * @throws Exception
+	 */
+	private static void measure(final Mode mode, final int poolSize) throws Exception {
+		final String text = Corpus.load(Corpus.MIXED);
+		final long heapBefore = usedHeap();
+
+		final long start = System.nanoTime();
+		final LanguageToolAnalyzer analyzer = LanguageToolAnalyzer.builder()
+				.mode(mode)
+				.poolSize(poolSize)
+				.eager(true)
+				.build();
+		final long startupNanos = System.nanoTime() - start;
+
+		/*
+		 * Each instance of the pool loads its tagger dictionary on first use.
+		 */
+		for (int i = 0; i < poolSize; i++) {
+			analyzer.analyze(text);
+		}
+
+		final long heapAfter = usedHeap();
+		System.out.printf("%-10s %10d %14.0f %14.1f%n",
+				mode,
+				Integer.valueOf(poolSize),
+				Double.valueOf(startupNanos / 1e6),
+				Double.valueOf((heapAfter - heapBefore) / (1024.0 * 1024.0)));
+
+		/*
+		 * Keep the analyzer reachable until the heap has been measured.
+		 */
+		if (analyzer.getLanguages().isEmpty()) {
+			throw new IllegalStateException();
+		}
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		final Runtime runtime = Runtime.getRuntime();
+		long usedHeap = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			Thread.sleep(100);
+			usedHeap = Math.min(usedHeap, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return usedHeap;
+	}
+}
@@ -0,0 +1,247 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.impl.EnginePool;
+import com.intersystems.iknow.languagemodel.slavic.impl.HunspellAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.impl.LanguageToolAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.server.MorphologicalAnalyzerHttpServer;
+
+/**
+ * Measures the latency of the {@linkplain MorphologicalAnalyzerHttpServer
+ * HTTP service} over the loopback interface, sending sentences of the mixed
+ * {@linkplain Corpus corpus} at fixed request rates and reporting the 50th
+ * and 99th percentiles.
+ *
+ * <p>This is not a JMH benchmark: JMH drives the code under test as fast
+ * as it can, while latency at a given load requires an open-loop client.
+ * Each latency is measured from the time the request was <em>scheduled</em>
+ * to be sent, so that a stalled server is not hidden by the client sending
+ * fewer requests (coordinated omission).</p>
+ *
+ * <p>Usage: {@code java -cp benchmarks.jar
+ * com.intersystems.iknow.languagemodel.slavic.benchmarks.HttpLatencyBenchmark
+ * [languagetool|hunspell [workerCount [secondsPerRate [rate...]]]]}</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class HttpLatencyBenchmark {
+	private static final int DEFAULT_RATES[] = {50, 100, 200, 400};
+
+	/**
+	 * Enough for every request to be sent on time, unless
+	 * the server is way behind.
+	 */
+	private static final int CLIENT_COUNT = 64;
+
+	private HttpLatencyBenchmark() {
+		assert false;
+	}
+
+	/**
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(final String args[]) throws Exception {
+		final String engine = args.length > 0 ? args[0] : "languagetool";
+		final int workerCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		final int secondsPerRate = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		final int rates[] = args.length > 3
+				? Arrays.stream(args, 3, args.length).mapToInt(Integer::parseInt).toArray()
+				: DEFAULT_RATES;
+
+		/*
+		 * Same as MorphologicalAnalyzerHttpServer.main().
+		 */
+		if (System.getProperty(MorphologicalAnalyzerHttpServer.NODELAY_PROPERTY) == null) {
+			System.setProperty(MorphologicalAnalyzerHttpServer.NODELAY_PROPERTY, "true");
+		}
+
+		final MorphologicalAnalyzer analyzer;
+		switch (engine) {
+		case "languagetool":
+			analyzer = new LanguageToolAnalyzer(workerCount, EnginePool.NO_TIMEOUT, MILLISECONDS);
+			break;
+		case "hunspell":
+			analyzer = new HunspellAnalyzer();
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown engine: " + engine);
+		}
+
+		final List<byte[]> sentences = new ArrayList<>();
+		for (final String sentence : Corpus.load(Corpus.MIXED).split("(?<=[.!?])\\s+")) {
+			if (sentence.trim().length() != 0) {
+				sentences.add(sentence.getBytes(UTF_8));
+			}
+		}
+
+		final ExecutorService workers = MorphologicalAnalyzerHttpServer.newWorkerPool(workerCount);
+		final ExecutorService clients = Executors.newFixedThreadPool(CLIENT_COUNT);
+		try (final MorphologicalAnalyzerHttpServer server = new MorphologicalAnalyzerHttpServer(analyzer, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), workers)) {
+			final URL url = new URL("http", server.getAddress().getHostString(), server.getAddress().getPort(), MorphologicalAnalyzerHttpServer.ANALYZE_PATH);
+
+			System.out.printf("Warming up at %d requests/s for %d s%n", Integer.valueOf(rates[0]), Integer.valueOf(secondsPerRate));
+			run(url, sentences, clients, rates[0], secondsPerRate);
+
+			System.out.printf("%n%-10s %10s %8s %10s %10s %10s%n", "rate, 1/s", "requests", "errors", "p50, ms", "p99, ms", "max, ms");
+			for (final int rate : rates) {
+				final Result result = run(url, sentences, clients, rate, secondsPerRate);
+				System.out.printf("%-10d %10d %8d %10.2f %10.2f %10.2f%n",
+						Integer.valueOf(rate),
+						Integer.valueOf(result.latencies.length),
+						Integer.valueOf(result.errorCount),
+						Double.valueOf(result.percentile(0.50) / 1e6),
+						Double.valueOf(result.percentile(0.99) / 1e6),
+						Double.valueOf(result.percentile(1.0) / 1e6));
+			}
+		} finally {
+			clients.shutdownNow();
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * @param url
+	 * @param sentences
+	 * @param clients
+	 * @param rate requests per second.
+	 * @param seconds
+	 * @throws InterruptedException
+	 */
+	private static Result run(final URL url,
+			final List<byte[]> sentences,
+			final ExecutorService clients,
+			final int rate,
+			final int seconds)
+	throws InterruptedException {
+		final int requestCount = rate * seconds;
+		final long intervalNanos = SECONDS.toNanos(1) / rate;
+		final long latencies[] = new long[requestCount];
+		final AtomicInteger errorCount = new AtomicInteger();
+		final AtomicInteger completedCount = new AtomicInteger();
+
+		final long start = System.nanoTime();
+		for (int i = 0; i < requestCount; i++) {
+			final long scheduled = start + i * intervalNanos;
+			final long delay = scheduled - System.nanoTime();
+			if (delay > 0) {
+				LockSupport.parkNanos(delay);
+			}
+
+			final int request = i;
+			final byte sentence[] = sentences.get(i % sentences.size());
+			clients.execute(() -> {
+				try {
+					post(url, sentence);
+				} catch (final IOException ioe) {
+					errorCount.incrementAndGet();
+				}
+				latencies[request] = System.nanoTime() - scheduled;
+				synchronized (completedCount) {
+					completedCount.incrementAndGet();
+					completedCount.notifyAll();
+				}
+			});
+		}
+
+		synchronized (completedCount) {
+			while (completedCount.get() < requestCount) {
+				completedCount.wait(NANOSECONDS.toMillis(intervalNanos) + 1);
+			}
+		}
+		return new Result(latencies, errorCount.get());
+	}
+
+	/**
+	 * Reads the whole response, so that the connection is kept alive
+	 * and reused by the next request.
+	 *
+	 * @param url
+	 * @param body
+	 * @throws IOException
+	 */
+	private static void post(final URL url, final byte body[]) throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setFixedLengthStreamingMode(body.length);
+		connection.setRequestProperty("Content-Type", "text/plain; charset=UTF-8");
+		try (final OutputStream out = connection.getOutputStream()) {
+			out.write(body);
+		}
+		if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+			try (final InputStream in = connection.getErrorStream()) {
+				drain(in);
+			}
+			throw new IOException("HTTP " + connection.getResponseCode());
+		}
+		try (final InputStream in = connection.getInputStream()) {
+			drain(in);
+		}
+	}
+
+	/**
+	 * @param in
+	 * @throws IOException
+	 */
+	private static void drain(final InputStream in) throws IOException {
+		if (in == null) {
+			return;
+		}
+		final byte buffer[] = new byte[8192];
+		while (in.read(buffer) != -1) {
+			// ignore
+		}
+	}
+
+	/**
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	private static final class Result {
+		final long latencies[];
+
+		final int errorCount;
+
+		/**
+		 * @param latencies
+		 * @param errorCount
+		 */
+		Result(final long latencies[], final int errorCount) {
+			this.latencies = latencies.clone();
+			Arrays.sort(this.latencies);
+			this.errorCount = errorCount;
+		}
+
+		/**
+		 * @param fraction
+		 * @return the latency in nanoseconds.
+		 */
+		long percentile(final double fraction) {
+			final int index = (int) Math.ceil(fraction * this.latencies.length) - 1;
+			return this.latencies[Math.max(0, Math.min(index, this.latencies.length - 1))];
+		}
+	}
+}
@@ -12,9 +12,29 @@ public final class AnalysisException extends RemoteException {
 	private static final long serialVersionUID = 8302653720251053912L;
 
 	/**
+	 * @param message
+	 */
+	public AnalysisException(final String message) {
+		super(message);
+	}
+
+	/**
+	 * {@link RemoteException} keeps its cause in the {@link
+	 * RemoteException#detail detail} field and doesn't allow
+	 * {@link #initCause(Throwable)}, so the cause can only be set
+	 * via the constructor.
+	 *
 	 * @param cause
 	 */
 	public AnalysisException(final Throwable cause) {
-		this.initCause(cause);
+		this(cause.getMessage(), cause);
+	}
+
+	/**
+	 * @param message
+	 * @param cause
+	 */
+	public AnalysisException(final String message, final Throwable cause) {
+		super(message, cause);
 	}
 }
@@ -0,0 +1,331 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.intersystems.iknow.languagemodel.slavic.cache.WordFormCache;
+import com.intersystems.iknow.languagemodel.slavic.text.TokenOccurrences;
+import com.intersystems.iknow.languagemodel.slavic.text.WordTokenizer;
+
+/**
+ * A {@linkplain MorphologicalAnalyzer morphological analyzer} which caches
+ * the analyzes returned by its delegate, per language and token.
+ *
+ * <p>Each distinct word form of the text is looked up in the cache, once
+ * for each language of the delegate. If all of them are found there, the
+ * delegate isn't called at all. Otherwise, the whole text is analyzed by
+ * the delegate, in a single call, and its results are returned as is,
+ * while the analyzes of each token are cached for each language.</p>
+ *
+ * <p>Since the cache is filled from whole texts, the delegate still sees
+ * each word in its sentence context. However, a word form found in the
+ * cache gets the readings of the last context it has been analyzed in. So,
+ * with a delegate which disambiguates readings by their context (such as
+ * {@code LanguageToolAnalyzer} in any mode but {@code TAGGING}), the results
+ * may occasionally differ from those of the delegate alone; they are exact
+ * for context-free delegates, such as {@code HunspellAnalyzer}.</p>
+ *
+ * <p>Word forms which the delegate splits further (or doesn't return as
+ * tokens at all) are never found in the cache, so texts containing them
+ * are always passed to the delegate.</p>
+ *
+ * <p>This class is thread-safe provided the delegate is.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class CachingMorphologicalAnalyzer implements MorphologicalAnalyzer {
+	/**
+	 * 64 MB.
+	 */
+	public static final long DEFAULT_MAXIMUM_WEIGHT = 64L << 20;
+
+	/**
+	 * Approximate heap size of a single {@link MorphologicalAnalysisResult}
+	 * (categories are packed into a single {@code long}) along with its
+	 * entry in the set of results, excluding the characters of the stem,
+	 * in bytes.
+	 */
+	private static final int RESULT_WEIGHT = 128;
+
+	/**
+	 * Whitespace and punctuation which can never be a part of a word form.
+	 * Hyphen (-) and apostrophe (') are not included, as they may be legal
+	 * word parts ("красно-белый", "п'ятниця").
+	 */
+	static final WordTokenizer TOKENIZER = new WordTokenizer("!\"()*,./:;<>?[]^`{} \t\n\u000B\f\r");
+
+	/**
+	 * Separates the language from the token in a cache key; never a part
+	 * of a language code.
+	 */
+	private static final char KEY_SEPARATOR = ':';
+
+	@Nonnull
+	private final MorphologicalAnalyzer delegate;
+
+	@Nonnull
+	private final String languages[];
+
+	@Nonnull
+	private final WordFormCache<Set<MorphologicalAnalysisResult>> cache;
+
+	/**
+	 * @param delegate
+	 * @param languages the languages of the delegate.
+	 */
+	public CachingMorphologicalAnalyzer(@Nonnull final MorphologicalAnalyzer delegate,
+			@Nonnull final Collection<String> languages) {
+		this(delegate, languages, DEFAULT_MAXIMUM_WEIGHT);
+	}
+
+	/**
+	 * @param delegate
+	 * @param languages the languages of the delegate.
+	 * @param maximumWeight the maximum heap size (in bytes) the cached
+	 *        analyzes are allowed to retain.
+	 */
+	public CachingMorphologicalAnalyzer(@Nonnull final MorphologicalAnalyzer delegate,
+			@Nonnull final Collection<String> languages,
+			final long maximumWeight) {
+		if (languages.isEmpty()) {
+			throw new IllegalArgumentException("No languages");
+		}
+
+		this.delegate = delegate;
+		this.languages = languages.toArray(new String[languages.size()]);
+		this.cache = new WordFormCache<>(maximumWeight, CachingMorphologicalAnalyzer::weigh);
+	}
+
+	/**
+	 * @see MorphologicalAnalyzer#analyze(String)
+	 */
+	@Override
+	public Map<String, Set<MorphologicalAnalysisResult>> analyze(final String text)
+	throws AnalysisException, RemoteException {
+		if (text == null || text.length() == 0) {
+			return emptyMap();
+		}
+
+		final Map<String, Set<MorphologicalAnalysisResult>> cachedResults = this.lookUp(TOKENIZER.distinctWords(text));
+		if (cachedResults != null) {
+			return cachedResults;
+		}
+
+		final Map<String, Set<MorphologicalAnalysisResult>> results = this.delegate.analyze(text);
+		this.cache(results);
+		return results;
+	}
+
+	/**
+	 * @see MorphologicalAnalyzer#analyzeSpans(String)
+	 */
+	@Override
+	public List<TokenSpan> analyzeSpans(final String text)
+	throws AnalysisException, RemoteException {
+		if (text == null || text.length() == 0) {
+			return emptyList();
+		}
+
+		final TokenOccurrences occurrences = new TokenOccurrences();
+		TOKENIZER.tokenize(text, occurrences);
+		final Map<String, Set<MorphologicalAnalysisResult>> cachedResults = this.lookUp(occurrences.distinctTokens());
+		if (cachedResults != null) {
+			return occurrences.toSpans(cachedResults);
+		}
+
+		final List<TokenSpan> spans = this.delegate.analyzeSpans(text);
+		for (final TokenSpan span : spans) {
+			this.cache(span.getToken(), span.getResults());
+		}
+		return spans;
+	}
+
+	/**
+	 * Looks each distinct word form of the whole batch up in the cache only
+	 * once, and analyzes all the texts with any word forms not found there
+	 * with a single {@linkplain MorphologicalAnalyzer#analyzeBatch(List)
+	 * batch call} to the delegate.
+	 *
+	 * @see MorphologicalAnalyzer#analyzeBatch(List)
+	 */
+	@Override
+	public List<Map<String, Set<MorphologicalAnalysisResult>>> analyzeBatch(final List<String> texts)
+	throws AnalysisException, RemoteException {
+		final List<Map<String, Set<MorphologicalAnalysisResult>>> results = new ArrayList<>(texts.size());
+		final Map<String, Set<MorphologicalAnalysisResult>> tokenResults = new HashMap<>();
+		final Set<String> missedTokens = new HashSet<>();
+		final List<String> missedTexts = new ArrayList<>();
+		final List<Integer> missedIndices = new ArrayList<>();
+		for (final String text : texts) {
+			final Set<String> wordForms = text == null || text.length() == 0
+					? Collections.<String>emptySet()
+					: TOKENIZER.distinctWords(text);
+			final Map<String, Set<MorphologicalAnalysisResult>> textResults = new LinkedHashMap<>();
+			boolean missed = false;
+			for (final String wordForm : wordForms) {
+				Set<MorphologicalAnalysisResult> wordFormResults = tokenResults.get(wordForm);
+				if (wordFormResults == null && !missedTokens.contains(wordForm)) {
+					wordFormResults = this.lookUp(wordForm);
+					if (wordFormResults == null) {
+						missedTokens.add(wordForm);
+					} else {
+						tokenResults.put(wordForm, wordFormResults);
+					}
+				}
+				if (wordFormResults == null) {
+					missed = true;
+				} else if (!missed) {
+					textResults.put(wordForm, wordFormResults);
+				}
+			}
+
+			if (missed) {
+				missedTexts.add(text);
+				missedIndices.add(Integer.valueOf(results.size()));
+				results.add(null);
+			} else {
+				results.add(unmodifiableMap(textResults));
+			}
+		}
+
+		if (!missedTexts.isEmpty()) {
+			final List<Map<String, Set<MorphologicalAnalysisResult>>> missedResults = this.delegate.analyzeBatch(missedTexts);
+			for (int i = 0; i < missedTexts.size(); i++) {
+				final Map<String, Set<MorphologicalAnalysisResult>> textResults = missedResults.get(i);
+				this.cache(textResults);
+				results.set(missedIndices.get(i).intValue(), textResults);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Looks all the <em>wordForms</em> up, even once one of them hasn't been
+	 * found, so that the cache keeps track of how often each is requested.
+	 *
+	 * @param wordForms
+	 * @return the cached analyzes of all the <em>wordForms</em>, or
+	 *         {@code null} if any of them hasn't been found in the cache.
+	 */
+	@Nullable
+	private Map<String, Set<MorphologicalAnalysisResult>> lookUp(final Set<String> wordForms) {
+		Map<String, Set<MorphologicalAnalysisResult>> results = new LinkedHashMap<>();
+		for (final String wordForm : wordForms) {
+			final Set<MorphologicalAnalysisResult> wordFormResults = this.lookUp(wordForm);
+			if (wordFormResults == null) {
+				results = null;
+			} else if (results != null) {
+				results.put(wordForm, wordFormResults);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * @param wordForm
+	 * @return the cached analyzes of the <em>wordForm</em> in all the
+	 *         languages, or {@code null} if those in any language haven't
+	 *         been found in the cache.
+	 */
+	@Nullable
+	private Set<MorphologicalAnalysisResult> lookUp(final String wordForm) {
+		Set<MorphologicalAnalysisResult> results = null;
+		boolean missed = false;
+		for (final String language : this.languages) {
+			final Set<MorphologicalAnalysisResult> languageResults = this.cache.get(key(language, wordForm));
+			if (languageResults == null) {
+				missed = true;
+			} else if (results == null || results.isEmpty()) {
+				results = languageResults;
+			} else if (!languageResults.isEmpty()) {
+				final Set<MorphologicalAnalysisResult> mergedResults = new LinkedHashSet<>(results);
+				mergedResults.addAll(languageResults);
+				results = unmodifiableSet(mergedResults);
+			}
+		}
+		return missed ? null : results;
+	}
+
+	/**
+	 * @param results the results of a text, as returned by the delegate.
+	 */
+	private void cache(final Map<String, Set<MorphologicalAnalysisResult>> results) {
+		results.forEach(this::cache);
+	}
+
+	/**
+	 * Caches the analyzes of a single token in each language, including
+	 * the languages it has no analyzes in.
+	 *
+	 * @param token
+	 * @param tokenResults
+	 */
+	private void cache(final String token, final Set<MorphologicalAnalysisResult> tokenResults) {
+		for (final String language : this.languages) {
+			final Set<MorphologicalAnalysisResult> languageResults = new LinkedHashSet<>();
+			for (final MorphologicalAnalysisResult result : tokenResults) {
+				if (language.equals(result.getLanguage())) {
+					languageResults.add(result);
+				}
+			}
+			/*
+			 * Cached results are shared between callers,
+			 * so they are read-only.
+			 */
+			this.cache.put(key(language, token), languageResults.isEmpty()
+					? Collections.<MorphologicalAnalysisResult>emptySet()
+					: unmodifiableSet(languageResults));
+		}
+	}
+
+	/**
+	 * @return the cache of analyzes, keyed by language and token, which
+	 *         also provides hit, miss and eviction counts.
+	 */
+	public WordFormCache<Set<MorphologicalAnalysisResult>> getCache() {
+		return this.cache;
+	}
+
+	/**
+	 * @param language
+	 * @param token
+	 */
+	private static String key(final String language, final String token) {
+		return new StringBuilder(language.length() + 1 + token.length())
+				.append(language)
+				.append(KEY_SEPARATOR)
+				.append(token)
+				.toString();
+	}
+
+	/**
+	 * @param results
+	 */
+	private static int weigh(final Set<MorphologicalAnalysisResult> results) {
+		int weight = 0;
+		for (final MorphologicalAnalysisResult result : results) {
+			weight += RESULT_WEIGHT + 2 * result.getStem().length();
+		}
+		return weight;
+	}
+}
@@ -0,0 +1,381 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic;
+
+import static java.util.Collections.emptyMap;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A {@linkplain MorphologicalAnalyzer morphological analyzer} which gathers
+ * concurrent {@link #analyze(String)} calls into batches, so that many
+ * short texts (e.&nbsp;g. search queries) take a single call to the
+ * delegate instead of one call each.
+ *
+ * <p>The first call to arrive opens a batch and waits for further calls
+ * for up to the <em>maximum wait</em>, or until the batch has gathered
+ * the <em>maximum number of word forms</em>, whichever comes first. The
+ * distinct texts of the batch are then analyzed with a single {@linkplain
+ * MorphologicalAnalyzer#analyzeBatch(List) batch call} to the delegate,
+ * and each caller gets the analyzes of its own text. It's up to the
+ * delegate to analyze each distinct word of the batch only once, if it
+ * can do so without losing the sentence context; either way, each caller
+ * gets the same analyzes as from the delegate alone.</p>
+ *
+ * <p>The wait window and the size of the batches are reported via
+ * {@link #getAverageWaitNanos()}, {@link #getAverageBatchSize()} and
+ * friends.</p>
+ *
+ * <p>This class is thread-safe provided the delegate is.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class CoalescingMorphologicalAnalyzer implements MorphologicalAnalyzer {
+	@Nonnull
+	private final MorphologicalAnalyzer delegate;
+
+	private final long maximumWaitNanos;
+
+	private final int maximumWordForms;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Signalled once the pending batch is full.
+	 */
+	private final Condition full = this.lock.newCondition();
+
+	/**
+	 * The batch still accepting calls, guarded by the {@link #lock}.
+	 */
+	private Batch pending;
+
+	private final LongAdder requestCount = new LongAdder();
+
+	private final LongAdder batchCount = new LongAdder();
+
+	private final LongAdder fullBatchCount = new LongAdder();
+
+	private final LongAdder totalBatchWordForms = new LongAdder();
+
+	private final AtomicLong maximumBatchWordForms = new AtomicLong();
+
+	private final LongAdder totalWaitNanos = new LongAdder();
+
+	private final AtomicLong maximumWaitNanosObserved = new AtomicLong();
+
+	/**
+	 * @param delegate
+	 * @param maximumWait how long the first call of a batch waits for
+	 *        further calls; {@code 0} disables coalescing.
+	 * @param unit the time unit of the <em>maximumWait</em>.
+	 * @param maximumWordForms the number of distinct word forms which
+	 *        closes a batch before the <em>maximumWait</em> elapses.
+	 */
+	public CoalescingMorphologicalAnalyzer(@Nonnull final MorphologicalAnalyzer delegate,
+			final long maximumWait,
+			@Nonnull final TimeUnit unit,
+			final int maximumWordForms) {
+		if (maximumWait < 0) {
+			throw new IllegalArgumentException("Maximum wait is negative: " + maximumWait);
+		}
+		if (maximumWordForms <= 0) {
+			throw new IllegalArgumentException("Maximum word form count is not positive: " + maximumWordForms);
+		}
+
+		this.delegate = delegate;
+		this.maximumWaitNanos = unit.toNanos(maximumWait);
+		this.maximumWordForms = maximumWordForms;
+	}
+
+	/**
+	 * @see MorphologicalAnalyzer#analyze(String)
+	 */
+	@Override
+	public Map<String, Set<MorphologicalAnalysisResult>> analyze(final String text)
+	throws AnalysisException, RemoteException {
+		if (text == null || text.length() == 0) {
+			return emptyMap();
+		}
+
+		final Set<String> wordForms = CachingMorphologicalAnalyzer.TOKENIZER.distinctWords(text);
+
+		final Batch batch;
+		final boolean leader;
+		final int index;
+		this.lock.lock();
+		try {
+			if (this.pending == null) {
+				this.pending = new Batch();
+				leader = true;
+			} else {
+				leader = false;
+			}
+			batch = this.pending;
+			index = batch.add(text);
+			batch.wordForms.addAll(wordForms);
+			this.requestCount.increment();
+			if (batch.wordForms.size() >= this.maximumWordForms) {
+				this.close(batch, true);
+			}
+
+			if (leader) {
+				this.await(batch);
+			}
+		} finally {
+			this.lock.unlock();
+		}
+
+		if (leader) {
+			this.run(batch);
+		}
+		return batch.get().get(index);
+	}
+
+	/**
+	 * Passes the <em>texts</em> straight to the delegate, without waiting
+	 * for other calls.
+	 *
+	 * @see MorphologicalAnalyzer#analyzeBatch(List)
+	 */
+	@Override
+	public List<Map<String, Set<MorphologicalAnalysisResult>>> analyzeBatch(final List<String> texts)
+	throws AnalysisException, RemoteException {
+		return this.delegate.analyzeBatch(texts);
+	}
+
+	/**
+	 * Waits, holding the {@link #lock}, until the <em>batch</em> is either
+	 * full or has been open for the maximum wait.
+	 *
+	 * @param batch
+	 */
+	private void await(final Batch batch) {
+		long remainingNanos = batch.start + this.maximumWaitNanos - System.nanoTime();
+		boolean interrupted = false;
+		while (!batch.closed && remainingNanos > 0) {
+			try {
+				remainingNanos = this.full.awaitNanos(remainingNanos);
+			} catch (final InterruptedException ie) {
+				/*
+				 * Other callers may already be waiting for this
+				 * batch, so it has to be run anyway.
+				 */
+				interrupted = true;
+				break;
+			}
+		}
+		if (!batch.closed) {
+			this.close(batch, false);
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Stops the <em>batch</em> from accepting further calls; must be
+	 * called with the {@link #lock} held.
+	 *
+	 * @param batch
+	 * @param isFull
+	 */
+	private void close(final Batch batch, final boolean isFull) {
+		batch.closed = true;
+		this.pending = null;
+
+		final long waitNanos = System.nanoTime() - batch.start;
+		this.totalWaitNanos.add(waitNanos);
+		this.maximumWaitNanosObserved.accumulateAndGet(waitNanos, Math::max);
+		final int size = batch.wordForms.size();
+		this.totalBatchWordForms.add(size);
+		this.maximumBatchWordForms.accumulateAndGet(size, Math::max);
+		this.batchCount.increment();
+		if (isFull) {
+			this.fullBatchCount.increment();
+			this.full.signal();
+		}
+	}
+
+	/**
+	 * Analyzes the texts of a closed <em>batch</em> and completes it.
+	 *
+	 * @param batch
+	 */
+	private void run(final Batch batch) {
+		try {
+			batch.results.complete(this.delegate.analyzeBatch(batch.texts));
+		} catch (final RemoteException | RuntimeException | Error e) {
+			batch.results.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * @return the number of {@link #analyze(String)} calls with non-empty
+	 *         text.
+	 */
+	public long getRequestCount() {
+		return this.requestCount.sum();
+	}
+
+	/**
+	 * @return the number of batches run.
+	 */
+	public long getBatchCount() {
+		return this.batchCount.sum();
+	}
+
+	/**
+	 * @return the number of batches closed because of the number of word
+	 *         forms rather than the wait.
+	 */
+	public long getFullBatchCount() {
+		return this.fullBatchCount.sum();
+	}
+
+	/**
+	 * @return the average number of calls per batch.
+	 */
+	public double getAverageRequestsPerBatch() {
+		final long batches = this.getBatchCount();
+		return batches == 0 ? 0 : (double) this.getRequestCount() / batches;
+	}
+
+	/**
+	 * @return the average number of distinct word forms per batch.
+	 */
+	public double getAverageBatchSize() {
+		final long batches = this.getBatchCount();
+		return batches == 0 ? 0 : (double) this.totalBatchWordForms.sum() / batches;
+	}
+
+	/**
+	 * @return the largest number of distinct word forms in a batch.
+	 */
+	public long getMaximumBatchSize() {
+		return this.maximumBatchWordForms.get();
+	}
+
+	/**
+	 * @return the average time a batch has been open for, in nanoseconds.
+	 */
+	public double getAverageWaitNanos() {
+		final long batches = this.getBatchCount();
+		return batches == 0 ? 0 : (double) this.totalWaitNanos.sum() / batches;
+	}
+
+	/**
+	 * @return the longest time a batch has been open for, in nanoseconds.
+	 */
+	public long getMaximumWaitNanos() {
+		return this.maximumWaitNanosObserved.get();
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("{:requests %d :batches %d :fullBatches %d :averageRequestsPerBatch %.1f :averageBatchSize %.1f :maximumBatchSize %d :averageWaitNanos %.0f :maximumWaitNanos %d}",
+				Long.valueOf(this.getRequestCount()),
+				Long.valueOf(this.getBatchCount()),
+				Long.valueOf(this.getFullBatchCount()),
+				Double.valueOf(this.getAverageRequestsPerBatch()),
+				Double.valueOf(this.getAverageBatchSize()),
+				Long.valueOf(this.getMaximumBatchSize()),
+				Double.valueOf(this.getAverageWaitNanos()),
+				Long.valueOf(this.getMaximumWaitNanos()));
+	}
+
+	/**
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	private static final class Batch {
+		final long start = System.nanoTime();
+
+		/**
+		 * The distinct texts of all the calls, guarded by the {@link
+		 * CoalescingMorphologicalAnalyzer#lock lock} until the batch is
+		 * closed.
+		 */
+		final List<String> texts = new ArrayList<>();
+
+		/**
+		 * The indices of the {@link #texts}.
+		 */
+		private final Map<String, Integer> textIndices = new HashMap<>();
+
+		/**
+		 * The distinct word forms of all the calls, guarded by the
+		 * {@link CoalescingMorphologicalAnalyzer#lock lock} until the
+		 * batch is closed.
+		 */
+		final Set<String> wordForms = new HashSet<>();
+
+		/**
+		 * Guarded by the {@link CoalescingMorphologicalAnalyzer#lock lock}.
+		 */
+		boolean closed;
+
+		final CompletableFuture<List<Map<String, Set<MorphologicalAnalysisResult>>>> results = new CompletableFuture<>();
+
+		/**
+		 * Adds the <em>text</em> to the batch, unless it's already there.
+		 *
+		 * @param text
+		 * @return the index of the <em>text</em> in the batch.
+		 */
+		int add(final String text) {
+			final Integer index = this.textIndices.get(text);
+			if (index != null) {
+				return index.intValue();
+			}
+			this.texts.add(text);
+			this.textIndices.put(text, Integer.valueOf(this.texts.size() - 1));
+			return this.texts.size() - 1;
+		}
+
+		/**
+		 * Waits for the batch to be analyzed.
+		 *
+		 * @throws AnalysisException
+		 * @throws RemoteException
+		 */
+		List<Map<String, Set<MorphologicalAnalysisResult>>> get() throws AnalysisException, RemoteException {
+			try {
+				return this.results.get();
+			} catch (final InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new AnalysisException(ie);
+			} catch (final ExecutionException ee) {
+				final Throwable cause = ee.getCause();
+				if (cause instanceof RemoteException) {
+					throw (RemoteException) cause;
+				}
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new AnalysisException(cause);
+			}
+		}
+	}
+}
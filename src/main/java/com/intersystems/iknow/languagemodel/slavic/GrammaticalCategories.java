@@ -0,0 +1,244 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import com.intersystems.iknow.languagemodel.slavic.categories.Declension;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalAspect;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalCase;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalGender;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalNumber;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalPerson;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalTense;
+
+/**
+ * Packs a set of {@linkplain GrammaticalCategory grammatical categories}
+ * into a single {@code long}, one bit per enum constant, in the order of
+ * enum types listed below.
+ *
+ * <p>All the categories together take 28 bits, so a mask never has its
+ * sign bit set. The bit assignment is not persisted anywhere and may
+ * change whenever a category is added.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class GrammaticalCategories {
+	private static final List<Class<? extends Enum<? extends GrammaticalCategory>>> CATEGORY_TYPES = Arrays.asList(
+			GrammaticalCase.class,
+			GrammaticalGender.class,
+			GrammaticalNumber.class,
+			GrammaticalPerson.class,
+			GrammaticalTense.class,
+			GrammaticalAspect.class,
+			Declension.class);
+
+	/**
+	 * All the categories, indexed by bit.
+	 */
+	private static final GrammaticalCategory CATEGORIES[];
+
+	/**
+	 * The index of the first bit for each enum type.
+	 */
+	private static final Map<Class<?>, Integer> OFFSETS = new IdentityHashMap<>();
+
+	static {
+		int offset = 0;
+		for (final Class<? extends Enum<? extends GrammaticalCategory>> categoryType : CATEGORY_TYPES) {
+			OFFSETS.put(categoryType, Integer.valueOf(offset));
+			offset += categoryType.getEnumConstants().length;
+		}
+		if (offset >= Long.SIZE) {
+			throw new ExceptionInInitializerError("Too many grammatical categories: " + offset);
+		}
+
+		CATEGORIES = new GrammaticalCategory[offset];
+		for (final Class<? extends Enum<? extends GrammaticalCategory>> categoryType : CATEGORY_TYPES) {
+			for (final Enum<? extends GrammaticalCategory> category : categoryType.getEnumConstants()) {
+				CATEGORIES[bit(category)] = (GrammaticalCategory) category;
+			}
+		}
+	}
+
+	/**
+	 * The empty set of categories.
+	 */
+	public static final Set<GrammaticalCategory> NONE = new CategorySet(0L);
+
+	private GrammaticalCategories() {
+		assert false;
+	}
+
+	/**
+	 * @param category
+	 * @return the mask with the single bit standing for the
+	 *         <em>category</em>.
+	 * @throws IllegalArgumentException if the <em>category</em> is not
+	 *         one of the enum constants supported.
+	 */
+	public static long mask(@Nonnull final GrammaticalCategory category) {
+		if (!(category instanceof Enum<?>)) {
+			throw new IllegalArgumentException("Unsupported grammatical category: " + category);
+		}
+		return 1L << bit((Enum<?>) category);
+	}
+
+	/**
+	 * @param categories
+	 * @return the mask of the <em>categories</em>.
+	 * @throws IllegalArgumentException if any of the <em>categories</em>
+	 *         is not one of the enum constants supported.
+	 */
+	public static long mask(@Nonnull final Collection<? extends GrammaticalCategory> categories) {
+		if (categories instanceof CategorySet) {
+			return ((CategorySet) categories).mask;
+		}
+
+		long mask = 0L;
+		for (final GrammaticalCategory category : categories) {
+			mask |= mask(category);
+		}
+		return mask;
+	}
+
+	/**
+	 * @param mask
+	 * @return a read-only set view of the <em>mask</em>, iterated in the
+	 *         order of bits.
+	 */
+	public static Set<GrammaticalCategory> asSet(final long mask) {
+		if ((mask & ~allCategories()) != 0) {
+			throw new IllegalArgumentException("Unsupported grammatical categories: 0x" + Long.toHexString(mask));
+		}
+		return mask == 0L ? NONE : new CategorySet(mask);
+	}
+
+	/**
+	 * @return the mask of all the categories supported.
+	 */
+	public static long allCategories() {
+		return (1L << CATEGORIES.length) - 1;
+	}
+
+	/**
+	 * @param category
+	 */
+	private static int bit(final Enum<?> category) {
+		final Integer offset = OFFSETS.get(category.getDeclaringClass());
+		if (offset == null) {
+			throw new IllegalArgumentException("Unsupported grammatical category: " + category);
+		}
+		return offset.intValue() + category.ordinal();
+	}
+
+	/**
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	private static final class CategorySet extends AbstractSet<GrammaticalCategory> implements Serializable {
+		private static final long serialVersionUID = 6393766497425218624L;
+
+		final long mask;
+
+		/**
+		 * @param mask
+		 */
+		CategorySet(final long mask) {
+			this.mask = mask;
+		}
+
+		/**
+		 * @see AbstractSet#size()
+		 */
+		@Override
+		public int size() {
+			return Long.bitCount(this.mask);
+		}
+
+		/**
+		 * @see AbstractSet#isEmpty()
+		 */
+		@Override
+		public boolean isEmpty() {
+			return this.mask == 0L;
+		}
+
+		/**
+		 * @see AbstractSet#contains(Object)
+		 */
+		@Override
+		public boolean contains(final Object o) {
+			if (!(o instanceof GrammaticalCategory) || !(o instanceof Enum<?>)
+					|| !OFFSETS.containsKey(((Enum<?>) o).getDeclaringClass())) {
+				return false;
+			}
+			return (this.mask & mask((GrammaticalCategory) o)) != 0;
+		}
+
+		/**
+		 * @see AbstractSet#iterator()
+		 */
+		@Override
+		public Iterator<GrammaticalCategory> iterator() {
+			return new Iterator<GrammaticalCategory>() {
+				private long remaining = CategorySet.this.mask;
+
+				/**
+				 * @see Iterator#hasNext()
+				 */
+				@Override
+				public boolean hasNext() {
+					return this.remaining != 0L;
+				}
+
+				/**
+				 * @see Iterator#next()
+				 */
+				@Override
+				public GrammaticalCategory next() {
+					if (this.remaining == 0L) {
+						throw new NoSuchElementException();
+					}
+					final int bit = Long.numberOfTrailingZeros(this.remaining);
+					this.remaining &= this.remaining - 1;
+					return CATEGORIES[bit];
+				}
+			};
+		}
+
+		/**
+		 * @see AbstractSet#equals(Object)
+		 */
+		@Override
+		public boolean equals(final Object o) {
+			if (o instanceof CategorySet) {
+				return this.mask == ((CategorySet) o).mask;
+			}
+			return super.equals(o);
+		}
+
+		/**
+		 * @see AbstractSet#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			/*
+			 * Must agree with any other set of the same
+			 * categories.
+			 */
+			return super.hashCode();
+		}
+	}
+}
@@ -0,0 +1,303 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Encodes the results of {@linkplain MorphologicalAnalyzer#analyze(String)
+ * morphological analysis} in a compact binary form, and decodes them back.
+ *
+ * <p>A message consists of (all integers are unsigned LEB128 varints):</p>
+ * <ol>
+ * <li>the format {@linkplain #VERSION version}, a single byte;</li>
+ * <li>the string table: the number of strings, followed by each string
+ * as its UTF-8 length and bytes. Each distinct token, language and stem
+ * is only stored once per message;</li>
+ * <li>the number of tokens, followed by each token as the index of the
+ * token in the string table and the number of results, followed by each
+ * result as:
+ * <ul>
+ * <li>the index of the language in the string table,</li>
+ * <li>the index of the stem in the string table,</li>
+ * <li>a single byte: the ordinal of the part of speech plus one, or
+ * {@code 0} if there's none,</li>
+ * <li>the {@linkplain GrammaticalCategories category mask}.</li>
+ * </ul></li>
+ * </ol>
+ *
+ * <p>The category mask depends on the set of grammatical categories
+ * supported, so both sides should use the same version of this library.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class MorphologicalAnalysisCodec {
+	public static final byte VERSION = 1;
+
+	private static final PartOfSpeech PARTS_OF_SPEECH[] = PartOfSpeech.values();
+
+	private MorphologicalAnalysisCodec() {
+		assert false;
+	}
+
+	/**
+	 * @param results
+	 * @return a buffer of the exact size, ready to be read from.
+	 */
+	public static ByteBuffer encode(@Nonnull final Map<String, ? extends Set<MorphologicalAnalysisResult>> results) {
+		final Message message = new Message(results);
+		final ByteBuffer out = ByteBuffer.allocate(message.size());
+		message.write(out);
+		out.flip();
+		return out;
+	}
+
+	/**
+	 * Encodes the <em>results</em> starting at the current position of
+	 * the buffer, advancing the position.
+	 *
+	 * @param results
+	 * @param out
+	 * @throws BufferOverflowException if the buffer has not enough
+	 *         room for the message; nothing is written then.
+	 */
+	public static void encode(@Nonnull final Map<String, ? extends Set<MorphologicalAnalysisResult>> results,
+			@Nonnull final ByteBuffer out) {
+		final Message message = new Message(results);
+		if (out.remaining() < message.size()) {
+			throw new BufferOverflowException();
+		}
+		message.write(out);
+	}
+
+	/**
+	 * Decodes a single message starting at the current position of the
+	 * buffer, advancing the position past the message.
+	 *
+	 * @param in
+	 * @throws IllegalArgumentException if the message is malformed or has
+	 *         been encoded with an unsupported version of the format.
+	 * @throws BufferUnderflowException if the message is truncated.
+	 */
+	public static Map<String, Set<MorphologicalAnalysisResult>> decode(@Nonnull final ByteBuffer in) {
+		final byte version = in.get();
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported format version: " + version);
+		}
+
+		final int stringCount = readCount(in);
+		final String strings[] = new String[stringCount];
+		for (int i = 0; i < stringCount; i++) {
+			strings[i] = readString(in);
+		}
+
+		final int tokenCount = readCount(in);
+		final Map<String, Set<MorphologicalAnalysisResult>> results = new LinkedHashMap<>();
+		for (int i = 0; i < tokenCount; i++) {
+			final String token = readString(in, strings);
+			final int resultCount = readCount(in);
+			if (resultCount == 0) {
+				results.put(token, Collections.<MorphologicalAnalysisResult>emptySet());
+				continue;
+			}
+
+			final Set<MorphologicalAnalysisResult> tokenResults = new LinkedHashSet<>();
+			for (int j = 0; j < resultCount; j++) {
+				final String language = readString(in, strings);
+				final String stem = readString(in, strings);
+				final int partOfSpeech = in.get() & 0xff;
+				if (partOfSpeech > PARTS_OF_SPEECH.length) {
+					throw new IllegalArgumentException("Unknown part of speech: " + partOfSpeech);
+				}
+				final long categoryMask = readVarLong(in);
+				tokenResults.add(new MorphologicalAnalysisResult(language,
+						stem,
+						partOfSpeech == 0 ? null : PARTS_OF_SPEECH[partOfSpeech - 1],
+						categoryMask));
+			}
+			results.put(token, tokenResults);
+		}
+		return results;
+	}
+
+	/**
+	 * @param value
+	 * @return the number of bytes the <em>value</em> takes as a varint.
+	 */
+	static int varLongSize(final long value) {
+		return value == 0L ? 1 : (Long.SIZE - Long.numberOfLeadingZeros(value) + 6) / 7;
+	}
+
+	/**
+	 * @param value
+	 * @param out
+	 */
+	static void writeVarLong(final long value, final ByteBuffer out) {
+		long remaining = value;
+		while ((remaining & ~0x7fL) != 0L) {
+			out.put((byte) (remaining & 0x7f | 0x80));
+			remaining >>>= 7;
+		}
+		out.put((byte) remaining);
+	}
+
+	/**
+	 * @param in
+	 */
+	static long readVarLong(final ByteBuffer in) {
+		long value = 0L;
+		for (int shift = 0; shift < Long.SIZE; shift += 7) {
+			final byte b = in.get();
+			value |= (long) (b & 0x7f) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+
+	/**
+	 * @param in
+	 */
+	private static int readCount(final ByteBuffer in) {
+		final long count = readVarLong(in);
+		/*
+		 * Each item takes at least a byte, which protects us from
+		 * huge allocations on malformed input.
+		 */
+		if (count < 0L || count > in.remaining()) {
+			throw new IllegalArgumentException("Malformed count: " + count);
+		}
+		return (int) count;
+	}
+
+	/**
+	 * @param in
+	 */
+	private static String readString(final ByteBuffer in) {
+		final int length = readCount(in);
+		if (in.hasArray()) {
+			final String value = new String(in.array(), in.arrayOffset() + in.position(), length, UTF_8);
+			in.position(in.position() + length);
+			return value;
+		}
+		final byte bytes[] = new byte[length];
+		in.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	/**
+	 * @param in
+	 * @param strings the string table.
+	 */
+	private static String readString(final ByteBuffer in, final String strings[]) {
+		final long index = readVarLong(in);
+		if (index < 0L || index >= strings.length) {
+			throw new IllegalArgumentException("String index out of range: " + index);
+		}
+		return strings[(int) index];
+	}
+
+	/**
+	 * A message ready to be written: the string table is built and the
+	 * size is known in advance.
+	 *
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	private static final class Message {
+		private final Map<String, ? extends Set<MorphologicalAnalysisResult>> results;
+
+		private final Map<String, Integer> indices = new LinkedHashMap<>();
+
+		private final List<byte[]> strings = new ArrayList<>();
+
+		private final int size;
+
+		/**
+		 * @param results
+		 */
+		Message(final Map<String, ? extends Set<MorphologicalAnalysisResult>> results) {
+			this.results = results;
+
+			int bodySize = varLongSize(results.size());
+			for (final Entry<String, ? extends Set<MorphologicalAnalysisResult>> entry : results.entrySet()) {
+				final Set<MorphologicalAnalysisResult> tokenResults = entry.getValue();
+				bodySize += this.indexSize(entry.getKey()) + varLongSize(tokenResults.size());
+				for (final MorphologicalAnalysisResult result : tokenResults) {
+					bodySize += this.indexSize(result.getLanguage())
+							+ this.indexSize(result.getStem())
+							+ 1
+							+ varLongSize(result.getCategoryMask());
+				}
+			}
+
+			int stringTableSize = varLongSize(this.strings.size());
+			for (final byte string[] : this.strings) {
+				stringTableSize += varLongSize(string.length) + string.length;
+			}
+			this.size = 1 + stringTableSize + bodySize;
+		}
+
+		/**
+		 * Adds the <em>string</em> to the string table, unless already
+		 * there.
+		 *
+		 * @param string
+		 * @return the size of the index of the <em>string</em>, in bytes.
+		 */
+		private int indexSize(final String string) {
+			Integer index = this.indices.get(string);
+			if (index == null) {
+				index = Integer.valueOf(this.strings.size());
+				this.indices.put(string, index);
+				this.strings.add(string.getBytes(UTF_8));
+			}
+			return varLongSize(index.intValue());
+		}
+
+		int size() {
+			return this.size;
+		}
+
+		/**
+		 * @param out
+		 */
+		void write(final ByteBuffer out) {
+			out.put(VERSION);
+			writeVarLong(this.strings.size(), out);
+			for (final byte string[] : this.strings) {
+				writeVarLong(string.length, out);
+				out.put(string);
+			}
+
+			writeVarLong(this.results.size(), out);
+			for (final Entry<String, ? extends Set<MorphologicalAnalysisResult>> entry : this.results.entrySet()) {
+				final Set<MorphologicalAnalysisResult> tokenResults = entry.getValue();
+				writeVarLong(this.indices.get(entry.getKey()).intValue(), out);
+				writeVarLong(tokenResults.size(), out);
+				for (final MorphologicalAnalysisResult result : tokenResults) {
+					writeVarLong(this.indices.get(result.getLanguage()).intValue(), out);
+					writeVarLong(this.indices.get(result.getStem()).intValue(), out);
+					final PartOfSpeech partOfSpeech = result.getPartOfSpeech();
+					out.put((byte) (partOfSpeech == null ? 0 : partOfSpeech.ordinal() + 1));
+					writeVarLong(result.getCategoryMask(), out);
+				}
+			}
+		}
+	}
+}
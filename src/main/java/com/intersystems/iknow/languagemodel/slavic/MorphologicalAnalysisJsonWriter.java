@@ -0,0 +1,335 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Writes the results of {@linkplain MorphologicalAnalyzer#analyze(String)
+ * morphological analysis} as JSON, straight to an {@link Appendable} (e.g.
+ * a {@link Writer}) or an {@link OutputStream}, with no intermediate tree.
+ *
+ * <p>The output has the same structure as that of {@link
+ * MorphologicalAnalysisResultSerializer}; only quotes, backslashes, control
+ * characters and line/paragraph separators (U+2028, U+2029) are escaped.
+ * Names of parts of speech and grammatical categories are written from
+ * precomputed constant strings.</p>
+ *
+ * <p>Instances are immutable and can be shared between threads.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class MorphologicalAnalysisJsonWriter {
+	private static final String INDENT = "  ";
+
+	private static final char HEX_DIGITS[] = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Quoted names of grammatical categories, indexed by {@linkplain
+	 * GrammaticalCategories bit}.
+	 */
+	private static final String CATEGORY_NAMES[] = new String[Long.SIZE];
+
+	/**
+	 * Quoted names of parts of speech, indexed by ordinal.
+	 */
+	private static final String PART_OF_SPEECH_NAMES[];
+
+	static {
+		for (int bit = 0; bit < Long.SIZE; bit++) {
+			final long mask = 1L << bit;
+			if ((GrammaticalCategories.allCategories() & mask) != 0) {
+				CATEGORY_NAMES[bit] = '"' + GrammaticalCategories.asSet(mask).iterator().next().toString() + '"';
+			}
+		}
+
+		final PartOfSpeech partsOfSpeech[] = PartOfSpeech.values();
+		PART_OF_SPEECH_NAMES = new String[partsOfSpeech.length];
+		for (final PartOfSpeech partOfSpeech : partsOfSpeech) {
+			PART_OF_SPEECH_NAMES[partOfSpeech.ordinal()] = '"' + partOfSpeech.toString() + '"';
+		}
+	}
+
+	private final boolean prettyPrinting;
+
+	/**
+	 * Creates a writer which produces compact output.
+	 */
+	public MorphologicalAnalysisJsonWriter() {
+		this(false);
+	}
+
+	/**
+	 * @param prettyPrinting whether the output should be indented, the way
+	 *        {@code GsonBuilder#setPrettyPrinting()} does.
+	 */
+	public MorphologicalAnalysisJsonWriter(final boolean prettyPrinting) {
+		this.prettyPrinting = prettyPrinting;
+	}
+
+	/**
+	 * @param results
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(@Nonnull final Map<String, ? extends Set<MorphologicalAnalysisResult>> results,
+			@Nonnull final Appendable out)
+	throws IOException {
+		this.write(results, out, 0);
+	}
+
+	/**
+	 * Writes the <em>results</em> as UTF-8. The stream is flushed, but
+	 * not closed.
+	 *
+	 * @param results
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(@Nonnull final Map<String, ? extends Set<MorphologicalAnalysisResult>> results,
+			@Nonnull final OutputStream out)
+	throws IOException {
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8));
+		this.write(results, writer);
+		writer.flush();
+	}
+
+	/**
+	 * Writes the results of {@linkplain
+	 * MorphologicalAnalyzer#analyzeBatch(List) batch analysis} as a JSON
+	 * array, one element per text.
+	 *
+	 * @param batchResults
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeBatch(@Nonnull final List<? extends Map<String, ? extends Set<MorphologicalAnalysisResult>>> batchResults,
+			@Nonnull final Appendable out)
+	throws IOException {
+		out.append('[');
+		final Iterator<? extends Map<String, ? extends Set<MorphologicalAnalysisResult>>> it = batchResults.iterator();
+		while (it.hasNext()) {
+			this.newLine(out, 1);
+			this.write(it.next(), out, 1);
+			if (it.hasNext()) {
+				out.append(',');
+			}
+		}
+		if (!batchResults.isEmpty()) {
+			this.newLine(out, 0);
+		}
+		out.append(']');
+	}
+
+	/**
+	 * Writes the <em>batchResults</em> as UTF-8. The stream is flushed,
+	 * but not closed.
+	 *
+	 * @param batchResults
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeBatch(@Nonnull final List<? extends Map<String, ? extends Set<MorphologicalAnalysisResult>>> batchResults,
+			@Nonnull final OutputStream out)
+	throws IOException {
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8));
+		this.writeBatch(batchResults, writer);
+		writer.flush();
+	}
+
+	/**
+	 * @param results
+	 */
+	public String toJson(@Nonnull final Map<String, ? extends Set<MorphologicalAnalysisResult>> results) {
+		final StringBuilder builder = new StringBuilder();
+		try {
+			this.write(results, builder);
+		} catch (final IOException ioe) {
+			/*
+			 * Never thrown by a StringBuilder.
+			 */
+			throw new AssertionError(ioe);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * @param results
+	 * @param out
+	 * @param depth the nesting level of the <em>results</em>.
+	 * @throws IOException
+	 */
+	private void write(final Map<String, ? extends Set<MorphologicalAnalysisResult>> results,
+			final Appendable out,
+			final int depth)
+	throws IOException {
+		out.append('{');
+		final Iterator<? extends Entry<String, ? extends Set<MorphologicalAnalysisResult>>> entries = results.entrySet().iterator();
+		while (entries.hasNext()) {
+			final Entry<String, ? extends Set<MorphologicalAnalysisResult>> entry = entries.next();
+			this.newLine(out, depth + 1);
+			writeString(entry.getKey(), out);
+			this.nameSeparator(out);
+
+			final Set<MorphologicalAnalysisResult> tokenResults = entry.getValue();
+			out.append('[');
+			final Iterator<MorphologicalAnalysisResult> it = tokenResults.iterator();
+			while (it.hasNext()) {
+				this.newLine(out, depth + 2);
+				this.write(it.next(), out, depth + 2);
+				if (it.hasNext()) {
+					out.append(',');
+				}
+			}
+			if (!tokenResults.isEmpty()) {
+				this.newLine(out, depth + 1);
+			}
+			out.append(']');
+
+			if (entries.hasNext()) {
+				out.append(',');
+			}
+		}
+		if (!results.isEmpty()) {
+			this.newLine(out, depth);
+		}
+		out.append('}');
+	}
+
+	/**
+	 * @param result
+	 * @param out
+	 * @param depth the nesting level of the <em>result</em>.
+	 * @throws IOException
+	 */
+	private void write(final MorphologicalAnalysisResult result,
+			final Appendable out,
+			final int depth)
+	throws IOException {
+		out.append('{');
+		this.newLine(out, depth + 1);
+		out.append("\"language\"");
+		this.nameSeparator(out);
+		writeString(result.getLanguage(), out);
+		out.append(',');
+		this.newLine(out, depth + 1);
+		out.append("\"stem\"");
+		this.nameSeparator(out);
+		writeString(result.getStem(), out);
+
+		final PartOfSpeech partOfSpeech = result.getPartOfSpeech();
+		if (partOfSpeech != null) {
+			out.append(',');
+			this.newLine(out, depth + 1);
+			out.append("\"partOfSpeech\"");
+			this.nameSeparator(out);
+			out.append(PART_OF_SPEECH_NAMES[partOfSpeech.ordinal()]);
+		}
+
+		long categoryMask = result.getCategoryMask();
+		if (categoryMask != 0L) {
+			out.append(',');
+			this.newLine(out, depth + 1);
+			out.append("\"categories\"");
+			this.nameSeparator(out);
+			out.append('[');
+			while (categoryMask != 0L) {
+				this.newLine(out, depth + 2);
+				out.append(CATEGORY_NAMES[Long.numberOfTrailingZeros(categoryMask)]);
+				categoryMask &= categoryMask - 1;
+				if (categoryMask != 0L) {
+					out.append(',');
+				}
+			}
+			this.newLine(out, depth + 1);
+			out.append(']');
+		}
+
+		this.newLine(out, depth);
+		out.append('}');
+	}
+
+	/**
+	 * @param out
+	 * @param depth
+	 * @throws IOException
+	 */
+	private void newLine(final Appendable out, final int depth) throws IOException {
+		if (this.prettyPrinting) {
+			out.append('\n');
+			for (int i = 0; i < depth; i++) {
+				out.append(INDENT);
+			}
+		}
+	}
+
+	/**
+	 * @param out
+	 * @throws IOException
+	 */
+	private void nameSeparator(final Appendable out) throws IOException {
+		out.append(this.prettyPrinting ? ": " : ":");
+	}
+
+	/**
+	 * Writes the <em>value</em> as a quoted JSON string, copying runs of
+	 * characters which need no escaping as a whole.
+	 *
+	 * @param value
+	 * @param out
+	 * @throws IOException
+	 */
+	private static void writeString(final String value, final Appendable out) throws IOException {
+		out.append('"');
+		final int length = value.length();
+		int copied = 0;
+		for (int i = 0; i < length; i++) {
+			final char c = value.charAt(i);
+			if (c >= ' ' && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029') {
+				continue;
+			}
+
+			out.append(value, copied, i);
+			switch (c) {
+			case '"':
+				out.append("\\\"");
+				break;
+			case '\\':
+				out.append("\\\\");
+				break;
+			case '\n':
+				out.append("\\n");
+				break;
+			case '\r':
+				out.append("\\r");
+				break;
+			case '\t':
+				out.append("\\t");
+				break;
+			default:
+				out.append("\\u")
+					.append(HEX_DIGITS[c >>> 12 & 0xf])
+					.append(HEX_DIGITS[c >>> 8 & 0xf])
+					.append(HEX_DIGITS[c >>> 4 & 0xf])
+					.append(HEX_DIGITS[c & 0xf]);
+				break;
+			}
+			copied = i + 1;
+		}
+		out.append(value, copied, length).append('"');
+	}
+}
@@ -4,11 +4,15 @@
 package com.intersystems.iknow.languagemodel.slavic;
 
 import static java.util.Arrays.asList;
-import static java.util.Collections.unmodifiableSet;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
 import java.io.Serializable;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Set;
 
 import javax.annotation.Nonnull;
@@ -18,7 +22,7 @@ import javax.annotation.Nullable;
  * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
  */
 public final class MorphologicalAnalysisResult implements Serializable {
-	private static final long serialVersionUID = 3598477807346909697L;
+	private static final long serialVersionUID = -4010787425698848217L;
 
 	@Nonnull
 	private final String language;
@@ -29,8 +33,15 @@ public final class MorphologicalAnalysisResult implements Serializable {
 	@Nullable
 	private final PartOfSpeech partOfSpeech;
 
-	@Nonnull
-	private final Set<GrammaticalCategory> categories = new HashSet<>();
+	/**
+	 * @see GrammaticalCategories
+	 */
+	private final long categoryMask;
+
+	/**
+	 * Computed lazily; {@code 0} if not computed yet.
+	 */
+	private transient int hash;
 
 	/**
 	 * Certain engines (like <a href = "http://hunspell.sourceforge.net/">Hunspell</a>)
@@ -68,17 +79,34 @@ public final class MorphologicalAnalysisResult implements Serializable {
 			@Nonnull final String stem,
 			@Nullable final PartOfSpeech partOfSpeech,
 			@Nonnull final Collection<GrammaticalCategory> categories) {
+		this(language, stem, partOfSpeech, GrammaticalCategories.mask(categories));
+	}
+
+	/**
+	 * @param language lowercase 2 to 8 language code.
+	 * @param stem
+	 * @param partOfSpeech
+	 * @param categoryMask the {@linkplain GrammaticalCategories#mask(Collection)
+	 *        mask} of grammatical categories.
+	 */
+	public MorphologicalAnalysisResult(@Nonnull final String language,
+			@Nonnull final String stem,
+			@Nullable final PartOfSpeech partOfSpeech,
+			final long categoryMask) {
 		if (language == null || language.length() == 0) {
 			throw new IllegalArgumentException("Language is empty");
 		}
 		if (stem == null || stem.length() == 0) {
 			throw new IllegalArgumentException("Stem is empty");
 		}
+		if ((categoryMask & ~GrammaticalCategories.allCategories()) != 0L) {
+			throw new IllegalArgumentException("Unsupported grammatical categories: 0x" + Long.toHexString(categoryMask));
+		}
 
 		this.language = language;
 		this.stem = stem;
 		this.partOfSpeech = partOfSpeech;
-		this.categories.addAll(categories);
+		this.categoryMask = categoryMask;
 	}
 
 	public String getLanguage() {
@@ -93,8 +121,19 @@ public final class MorphologicalAnalysisResult implements Serializable {
 		return this.partOfSpeech;
 	}
 
+	/**
+	 * @return a read-only view of the {@linkplain #getCategoryMask()
+	 *         category mask}.
+	 */
 	public Set<? extends GrammaticalCategory> getCategories() {
-		return unmodifiableSet(this.categories);
+		return GrammaticalCategories.asSet(this.categoryMask);
+	}
+
+	/**
+	 * @see GrammaticalCategories
+	 */
+	public long getCategoryMask() {
+		return this.categoryMask;
 	}
 
 	/**
@@ -108,8 +147,8 @@ public final class MorphologicalAnalysisResult implements Serializable {
 		if (this.partOfSpeech != null) {
 			builder.append(String.format(" :partOfSpeech %s", this.partOfSpeech));
 		}
-		if (!this.categories.isEmpty()) {
-			builder.append(String.format(" :categories %s", this.categories));
+		if (this.categoryMask != 0L) {
+			builder.append(String.format(" :categories %s", this.getCategories()));
 		}
 		builder.append('}');
 		return builder.toString();
@@ -120,12 +159,16 @@ public final class MorphologicalAnalysisResult implements Serializable {
 	 */
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + this.categories.hashCode();
-		result = prime * result + this.language.hashCode();
-		result = prime * result + (this.partOfSpeech == null ? 0 : this.partOfSpeech.hashCode());
-		result = prime * result + this.stem.hashCode();
+		int result = this.hash;
+		if (result == 0) {
+			final int prime = 31;
+			result = 1;
+			result = prime * result + Long.hashCode(this.categoryMask);
+			result = prime * result + this.language.hashCode();
+			result = prime * result + (this.partOfSpeech == null ? 0 : this.partOfSpeech.hashCode());
+			result = prime * result + this.stem.hashCode();
+			this.hash = result;
+		}
 		return result;
 	}
 
@@ -139,11 +182,132 @@ public final class MorphologicalAnalysisResult implements Serializable {
 		}
 		if (obj instanceof MorphologicalAnalysisResult) {
 			final MorphologicalAnalysisResult that = (MorphologicalAnalysisResult) obj;
-			return this.language.equals(that.language)
-					&& this.stem.equals(that.stem)
+			return this.categoryMask == that.categoryMask
 					&& this.partOfSpeech == that.partOfSpeech
-					&& this.categories.equals(that.categories);
+					&& this.language.equals(that.language)
+					&& this.stem.equals(that.stem);
 		}
 		return false;
 	}
+
+	/**
+	 * Replaces this instance with a compact {@link SerializationProxy}.
+	 */
+	private Object writeReplace() {
+		return new SerializationProxy(this);
+	}
+
+	/**
+	 * @param in
+	 * @throws InvalidObjectException always: instances are only ever
+	 *         serialized via a {@link SerializationProxy}.
+	 */
+	@SuppressWarnings({"static-method", "unused"})
+	private void readObject(final ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("Serialization proxy required");
+	}
+
+	/**
+	 * The serialized form of {@link MorphologicalAnalysisResult}: the
+	 * language and the stem (as objects, so that a stem repeated within
+	 * the same stream is written as a back-reference), a single byte for
+	 * the part of speech and the {@linkplain GrammaticalCategories category
+	 * mask} as a varint.
+	 *
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	private static final class SerializationProxy implements Externalizable {
+		private static final long serialVersionUID = 1855238170262914049L;
+
+		private static final PartOfSpeech PARTS_OF_SPEECH[] = PartOfSpeech.values();
+
+		private String language;
+
+		private String stem;
+
+		@Nullable
+		private PartOfSpeech partOfSpeech;
+
+		private long categoryMask;
+
+		/**
+		 * Required by {@link Externalizable}.
+		 */
+		public SerializationProxy() {
+			// empty
+		}
+
+		/**
+		 * @param result
+		 */
+		SerializationProxy(final MorphologicalAnalysisResult result) {
+			this.language = result.language;
+			this.stem = result.stem;
+			this.partOfSpeech = result.partOfSpeech;
+			this.categoryMask = result.categoryMask;
+		}
+
+		/**
+		 * @see Externalizable#writeExternal(ObjectOutput)
+		 */
+		@Override
+		public void writeExternal(final ObjectOutput out) throws IOException {
+			/*
+			 * Serialization only writes back-references for the very
+			 * same instances: the analyzers share a single instance
+			 * of each stem (and language) across the results of a call.
+			 */
+			out.writeObject(this.language);
+			out.writeObject(this.stem);
+			out.writeByte(this.partOfSpeech == null ? 0 : this.partOfSpeech.ordinal() + 1);
+
+			long remaining = this.categoryMask;
+			while ((remaining & ~0x7fL) != 0L) {
+				out.writeByte((int) (remaining & 0x7f | 0x80));
+				remaining >>>= 7;
+			}
+			out.writeByte((int) remaining);
+		}
+
+		/**
+		 * @see Externalizable#readExternal(ObjectInput)
+		 */
+		@Override
+		public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
+			this.language = (String) in.readObject();
+			this.stem = (String) in.readObject();
+
+			final int partOfSpeech = in.readUnsignedByte();
+			if (partOfSpeech > PARTS_OF_SPEECH.length) {
+				throw new InvalidObjectException("Unknown part of speech: " + partOfSpeech);
+			}
+			this.partOfSpeech = partOfSpeech == 0 ? null : PARTS_OF_SPEECH[partOfSpeech - 1];
+
+			long categoryMask = 0L;
+			for (int shift = 0; ; shift += 7) {
+				if (shift >= Long.SIZE) {
+					throw new InvalidObjectException("Malformed category mask");
+				}
+				final byte b = in.readByte();
+				categoryMask |= (long) (b & 0x7f) << shift;
+				if (b >= 0) {
+					break;
+				}
+			}
+			this.categoryMask = categoryMask;
+		}
+
+		/**
+		 * @throws InvalidObjectException
+		 */
+		private Object readResolve() throws InvalidObjectException {
+			try {
+				return new MorphologicalAnalysisResult(this.language, this.stem, this.partOfSpeech, this.categoryMask);
+			} catch (final IllegalArgumentException iae) {
+				final InvalidObjectException ioe = new InvalidObjectException(iae.getMessage());
+				ioe.initCause(iae);
+				throw ioe;
+			}
+		}
+	}
 }
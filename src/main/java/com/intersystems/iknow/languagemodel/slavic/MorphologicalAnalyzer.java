@@ -3,8 +3,16 @@
  */
 package com.intersystems.iknow.languagemodel.slavic;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -28,4 +36,64 @@ public interface MorphologicalAnalyzer extends Remote {
 	 */
 	Map<String, Set<MorphologicalAnalysisResult>> analyze(final String text)
 	throws AnalysisException, RemoteException;
+
+	/**
+	 * Returns every occurrence of every <em>token</em> (i.&nbsp;e. word)
+	 * of the <em>text</em>, in the order of occurrence, along with its
+	 * position within the <em>text</em>. Occurrences of the same token
+	 * share the set of analyzes {@linkplain #analyze(String) mapped} to
+	 * this token.
+	 *
+	 * <p>The default implementation locates the tokens returned by
+	 * {@link #analyze(String)} within the <em>text</em>; implementations
+	 * which keep track of token positions should override it.</p>
+	 *
+	 * @param text a single word or a word sequence (i.&nbsp;e. a sentence)
+	 * @return token occurrences, ordered by their position within
+	 *         the <em>text</em>.
+	 * @throws AnalysisException
+	 * @throws RemoteException
+	 */
+	default List<TokenSpan> analyzeSpans(final String text)
+	throws AnalysisException, RemoteException {
+		if (text == null || text.length() == 0) {
+			return emptyList();
+		}
+		return TokenSpan.locate(text, this.analyze(text));
+	}
+
+	/**
+	 * Analyzes several texts (e.&nbsp;g. documents or fields) in a single
+	 * call, which saves a round trip per text when the analyzer is remote.
+	 *
+	 * <p>The default implementation analyzes each distinct text once.
+	 * Implementations which analyze words independently of their context
+	 * should override it to analyze each distinct word of the whole batch
+	 * only once.</p>
+	 *
+	 * <p>Results of identical texts, as well as sets of analyzes of the
+	 * same token, may be shared between texts, so they are read-only.</p>
+	 *
+	 * @param texts
+	 * @return for each of the <em>texts</em>, in the same order, the result
+	 *         of {@link #analyze(String)}.
+	 * @throws AnalysisException
+	 * @throws RemoteException
+	 */
+	default List<Map<String, Set<MorphologicalAnalysisResult>>> analyzeBatch(final List<String> texts)
+	throws AnalysisException, RemoteException {
+		final Map<String, Map<String, Set<MorphologicalAnalysisResult>>> distinctResults = new HashMap<>();
+		final List<Map<String, Set<MorphologicalAnalysisResult>>> results = new ArrayList<>(texts.size());
+		for (final String text : texts) {
+			Map<String, Set<MorphologicalAnalysisResult>> textResults = distinctResults.get(text);
+			if (textResults == null) {
+				final Map<String, Set<MorphologicalAnalysisResult>> analyzedText = new LinkedHashMap<>();
+				this.analyze(text).forEach((token, tokenResults) -> analyzedText.put(token, unmodifiableSet(tokenResults)));
+				textResults = unmodifiableMap(analyzedText);
+				distinctResults.put(text, textResults);
+			}
+			results.add(textResults);
+		}
+		return results;
+	}
 }
@@ -3,27 +3,51 @@
  */
 package com.intersystems.iknow.languagemodel.slavic;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.rmi.RemoteException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.intersystems.iknow.languagemodel.slavic.jfr.FlightRecorderEvents;
+import com.intersystems.iknow.languagemodel.slavic.jfr.SerializationEvent;
+import com.intersystems.iknow.languagemodel.slavic.metrics.AnalysisMetrics;
+import com.intersystems.iknow.languagemodel.slavic.metrics.Stage;
 
 /**
  * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ * @see MorphologicalAnalysisJsonWriter
  */
 public final class SerializingMorphologicalAnalyzer {
-	private static final Gson GSON = new GsonBuilder()
-			.registerTypeAdapter(MorphologicalAnalysisResult.class, new MorphologicalAnalysisResultSerializer())
-			.setPrettyPrinting()
-			.create();
-
 	private final MorphologicalAnalyzer delegate;
 
+	private final MorphologicalAnalysisJsonWriter writer;
+
+	private final AnalysisMetrics metrics = new AnalysisMetrics(EnumSet.of(Stage.SERIALIZATION), Collections.<String>emptySet(), EnumSet.noneOf(Stage.class));
+
 	/**
+	 * Creates an analyzer which produces compact JSON.
+	 *
 	 * @param delegate
 	 */
 	public SerializingMorphologicalAnalyzer(final MorphologicalAnalyzer delegate) {
+		this(delegate, false);
+	}
+
+	/**
+	 * @param delegate
+	 * @param prettyPrinting whether the JSON produced should be indented.
+	 */
+	public SerializingMorphologicalAnalyzer(final MorphologicalAnalyzer delegate,
+			final boolean prettyPrinting) {
 		this.delegate = delegate;
+		this.writer = new MorphologicalAnalysisJsonWriter(prettyPrinting);
 	}
 
 	/**
@@ -34,6 +58,101 @@ public final class SerializingMorphologicalAnalyzer {
 	 */
 	public String analyze(final String text)
 	throws AnalysisException, RemoteException {
-		return GSON.toJson(this.delegate.analyze(text));
+		final Map<String, Set<MorphologicalAnalysisResult>> results = this.delegate.analyze(text);
+		final SerializationEvent event = FlightRecorderEvents.AVAILABLE ? SerializationEvent.start() : null;
+		final long start = System.nanoTime();
+		final String json = this.writer.toJson(results);
+		this.metrics.record(Stage.SERIALIZATION, System.nanoTime() - start);
+		if (event != null) {
+			event.record(null, length(text), results);
+		}
+		return json;
+	}
+
+	/**
+	 * Writes the results of the analysis straight to <em>out</em>, e.g.
+	 * a {@link java.io.Writer}.
+	 *
+	 * @param text
+	 * @param out
+	 * @throws AnalysisException
+	 * @throws IOException
+	 * @see MorphologicalAnalyzer#analyze(String)
+	 */
+	public void analyze(final String text, @Nonnull final Appendable out)
+	throws AnalysisException, IOException {
+		final Map<String, Set<MorphologicalAnalysisResult>> results = this.delegate.analyze(text);
+		final SerializationEvent event = FlightRecorderEvents.AVAILABLE ? SerializationEvent.start() : null;
+		final long start = System.nanoTime();
+		this.writer.write(results, out);
+		this.metrics.record(Stage.SERIALIZATION, System.nanoTime() - start);
+		if (event != null) {
+			event.record(null, length(text), results);
+		}
+	}
+
+	/**
+	 * Writes the results of the analysis straight to <em>out</em>, as
+	 * UTF-8. The stream is flushed, but not closed.
+	 *
+	 * @param text
+	 * @param out
+	 * @throws AnalysisException
+	 * @throws IOException
+	 * @see MorphologicalAnalyzer#analyze(String)
+	 */
+	public void analyze(final String text, @Nonnull final OutputStream out)
+	throws AnalysisException, IOException {
+		final Map<String, Set<MorphologicalAnalysisResult>> results = this.delegate.analyze(text);
+		final SerializationEvent event = FlightRecorderEvents.AVAILABLE ? SerializationEvent.start() : null;
+		final long start = System.nanoTime();
+		this.writer.write(results, out);
+		this.metrics.record(Stage.SERIALIZATION, System.nanoTime() - start);
+		if (event != null) {
+			event.record(null, length(text), results);
+		}
+	}
+
+	/**
+	 * Writes the results of the {@linkplain
+	 * MorphologicalAnalyzer#analyzeBatch(List) batch analysis} straight
+	 * to <em>out</em> as a JSON array, as UTF-8. The stream is flushed,
+	 * but not closed.
+	 *
+	 * @param texts
+	 * @param out
+	 * @throws AnalysisException
+	 * @throws IOException
+	 * @see MorphologicalAnalyzer#analyzeBatch(List)
+	 */
+	public void analyzeBatch(@Nonnull final List<String> texts, @Nonnull final OutputStream out)
+	throws AnalysisException, IOException {
+		final List<Map<String, Set<MorphologicalAnalysisResult>>> results = this.delegate.analyzeBatch(texts);
+		final SerializationEvent event = FlightRecorderEvents.AVAILABLE ? SerializationEvent.start() : null;
+		final long start = System.nanoTime();
+		this.writer.writeBatch(results, out);
+		this.metrics.record(Stage.SERIALIZATION, System.nanoTime() - start);
+		if (event != null && event.isEnabled()) {
+			int inputLength = 0;
+			for (final String text : texts) {
+				inputLength += length(text);
+			}
+			event.record(null, inputLength, results);
+		}
+	}
+
+	/**
+	 * @param text
+	 */
+	private static int length(@Nullable final String text) {
+		return text == null ? 0 : text.length();
+	}
+
+	/**
+	 * @return the latencies of serialization, which include writing
+	 *         to the output supplied, and can also be published over JMX.
+	 */
+	public AnalysisMetrics getMetrics() {
+		return this.metrics;
 	}
 }
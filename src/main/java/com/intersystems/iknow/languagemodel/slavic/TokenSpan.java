@@ -0,0 +1,125 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic;
+
+import static java.util.Collections.unmodifiableSet;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A single occurrence of a <em>token</em> (i.&nbsp;e. a word) in the text
+ * analyzed, along with the analyzes of the token.
+ *
+ * <p>All occurrences of the same token within a text share the same
+ * set of analyzes, which is also the one {@linkplain
+ * MorphologicalAnalyzer#analyze(String) mapped} to the token.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ * @see MorphologicalAnalyzer#analyzeSpans(String)
+ */
+public final class TokenSpan implements Serializable {
+	private static final long serialVersionUID = -2166934418318346651L;
+
+	@Nonnull
+	private final String token;
+
+	private final int start;
+
+	private final int end;
+
+	@Nonnull
+	private final Set<MorphologicalAnalysisResult> results;
+
+	/**
+	 * @param token
+	 * @param start the index of the first character of the token
+	 *        within the text.
+	 * @param end the index following the last character of the token
+	 *        within the text.
+	 * @param results the analyzes of the token, possibly empty.
+	 */
+	public TokenSpan(@Nonnull final String token,
+			final int start,
+			final int end,
+			@Nonnull final Set<MorphologicalAnalysisResult> results) {
+		if (start < 0 || end < start) {
+			throw new IllegalArgumentException(String.format("Illegal span: [%d, %d)", Integer.valueOf(start), Integer.valueOf(end)));
+		}
+
+		this.token = token;
+		this.start = start;
+		this.end = end;
+		this.results = results;
+	}
+
+	public String getToken() {
+		return this.token;
+	}
+
+	public int getStart() {
+		return this.start;
+	}
+
+	public int getEnd() {
+		return this.end;
+	}
+
+	public Set<MorphologicalAnalysisResult> getResults() {
+		return unmodifiableSet(this.results);
+	}
+
+	/**
+	 * Finds all the occurrences of the <em>tokens</em> in the <em>text</em>
+	 * which are not part of a longer word. Used by analyzers which don't
+	 * keep track of token positions.
+	 *
+	 * @param text
+	 * @param tokens
+	 */
+	static List<TokenSpan> locate(@Nonnull final String text,
+			@Nonnull final Map<String, Set<MorphologicalAnalysisResult>> tokens) {
+		final List<TokenSpan> spans = new ArrayList<>();
+		tokens.forEach((token, results) -> {
+			if (token.isEmpty()) {
+				return;
+			}
+			for (int start = text.indexOf(token); start != -1; start = text.indexOf(token, start + 1)) {
+				final int end = start + token.length();
+				if ((start == 0 || !isWordCharacter(text.charAt(start - 1)))
+						&& (end == text.length() || !isWordCharacter(text.charAt(end)))) {
+					spans.add(new TokenSpan(token, start, end, results));
+				}
+			}
+		});
+		spans.sort((left, right) -> left.start == right.start
+				? Integer.compare(left.end, right.end)
+				: Integer.compare(left.start, right.start));
+		return spans;
+	}
+
+	/**
+	 * @param c
+	 */
+	private static boolean isWordCharacter(final char c) {
+		return Character.isLetterOrDigit(c) || c == '-' || c == '\'';
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("{:token %s :start %d :end %d :results %s}",
+				this.token,
+				Integer.valueOf(this.start),
+				Integer.valueOf(this.end),
+				this.results);
+	}
+}
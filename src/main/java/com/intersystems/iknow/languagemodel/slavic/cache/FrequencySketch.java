@@ -0,0 +1,100 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.cache;
+
+/**
+ * A <a href = "https://en.wikipedia.org/wiki/Count%E2%80%93min_sketch">count-min
+ * sketch</a> of 4-bit saturating counters used to estimate how often
+ * a word form has been requested recently. Counters are halved once
+ * the number of recorded events reaches the sample size, so that
+ * word forms which used to be popular eventually age out.
+ *
+ * <p>Not thread-safe; callers are expected to synchronize.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ * @see <a href = "https://arxiv.org/abs/1512.00727">TinyLFU: A Highly Efficient Cache Admission Policy</a>
+ */
+final class FrequencySketch {
+	private static final int DEPTH = 4;
+
+	private static final int MAXIMUM_FREQUENCY = 15;
+
+	private static final int SEEDS[] = {
+		0x97cb3127,
+		0xb8c2e7c1,
+		0x7f4a7c15,
+		0x9e3779b9,
+	};
+
+	private final byte table[];
+
+	private final int mask;
+
+	private final int sampleSize;
+
+	private int size;
+
+	/**
+	 * @param expectedEntries the expected number of entries in the cache.
+	 */
+	FrequencySketch(final int expectedEntries) {
+		final int width = ceilingPowerOfTwo(Math.max(expectedEntries, 16));
+		this.table = new byte[width];
+		this.mask = width - 1;
+		this.sampleSize = 10 * width;
+	}
+
+	/**
+	 * @param hashCode
+	 */
+	int frequency(final int hashCode) {
+		int frequency = MAXIMUM_FREQUENCY;
+		for (int i = 0; i < DEPTH; i++) {
+			frequency = Math.min(frequency, this.table[this.indexOf(hashCode, i)]);
+		}
+		return frequency;
+	}
+
+	/**
+	 * @param hashCode
+	 */
+	void increment(final int hashCode) {
+		boolean added = false;
+		for (int i = 0; i < DEPTH; i++) {
+			final int index = this.indexOf(hashCode, i);
+			if (this.table[index] < MAXIMUM_FREQUENCY) {
+				this.table[index]++;
+				added = true;
+			}
+		}
+
+		if (added && ++this.size == this.sampleSize) {
+			this.reset();
+		}
+	}
+
+	private void reset() {
+		for (int i = 0; i < this.table.length; i++) {
+			this.table[i] >>>= 1;
+		}
+		this.size >>>= 1;
+	}
+
+	/**
+	 * @param hashCode
+	 * @param depth
+	 */
+	private int indexOf(final int hashCode, final int depth) {
+		int hash = (hashCode ^ SEEDS[depth]) * SEEDS[depth];
+		hash ^= hash >>> 16;
+		return hash & this.mask;
+	}
+
+	/**
+	 * @param value
+	 */
+	private static int ceilingPowerOfTwo(final int value) {
+		return value >= 1 << 30 ? 1 << 30 : Integer.highestOneBit(value - 1) << 1;
+	}
+}
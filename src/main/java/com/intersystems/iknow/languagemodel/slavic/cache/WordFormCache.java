@@ -0,0 +1,235 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A bounded cache of analysis results keyed by word form.
+ *
+ * <p>The cache is bounded by the total <em>weight</em> of its entries
+ * (an estimate of their retained heap size in bytes) rather than by the
+ * number of entries. Once the cache is full, a new word form only
+ * replaces the least recently used one if it has been requested more
+ * often recently (the <em>TinyLFU</em> admission policy). This keeps
+ * the few tens of thousands of frequent word forms resident while
+ * one-off tokens (typos, numbers, proper names) pass through without
+ * flushing them out.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ * @param <V> the type of cached values.
+ */
+public final class WordFormCache<V> {
+	/**
+	 * Approximate heap size of a {@link LinkedHashMap} entry, in bytes.
+	 */
+	private static final int ENTRY_OVERHEAD = 64;
+
+	/**
+	 * Approximate heap size of a {@link String} key, excluding its
+	 * characters, in bytes.
+	 */
+	private static final int KEY_OVERHEAD = 40;
+
+	private final long maximumWeight;
+
+	@Nonnull
+	private final ToIntFunction<? super V> weigher;
+
+	private final Map<String, WeightedValue<V>> entries = new LinkedHashMap<>(16, .75f, true);
+
+	@Nonnull
+	private final FrequencySketch sketch;
+
+	private long weight;
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+	private final LongAdder rejectionCount = new LongAdder();
+
+	/**
+	 * @param maximumWeight the maximum total weight (in bytes) of
+	 *        the entries.
+	 * @param weigher estimates the heap size (in bytes) of a value.
+	 */
+	public WordFormCache(final long maximumWeight,
+			@Nonnull final ToIntFunction<? super V> weigher) {
+		if (maximumWeight <= 0) {
+			throw new IllegalArgumentException("Maximum weight should be positive: " + maximumWeight);
+		}
+
+		this.maximumWeight = maximumWeight;
+		this.weigher = weigher;
+		this.sketch = new FrequencySketch((int) Math.min(maximumWeight / (ENTRY_OVERHEAD + KEY_OVERHEAD), 1 << 24));
+	}
+
+	/**
+	 * @param wordForm
+	 * @return the value cached for the <em>wordForm</em>, or {@code null}
+	 *         if there's none.
+	 */
+	@Nullable
+	public V get(@Nonnull final String wordForm) {
+		final WeightedValue<V> entry;
+		synchronized (this) {
+			this.sketch.increment(wordForm.hashCode());
+			entry = this.entries.get(wordForm);
+		}
+		if (entry == null) {
+			this.missCount.increment();
+			return null;
+		}
+		this.hitCount.increment();
+		return entry.value;
+	}
+
+	/**
+	 * Offers the <em>value</em> for caching. The value may be rejected
+	 * if it's too heavy, or if the <em>wordForm</em> has been requested
+	 * less often recently than the entries which would have to be evicted
+	 * to make room for it.
+	 *
+	 * @param wordForm
+	 * @param value
+	 */
+	public void put(@Nonnull final String wordForm, @Nonnull final V value) {
+		final int valueWeight = ENTRY_OVERHEAD + KEY_OVERHEAD + 2 * wordForm.length() + this.weigher.applyAsInt(value);
+		if (valueWeight > this.maximumWeight) {
+			this.rejectionCount.increment();
+			return;
+		}
+
+		synchronized (this) {
+			final WeightedValue<V> previous = this.entries.get(wordForm);
+			final long available = this.maximumWeight - this.weight + (previous == null ? 0 : previous.weight);
+
+			/*
+			 * Pick the victims first, and only evict them once the candidate
+			 * has been admitted, so that a rejection leaves the cache intact.
+			 * The previous value (if any) has just become the most recently
+			 * used entry, so it's never picked.
+			 */
+			int victimCount = 0;
+			if (valueWeight > available) {
+				final int candidateFrequency = this.sketch.frequency(wordForm.hashCode());
+				long freed = 0;
+				for (final Entry<String, WeightedValue<V>> victim : this.entries.entrySet()) {
+					if (candidateFrequency <= this.sketch.frequency(victim.getKey().hashCode())) {
+						this.rejectionCount.increment();
+						return;
+					}
+					freed += victim.getValue().weight;
+					victimCount++;
+					if (valueWeight <= available + freed) {
+						break;
+					}
+				}
+			}
+
+			final Iterator<WeightedValue<V>> victims = this.entries.values().iterator();
+			for (int i = 0; i < victimCount; i++) {
+				this.weight -= victims.next().weight;
+				victims.remove();
+			}
+			this.evictionCount.add(victimCount);
+
+			if (previous != null) {
+				this.weight -= previous.weight;
+			}
+			this.entries.put(wordForm, new WeightedValue<>(value, valueWeight));
+			this.weight += valueWeight;
+		}
+	}
+
+	public synchronized void clear() {
+		this.entries.clear();
+		this.weight = 0;
+	}
+
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * @return the current total weight (in bytes) of the entries.
+	 */
+	public synchronized long weight() {
+		return this.weight;
+	}
+
+	public long getMaximumWeight() {
+		return this.maximumWeight;
+	}
+
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+
+	/**
+	 * @return the number of entries evicted to make room for more
+	 *         frequently requested ones.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount.sum();
+	}
+
+	/**
+	 * @return the number of values which haven't been admitted into
+	 *         the cache.
+	 */
+	public long getRejectionCount() {
+		return this.rejectionCount.sum();
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("{:size %d :weight %d :maximumWeight %d :hits %d :misses %d :evictions %d :rejections %d}",
+				Integer.valueOf(this.size()),
+				Long.valueOf(this.weight()),
+				Long.valueOf(this.maximumWeight),
+				Long.valueOf(this.getHitCount()),
+				Long.valueOf(this.getMissCount()),
+				Long.valueOf(this.getEvictionCount()),
+				Long.valueOf(this.getRejectionCount()));
+	}
+
+	/**
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 * @param <V>
+	 */
+	private static final class WeightedValue<V> {
+		@Nonnull
+		final V value;
+
+		final int weight;
+
+		/**
+		 * @param value
+		 * @param weight
+		 */
+		WeightedValue(@Nonnull final V value, final int weight) {
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.impl;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+
+import com.intersystems.iknow.languagemodel.slavic.AnalysisException;
+
+/**
+ * A fixed-size pool of engine instances which are not safe for concurrent
+ * use. Each instance is {@linkplain #borrow() borrowed} by a single thread
+ * and then {@linkplain #release(Object) released} back to the pool.
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ * @param <E> the type of engine instances.
+ */
+public final class EnginePool<E> {
+	/**
+	 * Wait for a free engine instance forever.
+	 */
+	public static final long NO_TIMEOUT = Long.MAX_VALUE;
+
+	private final int size;
+
+	private final long borrowTimeoutNanos;
+
+	@Nonnull
+	private final BlockingQueue<E> idleEngines;
+
+	private final AtomicInteger activeCount = new AtomicInteger();
+
+	private final LongAdder borrowCount = new LongAdder();
+
+	private final LongAdder timeoutCount = new LongAdder();
+
+	private final LongAdder totalWaitNanos = new LongAdder();
+
+	private final AtomicLong maximumWaitNanos = new AtomicLong();
+
+	/**
+	 * @param engines the engine instances to pool, at least one.
+	 * @param borrowTimeout how long to wait for a free engine instance.
+	 * @param unit the time unit of the <em>borrowTimeout</em>.
+	 */
+	public EnginePool(@Nonnull final Collection<E> engines,
+			final long borrowTimeout,
+			@Nonnull final TimeUnit unit) {
+		if (engines.isEmpty()) {
+			throw new IllegalArgumentException("Engine pool is empty");
+		}
+		if (borrowTimeout < 0) {
+			throw new IllegalArgumentException("Borrow timeout is negative: " + borrowTimeout);
+		}
+
+		this.size = engines.size();
+		this.borrowTimeoutNanos = borrowTimeout == NO_TIMEOUT ? NO_TIMEOUT : unit.toNanos(borrowTimeout);
+		this.idleEngines = new ArrayBlockingQueue<>(this.size, false, engines);
+	}
+
+	/**
+	 * Borrows an engine instance, waiting for one to become available
+	 * if necessary. The instance should be {@linkplain #release(Object)
+	 * released} once no longer used, typically in a {@code finally}
+	 * block.
+	 *
+	 * @throws AnalysisException if no engine instance becomes available
+	 *         within the borrow timeout, or if the current thread has been
+	 *         interrupted while waiting.
+	 */
+	@Nonnull
+	public E borrow() throws AnalysisException {
+		final long start = System.nanoTime();
+		E engine = this.idleEngines.poll();
+		if (engine == null) {
+			try {
+				engine = this.idleEngines.poll(this.borrowTimeoutNanos, NANOSECONDS);
+			} catch (final InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new AnalysisException(ie);
+			}
+			if (engine == null) {
+				this.timeoutCount.increment();
+				throw new AnalysisException(new TimeoutException(String.format("No engine available within %d ms; pool size: %d",
+						Long.valueOf(NANOSECONDS.toMillis(this.borrowTimeoutNanos)),
+						Integer.valueOf(this.size))));
+			}
+		}
+
+		final long waitNanos = System.nanoTime() - start;
+		this.totalWaitNanos.add(waitNanos);
+		this.maximumWaitNanos.accumulateAndGet(waitNanos, Math::max);
+		this.borrowCount.increment();
+		this.activeCount.incrementAndGet();
+		return engine;
+	}
+
+	/**
+	 * @param engine the engine instance previously {@linkplain #borrow()
+	 *        borrowed} from this pool.
+	 */
+	public void release(@Nonnull final E engine) {
+		this.activeCount.decrementAndGet();
+		this.idleEngines.add(engine);
+	}
+
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * @return the number of engine instances currently borrowed.
+	 */
+	public int getActiveCount() {
+		return this.activeCount.get();
+	}
+
+	/**
+	 * @return the fraction of engine instances currently borrowed,
+	 *         from 0 to 1.
+	 */
+	public double getUtilization() {
+		return (double) this.getActiveCount() / this.size;
+	}
+
+	public long getBorrowCount() {
+		return this.borrowCount.sum();
+	}
+
+	/**
+	 * @return the number of borrow attempts which have timed out.
+	 */
+	public long getTimeoutCount() {
+		return this.timeoutCount.sum();
+	}
+
+	/**
+	 * @return the total time spent waiting for a free engine instance,
+	 *         in nanoseconds.
+	 */
+	public long getTotalWaitNanos() {
+		return this.totalWaitNanos.sum();
+	}
+
+	/**
+	 * @return the longest time spent waiting for a free engine instance,
+	 *         in nanoseconds.
+	 */
+	public long getMaximumWaitNanos() {
+		return this.maximumWaitNanos.get();
+	}
+
+	/**
+	 * @return the average time spent waiting for a free engine instance,
+	 *         in nanoseconds.
+	 */
+	public double getAverageWaitNanos() {
+		final long borrows = this.getBorrowCount();
+		return borrows == 0 ? 0 : (double) this.getTotalWaitNanos() / borrows;
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("{:size %d :active %d :borrows %d :timeouts %d :averageWaitNanos %.0f :maximumWaitNanos %d}",
+				Integer.valueOf(this.size),
+				Integer.valueOf(this.getActiveCount()),
+				Long.valueOf(this.getBorrowCount()),
+				Long.valueOf(this.getTimeoutCount()),
+				Double.valueOf(this.getAverageWaitNanos()),
+				Long.valueOf(this.getMaximumWaitNanos()));
+	}
+}
@@ -6,31 +6,78 @@ package com.intersystems.iknow.languagemodel.slavic.impl;
 import static java.lang.System.getProperty;
 import static java.util.Arrays.asList;
 import static java.util.Arrays.stream;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.stream.Collectors.toCollection;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
-import com.atlascopco.hunspell.Hunspell;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.intersystems.iknow.languagemodel.slavic.AnalysisException;
 import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalysisResult;
 import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.TokenSpan;
+import com.intersystems.iknow.languagemodel.slavic.impl.hunspell.BridJStemmer;
+import com.intersystems.iknow.languagemodel.slavic.impl.hunspell.Stemmer;
+import com.intersystems.iknow.languagemodel.slavic.jfr.AnalysisEvent;
+import com.intersystems.iknow.languagemodel.slavic.jfr.FlightRecorderEvents;
+import com.intersystems.iknow.languagemodel.slavic.metrics.AnalysisMetrics;
+import com.intersystems.iknow.languagemodel.slavic.metrics.LanguageMetrics;
+import com.intersystems.iknow.languagemodel.slavic.metrics.Stage;
+import com.intersystems.iknow.languagemodel.slavic.text.LanguageRouter;
+import com.intersystems.iknow.languagemodel.slavic.text.TokenOccurrences;
+import com.intersystems.iknow.languagemodel.slavic.text.WordTokenizer;
 
 /**
  * Morphological analyzer which uses the <a href =
  * "http://hunspell.sourceforge.net">Hunspell</a> engine.
  *
+ * <p>Native Hunspell handles are not reentrant, so the analyzer never lets
+ * two threads use the same handle at once; how the handles are shared is
+ * up to its {@linkplain Concurrency concurrency} mode. The handles hold
+ * native memory until the analyzer is {@linkplain #close() closed}.</p>
+ *
  * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
  */
-public final class HunspellAnalyzer implements MorphologicalAnalyzer {
+public final class HunspellAnalyzer implements MorphologicalAnalyzer, AutoCloseable {
+	/**
+	 * The engine name of the {@linkplain AnalysisEvent analysis events}.
+	 */
+	private static final String ENGINE_NAME = "hunspell";
+
 	private static final String POSIX_SEARCH_PATHS[] = {
 		"/usr/share/hunspell",
 		"/usr/local/share/hunspell",
@@ -57,22 +104,59 @@ public final class HunspellAnalyzer implements MorphologicalAnalyzer {
 	 */
 	private static final String WORD_DELIMITERS = "!\"()*,./:;<>?[]^`{} \t\r\n";
 
-	private static final Pattern WORD_DELIMITERS_PATTERN;
+	private static final WordTokenizer TOKENIZER = new WordTokenizer(WORD_DELIMITERS);
+
+	/**
+	 * The languages supported, along with the basenames of their
+	 * dictionaries.
+	 */
+	private static final Map<String, String> BASENAMES;
 
 	static {
-		final StringBuilder regex = new StringBuilder();
-		regex.append('[');
-		WORD_DELIMITERS.chars().forEach(c -> regex.append('\\').append((char) c));
-		regex.append("]+");
-		WORD_DELIMITERS_PATTERN = Pattern.compile(regex.toString());
+		final Map<String, String> basenames = new LinkedHashMap<>();
+		basenames.put("ru", "ru_RU");
+		basenames.put("uk", "uk_UA");
+		BASENAMES = unmodifiableMap(basenames);
 	}
 
-	private final Map<String, Set<Hunspell>> analyzers = new LinkedHashMap<>();
+	/**
+	 * The languages supported, in the order their dictionaries are
+	 * consulted in.
+	 */
+	public static final List<String> SUPPORTED_LANGUAGES = unmodifiableList(new ArrayList<>(BASENAMES.keySet()));
+
+	private final Map<String, Dictionaries> analyzers = new LinkedHashMap<>();
+
+	/**
+	 * Paths of the dictionaries not loaded, mapped to the paths of
+	 * identical dictionaries loaded instead.
+	 */
+	private final Map<String, String> collapsedDictionaries = new LinkedHashMap<>();
+
+	@Nonnull
+	private final AnalysisMetrics metrics;
+
+	private final LanguageRouter router = new LanguageRouter(LanguageRouter.SLAVIC_UNIQUE_LETTERS);
+
+	private volatile boolean routingEnabled;
 
+	/**
+	 * Creates an analyzer with the dictionaries of all the languages
+	 * {@linkplain #SUPPORTED_LANGUAGES supported} loaded up front; use a
+	 * {@linkplain #builder() builder} to choose the languages, or to load
+	 * them on first use.
+	 */
 	public HunspellAnalyzer() {
-		final Set<String> basenames = new LinkedHashSet<>(asList(
-				"ru_RU",
-				"uk_UA"));
+		this(builder().eager(true));
+	}
+
+	/**
+	 * @param builder
+	 */
+	HunspellAnalyzer(@Nonnull final Builder builder) {
+		if (builder.languages.isEmpty()) {
+			throw new IllegalArgumentException("No languages enabled");
+		}
 
 		final Set<String> searchPaths = new LinkedHashSet<>();
 		stream(POSIX_SEARCH_PATHS).map(File::new).filter(File::exists).map(file -> {
@@ -96,12 +180,14 @@ public final class HunspellAnalyzer implements MorphologicalAnalyzer {
 
 		final Map<String, Set<String>> dictionaries = new LinkedHashMap<>();
 
-		basenames.forEach(basename -> {
+		BASENAMES.forEach((language, basename) -> {
+			if (!builder.languages.contains(language)) {
+				return;
+			}
 			searchPaths.stream().map(searchPath -> new File(searchPath, basename + DICTIONARY_SUFFIX)).forEach(dictionary -> {
 				try {
 					final File affix = new File(dictionary.getCanonicalFile().getParent(), basename + AFFIX_SUFFIX);
 					if (dictionary.exists() && affix.exists()) {
-						final String language = basename.substring(0, 2);
 						Set<String> dictionaryGroup = dictionaries.get(language);
 						if (dictionaryGroup == null) {
 							dictionaryGroup = new LinkedHashSet<>();
@@ -117,58 +203,894 @@ public final class HunspellAnalyzer implements MorphologicalAnalyzer {
 		});
 
 		dictionaries.forEach((language, dictionaryGroup) -> {
-			final Set<Hunspell> engineGroup = new LinkedHashSet<>();
-			dictionaryGroup.stream().map(dictionary -> new Hunspell(dictionary + DICTIONARY_SUFFIX, dictionary + AFFIX_SUFFIX)).collect(toCollection(() -> engineGroup));
-			this.analyzers.put(language, engineGroup);
+			try {
+				this.analyzers.put(language, new Dictionaries(deduplicate(dictionaryGroup, this.collapsedDictionaries), builder));
+			} catch (final IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			}
 		});
+		this.metrics = new AnalysisMetrics(EnumSet.of(Stage.TOKENIZATION), this.analyzers.keySet(), EnumSet.of(Stage.TAGGING, Stage.RESULT_CONSTRUCTION));
+
+		if (builder.eager) {
+			this.load();
+		}
+	}
+
+	/**
+	 * The same dictionary is often installed in several search paths,
+	 * either copied or symlinked (symlinks are already resolved into
+	 * canonical paths). Stemming against each copy would only yield the
+	 * same readings again, so identical dictionaries are only loaded once.
+	 * Only the dictionaries of the same size are compared by content.
+	 *
+	 * @param paths dictionary paths of a single language, with no suffix.
+	 * @param collapsedPaths receives the paths of the dictionaries skipped,
+	 *        mapped to the paths of the identical ones kept.
+	 * @return the paths of distinct dictionaries, in the original order.
+	 * @throws IOException
+	 */
+	static Set<String> deduplicate(@Nonnull final Set<String> paths, @Nonnull final Map<String, String> collapsedPaths)
+	throws IOException {
+		final Map<List<Long>, List<String>> pathsBySize = new LinkedHashMap<>();
+		for (final String path : paths) {
+			final List<Long> size = asList(Long.valueOf(new File(path + DICTIONARY_SUFFIX).length()), Long.valueOf(new File(path + AFFIX_SUFFIX).length()));
+			pathsBySize.computeIfAbsent(size, key -> new ArrayList<>()).add(path);
+		}
+
+		final Set<String> distinctPaths = new LinkedHashSet<>();
+		for (final List<String> sameSizePaths : pathsBySize.values()) {
+			if (sameSizePaths.size() == 1) {
+				distinctPaths.addAll(sameSizePaths);
+				continue;
+			}
+
+			final Map<String, String> pathsByFingerprint = new HashMap<>();
+			for (final String path : sameSizePaths) {
+				final String keptPath = pathsByFingerprint.putIfAbsent(fingerprint(path), path);
+				if (keptPath == null) {
+					distinctPaths.add(path);
+				} else {
+					collapsedPaths.put(path, keptPath);
+				}
+			}
+		}
+
+		/*
+		 * Restore the search path order.
+		 */
+		final Set<String> orderedPaths = new LinkedHashSet<>(paths);
+		orderedPaths.retainAll(distinctPaths);
+		return orderedPaths;
 	}
 
 	/**
+	 * @param path a dictionary path, with no suffix.
+	 * @return the SHA-256 digest of the affix and the dictionary files.
+	 * @throws IOException
+	 */
+	private static String fingerprint(@Nonnull final String path) throws IOException {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException nsae) {
+			/*
+			 * Every Java platform is required to support SHA-256.
+			 */
+			throw new IllegalStateException(nsae);
+		}
+
+		final byte buffer[] = new byte[8192];
+		for (final String suffix : new String[] {AFFIX_SUFFIX, DICTIONARY_SUFFIX}) {
+			try (final InputStream in = new FileInputStream(path + suffix)) {
+				int length;
+				while ((length = in.read(buffer)) != -1) {
+					digest.update(buffer, 0, length);
+				}
+			}
+		}
+		return new BigInteger(1, digest.digest()).toString(16);
+	}
+
+	/**
+	 * @return a builder which creates an analyzer with all the languages
+	 *         {@linkplain #SUPPORTED_LANGUAGES supported}, their dictionaries
+	 *         loaded on first use.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Loads the dictionaries of all the languages which haven't been
+	 * loaded yet, one language per thread.
+	 */
+	private void load() {
+		final List<CompletableFuture<Void>> loads = new ArrayList<>(this.analyzers.size());
+		this.analyzers.values().forEach(dictionaries -> loads.add(CompletableFuture.runAsync(dictionaries::load)));
+		for (final CompletableFuture<Void> load : loads) {
+			try {
+				load.join();
+			} catch (final CompletionException ce) {
+				final Throwable cause = ce.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw ce;
+			}
+		}
+	}
+
+	/**
+	 * @throws AnalysisException if, in {@link Concurrency#POOLED} mode, no
+	 *         engine instance becomes available within the {@linkplain
+	 *         Builder#borrowTimeout(long, TimeUnit) borrow timeout}.
 	 * @see MorphologicalAnalyzer#analyze(String)
 	 */
 	@Override
-	public Map<String, Set<MorphologicalAnalysisResult>> analyze(final String text) {
+	public Map<String, Set<MorphologicalAnalysisResult>> analyze(final String text)
+	throws AnalysisException {
 		if (text == null || text.length() == 0) {
 			return emptyMap();
 		}
 
+		/*
+		 * Tokenize once, rather than once per engine.
+		 */
+		final long start = System.nanoTime();
+		final Set<String> distinctWords = TOKENIZER.distinctWords(text);
+		this.metrics.record(Stage.TOKENIZATION, System.nanoTime() - start);
+		return this.analyze(distinctWords);
+	}
+
+	/**
+	 * @throws AnalysisException if, in {@link Concurrency#POOLED} mode, no
+	 *         engine instance becomes available within the {@linkplain
+	 *         Builder#borrowTimeout(long, TimeUnit) borrow timeout}.
+	 * @see MorphologicalAnalyzer#analyzeSpans(String)
+	 */
+	@Override
+	public List<TokenSpan> analyzeSpans(final String text)
+	throws AnalysisException {
+		if (text == null || text.length() == 0) {
+			return emptyList();
+		}
+
+		final long start = System.nanoTime();
+		final TokenOccurrences occurrences = new TokenOccurrences();
+		TOKENIZER.tokenize(text, occurrences);
+		this.metrics.record(Stage.TOKENIZATION, System.nanoTime() - start);
+		return occurrences.toSpans(this.analyze(occurrences.distinctTokens()));
+	}
+
+	/**
+	 * Analyzes each distinct token of the whole batch only once. The
+	 * maps and sets returned are read-only, since the analyzes of a
+	 * token are shared by all the texts it occurs in.
+	 *
+	 * @throws AnalysisException if, in {@link Concurrency#POOLED} mode, no
+	 *         engine instance becomes available within the {@linkplain
+	 *         Builder#borrowTimeout(long, TimeUnit) borrow timeout}.
+	 * @see MorphologicalAnalyzer#analyzeBatch(List)
+	 */
+	@Override
+	public List<Map<String, Set<MorphologicalAnalysisResult>>> analyzeBatch(final List<String> texts)
+	throws AnalysisException {
+		final long start = System.nanoTime();
+		final List<Set<String>> textTokens = new ArrayList<>(texts.size());
+		final Set<String> tokens = new LinkedHashSet<>();
+		for (final String text : texts) {
+			final Set<String> distinctWords = text == null || text.length() == 0
+					? Collections.<String>emptySet()
+					: TOKENIZER.distinctWords(text);
+			textTokens.add(distinctWords);
+			tokens.addAll(distinctWords);
+		}
+		this.metrics.record(Stage.TOKENIZATION, System.nanoTime() - start);
+
+		final Map<String, Set<MorphologicalAnalysisResult>> results = this.analyze(tokens);
+		results.replaceAll((token, tokenResults) -> unmodifiableSet(tokenResults));
+
+		final List<Map<String, Set<MorphologicalAnalysisResult>>> batchResults = new ArrayList<>(texts.size());
+		for (final Set<String> distinctWords : textTokens) {
+			final Map<String, Set<MorphologicalAnalysisResult>> textResults = new LinkedHashMap<>();
+			for (final String token : distinctWords) {
+				final Set<MorphologicalAnalysisResult> tokenResults = results.get(token);
+				if (tokenResults != null) {
+					textResults.put(token, tokenResults);
+				}
+			}
+			batchResults.add(unmodifiableMap(textResults));
+		}
+		return batchResults;
+	}
+
+	/**
+	 * @param tokens distinct tokens, in the order of their first occurrence.
+	 * @throws AnalysisException if no engine instance becomes available
+	 *         within the borrow timeout.
+	 */
+	private Map<String, Set<MorphologicalAnalysisResult>> analyze(final Set<String> tokens)
+	throws AnalysisException {
 		final Map<String, Set<MorphologicalAnalysisResult>> results = new LinkedHashMap<>();
+		if (this.analyzers.isEmpty()) {
+			/*
+			 * No dictionary to consult: report no tokens at all,
+			 * rather than every token as unknown.
+			 */
+			return results;
+		}
 
-		this.analyzers.forEach((language, analyzerGroup) -> {
-			analyzerGroup.forEach(analyzer -> {
-				split(text).forEach(token -> {
-					Set<MorphologicalAnalysisResult> resultsGroup = results.get(token);
+		final boolean routingEnabled = this.routingEnabled;
+		final String distinctTokens[] = tokens.toArray(new String[tokens.size()]);
+		final int candidates[] = new int[distinctTokens.length];
+		int allCandidates = 0;
+		for (int i = 0; i < distinctTokens.length; i++) {
+			if (routingEnabled) {
+				candidates[i] = this.router.route(distinctTokens[i]);
+				this.router.record(candidates[i]);
+			} else {
+				candidates[i] = this.router.getAllLanguages();
+			}
+			allCandidates |= candidates[i];
+
+			/*
+			 * Make sure tokens not present in the dictionary (or not
+			 * routed anywhere) still appear in the results returned.
+			 */
+			results.put(distinctTokens[i], Collections.<MorphologicalAnalysisResult>emptySet());
+		}
+
+		/*
+		 * Reused across tokens and dictionaries.
+		 */
+		final List<String> readings = new ArrayList<>();
+		/*
+		 * Equal stems share a single instance, so that they take memory
+		 * once and get serialized as back-references.
+		 */
+		final Map<String, String> stems = new HashMap<>();
+		for (final Entry<String, Dictionaries> entry : this.analyzers.entrySet()) {
+			final String language = entry.getKey();
+			/*
+			 * Languages the router knows nothing about get all the tokens.
+			 */
+			final int mask = this.router.getMask(language);
+			if (mask != 0 && (allCandidates & mask) == 0) {
+				this.router.recordSkippedInvocation(mask);
+				continue;
+			}
 
-					final List<String> readings = analyzer.stem(token);
-					if (readings.isEmpty() && resultsGroup == null) {
-						/*
-						 * Make sure tokens not present in the dictionary
-						 * still appear in the results returned.
-						 */
-						results.put(token, Collections.<MorphologicalAnalysisResult>emptySet());
+			final AnalysisEvent event = FlightRecorderEvents.AVAILABLE ? AnalysisEvent.start(ENGINE_NAME) : null;
+			final LanguageMetrics metrics = this.metrics.getLanguage(language);
+			long stemmingNanos = 0;
+			int inputLength = 0;
+			int tokenCount = 0;
+			int readingCount = 0;
+			int outOfVocabularyCount = 0;
+			final Dictionaries dictionaries = entry.getValue();
+			final List<Stemmer> engines = dictionaries.borrow();
+			final long start = System.nanoTime();
+			try {
+				for (int i = 0; i < distinctTokens.length; i++) {
+					if (mask != 0 && (candidates[i] & mask) == 0) {
+						continue;
 					}
-					for (final String reading : readings) {
-						final MorphologicalAnalysisResult result = new MorphologicalAnalysisResult(language, reading);
-						if (resultsGroup == null || resultsGroup.isEmpty()) {
-							resultsGroup = new LinkedHashSet<>();
-							results.put(token, resultsGroup);
+
+					final String token = distinctTokens[i];
+					Set<MorphologicalAnalysisResult> resultsGroup = results.get(token);
+					int tokenReadingCount = 0;
+					for (final Stemmer analyzer : engines) {
+						readings.clear();
+						final long stemmingStart = System.nanoTime();
+						analyzer.stem(token, readings);
+						stemmingNanos += System.nanoTime() - stemmingStart;
+						for (final String reading : readings) {
+							final String stem = stems.putIfAbsent(reading, reading);
+							final MorphologicalAnalysisResult result = new MorphologicalAnalysisResult(language, stem == null ? reading : stem);
+							if (resultsGroup.isEmpty()) {
+								resultsGroup = new LinkedHashSet<>();
+								results.put(token, resultsGroup);
+							}
+							resultsGroup.add(result);
 						}
-						resultsGroup.add(result);
+						tokenReadingCount += readings.size();
 					}
-				});
-			});
-		});
+
+					inputLength += token.length();
+					tokenCount++;
+					readingCount += tokenReadingCount;
+					if (tokenReadingCount == 0) {
+						outOfVocabularyCount++;
+					}
+				}
+			} finally {
+				dictionaries.release(engines);
+			}
+			final long languageNanos = System.nanoTime() - start;
+			metrics.record(Stage.TAGGING, stemmingNanos);
+			metrics.record(Stage.RESULT_CONSTRUCTION, languageNanos - stemmingNanos);
+			metrics.recordTokens(tokenCount, readingCount, outOfVocabularyCount);
+			if (event != null) {
+				event.end();
+				if (event.shouldCommit()) {
+					event.set(language, inputLength, tokenCount, readingCount);
+					event.commit();
+				}
+			}
+		}
 		return results;
 	}
 
 	/**
-	 * Splits <em>text</em> into individual words.
+	 * Turns per-token language routing on or off (off by default). When on,
+	 * a token is only sent to the dictionaries of the languages it may
+	 * belong to, judging by its alphabet, and tokens with no Cyrillic
+	 * letters are not sent to Russian or Ukrainian dictionaries at all, so
+	 * they are returned with no analyzes.
+	 *
+	 * @param routingEnabled
+	 * @see LanguageRouter
+	 */
+	public void setRoutingEnabled(final boolean routingEnabled) {
+		this.routingEnabled = routingEnabled;
+	}
+
+	public boolean isRoutingEnabled() {
+		return this.routingEnabled;
+	}
+
+	/**
+	 * @return the language router, which also reports how many tokens
+	 *         haven't been sent to each language.
+	 */
+	public LanguageRouter getRouter() {
+		return this.router;
+	}
+
+	/**
+	 * @return token counts, and the latencies of tokenization and of each
+	 *         language's dictionary lookups, which can also be published
+	 *         over JMX.
+	 */
+	public AnalysisMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	/**
+	 * @return the languages enabled which have dictionaries installed.
+	 */
+	public Set<String> getLanguages() {
+		return unmodifiableSet(this.analyzers.keySet());
+	}
+
+	/**
+	 * @param language lowercase 2 to 8 language code.
+	 * @return whether the dictionaries of the <em>language</em> have been
+	 *         loaded.
+	 */
+	public boolean isLoaded(final String language) {
+		final Dictionaries dictionaries = this.analyzers.get(language);
+		return dictionaries != null && dictionaries.loaded;
+	}
+
+	/**
+	 * @return the paths of the dictionaries not loaded, since they are
+	 *         identical to those loaded from other search paths, mapped to
+	 *         the paths of the latter (all with no suffix).
+	 */
+	public Map<String, String> getCollapsedDictionaries() {
+		return unmodifiableMap(this.collapsedDictionaries);
+	}
+
+	/**
+	 * Destroys the native Hunspell handles of all the engine instances
+	 * created, including those of the {@linkplain Concurrency#PER_THREAD
+	 * threads} which have since terminated. The analyzer can't be used
+	 * afterwards, and it shouldn't be closed while calls are in progress.
+	 *
+	 * @see AutoCloseable#close()
+	 */
+	@Override
+	public void close() {
+		this.analyzers.values().forEach(Dictionaries::close);
+	}
+
+	/**
+	 * @param language lowercase 2 to 8 language code.
+	 * @return the number of engine instances created so far for the
+	 *         <em>language</em> and not {@linkplain #close() closed} yet,
+	 *         each one holding a native Hunspell handle per dictionary, or
+	 *         {@code 0} if the <em>language</em> is not enabled.
+	 * @see Concurrency
+	 */
+	public int getInstanceCount(final String language) {
+		final Dictionaries dictionaries = this.analyzers.get(language);
+		return dictionaries == null ? 0 : dictionaries.instanceCount.get();
+	}
+
+	/**
+	 * Hunspell keeps a parsed copy of the dictionary and affix files per
+	 * handle, and the binding provides no way to share it between handles,
+	 * or to query the memory actually allocated. This is merely the combined
+	 * size of the files: the parsed copy (hash tables, affix trees) usually
+	 * takes several times as much.
+	 *
+	 * @param language lowercase 2 to 8 language code.
+	 * @return a lower bound of the native memory taken by a single engine
+	 *         instance of the <em>language</em>, in bytes, or {@code 0} if
+	 *         the <em>language</em> is not enabled.
+	 * @see #getInstanceCount(String)
+	 */
+	public long getMinNativeMemoryPerInstance(final String language) {
+		final Dictionaries dictionaries = this.analyzers.get(language);
+		return dictionaries == null ? 0 : dictionaries.minNativeMemoryPerInstance;
+	}
+
+	/**
+	 * @param language lowercase 2 to 8 language code.
+	 * @return the pool of engine instances for the <em>language</em>,
+	 *         which also reports utilization and wait times, or {@code null}
+	 *         unless the analyzer is {@linkplain Concurrency#POOLED pooled},
+	 *         the <em>language</em> is enabled, and has been {@linkplain
+	 *         #isLoaded(String) loaded}.
+	 */
+	@Nullable
+	public EnginePool<?> getEnginePool(final String language) {
+		final Dictionaries dictionaries = this.analyzers.get(language);
+		return dictionaries == null ? null : dictionaries.pool;
+	}
+
+	/**
+	 * How native Hunspell is called.
+	 *
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	public enum Binding {
+		/**
+		 * {@code hunspell-bridj}, which works with any Java version.
+		 */
+		BRIDJ {
+			/**
+			 * @see Binding#open(String, String)
+			 */
+			@Override
+			public Stemmer open(final String dictionaryPath, final String affixPath) {
+				return new BridJStemmer(dictionaryPath, affixPath);
+			}
+		},
+
+		/**
+		 * The Foreign Function &amp; Memory API (Java 22+), which calls
+		 * {@code libhunspell} with much less overhead per word. The library
+		 * has to be built with the {@code ffm} profile, active on Java 22+.
+		 */
+		FFM {
+			/**
+			 * @see Binding#open(String, String)
+			 */
+			@Override
+			public Stemmer open(final String dictionaryPath, final String affixPath) {
+				final Constructor<? extends Stemmer> constructor = ForeignStemmerHolder.CONSTRUCTOR;
+				if (constructor == null) {
+					throw new IllegalStateException(this + " binding is not available in Java " + getProperty("java.version"));
+				}
+				try {
+					return constructor.newInstance(dictionaryPath, affixPath);
+				} catch (final InvocationTargetException ite) {
+					final Throwable cause = ite.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					} else if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new IllegalStateException(cause);
+				} catch (final ReflectiveOperationException roe) {
+					throw new IllegalStateException(roe);
+				}
+			}
+
+			/**
+			 * @see Binding#isAvailable()
+			 */
+			@Override
+			public boolean isAvailable() {
+				return ForeignStemmerHolder.CONSTRUCTOR != null;
+			}
+		};
+
+		/**
+		 * @param dictionaryPath the path of the {@code .dic} file.
+		 * @param affixPath the path of the {@code .aff} file.
+		 * @return a new native Hunspell handle, loaded with the dictionary.
+		 */
+		public abstract Stemmer open(@Nonnull final String dictionaryPath, @Nonnull final String affixPath);
+
+		/**
+		 * @return whether the binding can be used in this Java version.
+		 */
+		public boolean isAvailable() {
+			return true;
+		}
+	}
+
+	/**
+	 * The library targets Java 8, so the FFM stemmer, compiled for Java 22
+	 * into the versioned part of the multi-release jar, is looked up
+	 * reflectively.
+	 *
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	private static final class ForeignStemmerHolder {
+		private static final String CLASS_NAME = "com.intersystems.iknow.languagemodel.slavic.impl.hunspell.ForeignStemmer";
+
+		/**
+		 * {@code null} if the FFM stemmer is not available.
+		 */
+		@Nullable
+		static final Constructor<? extends Stemmer> CONSTRUCTOR = lookUpConstructor();
+
+		private ForeignStemmerHolder() {
+			assert false;
+		}
+
+		@Nullable
+		private static Constructor<? extends Stemmer> lookUpConstructor() {
+			try {
+				return Class.forName(CLASS_NAME).asSubclass(Stemmer.class).getConstructor(String.class, String.class);
+			} catch (final ReflectiveOperationException | LinkageError e) {
+				/*
+				 * Either the class hasn't been compiled, or the class
+				 * file version is too recent for this Java version.
+				 */
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * How the native Hunspell handles, which are not safe for concurrent
+	 * use, are shared between the threads calling the analyzer.
+	 *
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	public enum Concurrency {
+		/**
+		 * A single engine instance per language, used by one thread
+		 * at a time.
+		 */
+		SYNCHRONIZED,
+
+		/**
+		 * An engine instance per language per calling thread, created on
+		 * the first call from that thread. Stemming never waits, but each
+		 * instance takes at least as much native memory as the {@linkplain
+		 * HunspellAnalyzer#getMinNativeMemoryPerInstance(String)
+		 * dictionaries}, and lives until the analyzer is {@linkplain
+		 * HunspellAnalyzer#close() closed}, even if its thread terminates
+		 * earlier, so this is meant for a fixed number of long-lived
+		 * threads.
+		 */
+		PER_THREAD,
+
+		/**
+		 * A fixed-size {@linkplain EnginePool pool} of engine instances per
+		 * language, borrowed for the duration of a call.
+		 */
+		POOLED,
+	}
+
+	/**
+	 * Configures and creates a {@link HunspellAnalyzer}.
+	 *
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	public static final class Builder {
+		@Nonnull
+		Set<String> languages = new LinkedHashSet<>(SUPPORTED_LANGUAGES);
+
+		boolean eager;
+
+		@Nonnull
+		Binding binding = Binding.BRIDJ;
+
+		@Nonnull
+		Concurrency concurrency = Concurrency.SYNCHRONIZED;
+
+		int poolSize = 1;
+
+		long borrowTimeout = EnginePool.NO_TIMEOUT;
+
+		@Nonnull
+		TimeUnit unit = MILLISECONDS;
+
+		Builder() {
+			// empty
+		}
+
+		/**
+		 * @param languages the languages to enable, out of those
+		 *        {@linkplain HunspellAnalyzer#SUPPORTED_LANGUAGES supported}.
+		 * @return this builder.
+		 */
+		public Builder languages(@Nonnull final String ... languages) {
+			final Set<String> enabledLanguages = new LinkedHashSet<>(asList(languages));
+			for (final String language : enabledLanguages) {
+				if (!SUPPORTED_LANGUAGES.contains(language)) {
+					throw new IllegalArgumentException("Unsupported language: " + language);
+				}
+			}
+			this.languages = enabledLanguages;
+			return this;
+		}
+
+		/**
+		 * @param eager whether to load the dictionaries of all the languages
+		 *        enabled when the analyzer is {@linkplain #build() built}, in
+		 *        parallel, rather than those of each language when a token is
+		 *        first sent to it (the default).
+		 * @return this builder.
+		 */
+		public Builder eager(final boolean eager) {
+			this.eager = eager;
+			return this;
+		}
+
+		/**
+		 * @param binding how native Hunspell is called; {@link
+		 *        Binding#BRIDJ} by default.
+		 * @return this builder.
+		 * @throws IllegalArgumentException if the <em>binding</em> is not
+		 *         {@linkplain Binding#isAvailable() available}.
+		 */
+		public Builder binding(@Nonnull final Binding binding) {
+			if (!binding.isAvailable()) {
+				throw new IllegalArgumentException(binding + " binding is not available in Java " + getProperty("java.version"));
+			}
+			this.binding = binding;
+			return this;
+		}
+
+		/**
+		 * @param concurrency how the native Hunspell handles are shared
+		 *        between threads; {@link Concurrency#SYNCHRONIZED} by
+		 *        default.
+		 * @return this builder.
+		 */
+		public Builder concurrency(@Nonnull final Concurrency concurrency) {
+			this.concurrency = concurrency;
+			return this;
+		}
+
+		/**
+		 * @param poolSize the number of engine instances per language,
+		 *        if {@linkplain Concurrency#POOLED pooled}.
+		 * @return this builder.
+		 */
+		public Builder poolSize(final int poolSize) {
+			if (poolSize < 1) {
+				throw new IllegalArgumentException("Pool size should be positive: " + poolSize);
+			}
+			this.poolSize = poolSize;
+			return this;
+		}
+
+		/**
+		 * @param borrowTimeout how long a caller may wait for a pooled
+		 *        engine instance, or {@link EnginePool#NO_TIMEOUT}.
+		 * @param unit the time unit of the <em>borrowTimeout</em>.
+		 * @return this builder.
+		 */
+		public Builder borrowTimeout(final long borrowTimeout, @Nonnull final TimeUnit unit) {
+			this.borrowTimeout = borrowTimeout;
+			this.unit = unit;
+			return this;
+		}
+
+		public HunspellAnalyzer build() {
+			return new HunspellAnalyzer(this);
+		}
+	}
+
+	/**
+	 * The dictionaries of a single language, loaded on first use, and
+	 * the engine instances (a Hunspell handle per dictionary) created
+	 * out of them.
 	 *
-	 * @param text
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
 	 */
-	private static Set<String> split(final String text) {
-		final Set<String> words = new LinkedHashSet<>();
-		words.addAll(asList(WORD_DELIMITERS_PATTERN.split(text)));
-		return words;
+	private static final class Dictionaries {
+		/**
+		 * Dictionary paths, with no suffix.
+		 */
+		@Nonnull
+		private final Set<String> paths;
+
+		@Nonnull
+		private final Binding binding;
+
+		@Nonnull
+		private final Concurrency concurrency;
+
+		private final int poolSize;
+
+		private final long borrowTimeout;
+
+		@Nonnull
+		private final TimeUnit unit;
+
+		final long minNativeMemoryPerInstance;
+
+		final AtomicInteger instanceCount = new AtomicInteger();
+
+		volatile boolean loaded;
+
+		private volatile boolean closed;
+
+		/**
+		 * Every instance created, so that all of them can be closed,
+		 * including those claimed by threads which have since terminated.
+		 */
+		private final Queue<List<Stemmer>> instances = new ConcurrentLinkedQueue<>();
+
+		/**
+		 * The only instance, if {@linkplain Concurrency#SYNCHRONIZED
+		 * synchronized}.
+		 */
+		@Nullable
+		private List<Stemmer> instance;
+
+		private final Lock instanceLock = new ReentrantLock();
+
+		/**
+		 * The instance created by {@link #load()}, until the first thread
+		 * claims it, if {@linkplain Concurrency#PER_THREAD per-thread}.
+		 */
+		private final Queue<List<Stemmer>> unclaimedInstances = new ConcurrentLinkedQueue<>();
+
+		private final ThreadLocal<List<Stemmer>> threadInstances = ThreadLocal.withInitial(() -> {
+			final List<Stemmer> unclaimedInstance = this.unclaimedInstances.poll();
+			return unclaimedInstance == null ? this.createInstance() : unclaimedInstance;
+		});
+
+		@Nullable
+		volatile EnginePool<List<Stemmer>> pool;
+
+		/**
+		 * @param paths
+		 * @param builder
+		 */
+		Dictionaries(@Nonnull final Set<String> paths, @Nonnull final Builder builder) {
+			this.paths = paths;
+			this.binding = builder.binding;
+			this.concurrency = builder.concurrency;
+			this.poolSize = builder.poolSize;
+			this.borrowTimeout = builder.borrowTimeout;
+			this.unit = builder.unit;
+
+			long minNativeMemoryPerInstance = 0;
+			for (final String path : paths) {
+				minNativeMemoryPerInstance += new File(path + DICTIONARY_SUFFIX).length() + new File(path + AFFIX_SUFFIX).length();
+			}
+			this.minNativeMemoryPerInstance = minNativeMemoryPerInstance;
+		}
+
+		/**
+		 * Borrows an engine instance, loading the dictionaries if
+		 * necessary. The instance should be {@linkplain #release(List)
+		 * released} in a {@code finally} block.
+		 *
+		 * @return a Hunspell handle per dictionary.
+		 * @throws AnalysisException if no pooled instance becomes available
+		 *         within the borrow timeout.
+		 * @throws IllegalStateException if the dictionaries have been
+		 *         {@linkplain #close() closed}.
+		 */
+		@Nonnull
+		List<Stemmer> borrow() throws AnalysisException {
+			if (!this.loaded) {
+				this.load();
+			}
+			if (this.closed) {
+				throw new IllegalStateException("Analyzer closed");
+			}
+
+			switch (this.concurrency) {
+			case SYNCHRONIZED:
+				this.instanceLock.lock();
+				final List<Stemmer> instance = this.instance;
+				assert instance != null;
+				return instance;
+			case PER_THREAD:
+				return this.threadInstances.get();
+			case POOLED:
+				final EnginePool<List<Stemmer>> pool = this.pool;
+				assert pool != null;
+				return pool.borrow();
+			default:
+				throw new IllegalStateException(String.valueOf(this.concurrency));
+			}
+		}
+
+		/**
+		 * @param engines the instance previously {@linkplain #borrow()
+		 *        borrowed}.
+		 */
+		void release(@Nonnull final List<Stemmer> engines) {
+			switch (this.concurrency) {
+			case SYNCHRONIZED:
+				this.instanceLock.unlock();
+				break;
+			case POOLED:
+				final EnginePool<List<Stemmer>> pool = this.pool;
+				assert pool != null;
+				pool.release(engines);
+				break;
+			default:
+				break;
+			}
+		}
+
+		/**
+		 * Creates the instances the analyzer starts with: one, or
+		 * the whole pool.
+		 */
+		synchronized void load() {
+			if (this.loaded || this.closed) {
+				return;
+			}
+
+			switch (this.concurrency) {
+			case SYNCHRONIZED:
+				this.instance = this.createInstance();
+				break;
+			case PER_THREAD:
+				this.unclaimedInstances.add(this.createInstance());
+				break;
+			case POOLED:
+				final List<List<Stemmer>> instances = new ArrayList<>(this.poolSize);
+				for (int i = 0; i < this.poolSize; i++) {
+					instances.add(this.createInstance());
+				}
+				this.pool = new EnginePool<>(instances, this.borrowTimeout, this.unit);
+				break;
+			default:
+				throw new IllegalStateException(String.valueOf(this.concurrency));
+			}
+			this.loaded = true;
+		}
+
+		/**
+		 * @return a new Hunspell handle per dictionary.
+		 */
+		private List<Stemmer> createInstance() {
+			final List<Stemmer> engines = new ArrayList<>(this.paths.size());
+			for (final String path : this.paths) {
+				engines.add(this.binding.open(path + DICTIONARY_SUFFIX, path + AFFIX_SUFFIX));
+			}
+			this.instances.add(engines);
+			this.instanceCount.incrementAndGet();
+			return engines;
+		}
+
+		/**
+		 * Closes all the instances created so far. Instances still held
+		 * by the threads which created them are never handed out again.
+		 */
+		synchronized void close() {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+
+			this.instance = null;
+			this.unclaimedInstances.clear();
+			List<Stemmer> engines;
+			while ((engines = this.instances.poll()) != null) {
+				engines.forEach(Stemmer::close);
+				this.instanceCount.decrementAndGet();
+			}
+		}
 	}
 }
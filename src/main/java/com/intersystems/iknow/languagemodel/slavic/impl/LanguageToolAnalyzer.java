@@ -3,35 +3,71 @@
  */
 package com.intersystems.iknow.languagemodel.slavic.impl;
 
-import static java.util.Arrays.stream;
+import static java.util.Arrays.asList;
+import static java.util.Arrays.fill;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import java.io.IOException;
-import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.languagetool.AnalyzedSentence;
 import org.languagetool.AnalyzedToken;
+import org.languagetool.AnalyzedTokenReadings;
 import org.languagetool.JLanguageTool;
+import org.languagetool.Language;
 import org.languagetool.language.Russian;
 import org.languagetool.language.Ukrainian;
 import org.xml.sax.SAXException;
 
+import com.intersystems.iknow.languagemodel.slavic.AnalysisException;
 import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalysisResult;
 import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.TokenSpan;
+import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.JLanguageToolSentenceAnalyzer;
 import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.RussianTagParser;
+import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.SentenceAnalyzer;
 import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.TagParseResult;
 import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.TagParser;
+import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.TagTable;
+import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.TaggingSentenceAnalyzer;
 import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.UkrainianTagParser;
+import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.UkrainianWordFilter;
 import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.WordFilter;
+import com.intersystems.iknow.languagemodel.slavic.jfr.AnalysisEvent;
+import com.intersystems.iknow.languagemodel.slavic.jfr.EngineBorrowEvent;
+import com.intersystems.iknow.languagemodel.slavic.jfr.FlightRecorderEvents;
+import com.intersystems.iknow.languagemodel.slavic.jfr.TaggingEvent;
+import com.intersystems.iknow.languagemodel.slavic.metrics.AnalysisMetrics;
+import com.intersystems.iknow.languagemodel.slavic.metrics.LanguageMetrics;
+import com.intersystems.iknow.languagemodel.slavic.metrics.Stage;
+import com.intersystems.iknow.languagemodel.slavic.text.LanguageRouter;
+import com.intersystems.iknow.languagemodel.slavic.text.TokenOccurrences;
 
 /**
  * Morphological analyzer which uses the <a href =
@@ -40,6 +76,11 @@ import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.WordFilter;
  * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
  */
 public final class LanguageToolAnalyzer implements MorphologicalAnalyzer {
+	/**
+	 * The engine name of the {@linkplain AnalysisEvent analysis events}.
+	 */
+	private static final String ENGINE_NAME = "languagetool";
+
 	private static final String SENTENCE_END = "SENT_END";
 
 	/**
@@ -48,101 +89,967 @@ public final class LanguageToolAnalyzer implements MorphologicalAnalyzer {
 	 */
 	private static final String WORD_DELIMITERS = "!\"'()*,-./:;<>?[]^`{}";
 
-	private static final String UKRAINIAN_ONLY_EXPRESSIONS[] = {
-		"\\b[\\p{L}]+\\'[\\p{L}]+\\-[\\p{L}]+\\'[\\p{L}]+\\b", // "f'oo-b'ar". This expression should be applied first.
-		"\\b[\\p{L}]+\\-[\\p{L}]+\\'[\\p{L}]+\\b", // "foo-b'ar"
-		"\\b[\\p{L}]+\\'[\\p{L}]+(\\-[\\p{L}]+[\\p{L}]+)?\\b", // "f'oo" (e.g.: "п'ятниця"), "f'oo-bar"
-	};
+	/**
+	 * Blanks Ukrainian-only words out rather than removing them, so that
+	 * tokens keep their positions within the original text.
+	 */
+	static final WordFilter RUSSIAN_WORD_MASK = new UkrainianWordFilter(true);
 
 	/**
-	 * {@linkplain java.util.Arrays#spliterator(Object[], int, int)} returns an
-	 * ordered spliterator, so we're safe here.
+	 * The languages supported, in the order their results are merged in.
 	 */
-	static final WordFilter RUSSIAN_WORD_FILTER = text -> stream(UKRAINIAN_ONLY_EXPRESSIONS).reduce(text, (input, regex) -> input.replaceAll(regex, ""));
+	public static final List<String> SUPPORTED_LANGUAGES = unmodifiableList(asList("ru", "uk"));
+
+	/**
+	 * The stages timed for each language.
+	 */
+	private static final Set<Stage> LANGUAGE_STAGES = unmodifiableSet(EnumSet.of(Stage.FILTERING,
+			Stage.TOKENIZATION,
+			Stage.TAGGING,
+			Stage.TAG_PARSING,
+			Stage.RESULT_CONSTRUCTION));
 
 	final Map<String, Engine> analyzers = new LinkedHashMap<>();
 
 	/**
+	 * Runs the analysis for each language in parallel, or {@code null}.
+	 */
+	@Nullable
+	private final Executor executor;
+
+	private final LanguageRouter router = new LanguageRouter(LanguageRouter.SLAVIC_UNIQUE_LETTERS);
+
+	/**
+	 * The router mask of the languages enabled.
+	 */
+	private final int languageMask;
+
+	@Nonnull
+	private final AnalysisMetrics metrics;
+
+	private volatile boolean routingEnabled;
+
+	/**
+	 * Creates an analyzer with a single LanguageTool instance per
+	 * language, shared by all callers.
+	 *
 	 * @throws IOException
 	 * @throws ParserConfigurationException
 	 * @throws SAXException
 	 */
 	public LanguageToolAnalyzer() throws IOException, ParserConfigurationException, SAXException {
-		this.analyzers.put("ru", Engine.create(new JLanguageTool(new Russian()), new RussianTagParser(), RUSSIAN_WORD_FILTER));
-		this.analyzers.put("uk", Engine.create(new JLanguageTool(new Ukrainian()), new UkrainianTagParser()));
+		this(1, EnginePool.NO_TIMEOUT, MILLISECONDS);
+	}
+
+	/**
+	 * Creates an analyzer with a pool of LanguageTool instances per
+	 * language. Since a LanguageTool instance is not safe for concurrent
+	 * use, at most <em>poolSize</em> callers can analyze text at the same
+	 * time; the others wait for an instance to become available.
+	 *
+	 * @param poolSize the number of LanguageTool instances per language.
+	 * @param borrowTimeout how long a caller may wait for a LanguageTool
+	 *        instance before {@link #analyze(String)} fails with an
+	 *        {@link AnalysisException}, or {@link EnginePool#NO_TIMEOUT}.
+	 * @param unit the time unit of the <em>borrowTimeout</em>.
+	 * @throws IOException
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 */
+	public LanguageToolAnalyzer(final int poolSize,
+			final long borrowTimeout,
+			@Nonnull final TimeUnit unit)
+	throws IOException, ParserConfigurationException, SAXException {
+		this(poolSize, borrowTimeout, unit, null);
+	}
+
+	/**
+	 * Creates an analyzer with a pool of LanguageTool instances per
+	 * language, which analyzes text in all languages in parallel, using
+	 * the <em>executor</em> supplied. The results are still merged in the
+	 * same (Russian, then Ukrainian) order.
+	 *
+	 * <p>All the languages {@linkplain #SUPPORTED_LANGUAGES supported} are
+	 * loaded up front; use a {@linkplain #builder() builder} to choose the
+	 * languages, or to load them on first use.</p>
+	 *
+	 * @param poolSize the number of LanguageTool instances per language.
+	 * @param borrowTimeout how long a caller may wait for a LanguageTool
+	 *        instance before {@link #analyze(String)} fails with an
+	 *        {@link AnalysisException}, or {@link EnginePool#NO_TIMEOUT}.
+	 * @param unit the time unit of the <em>borrowTimeout</em>.
+	 * @param executor the executor to run per-language analysis on, or
+	 *        {@code null} to analyze text in the calling thread, one language
+	 *        after another. The executor is not shut down by the analyzer.
+	 * @throws IOException
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 */
+	public LanguageToolAnalyzer(final int poolSize,
+			final long borrowTimeout,
+			@Nonnull final TimeUnit unit,
+			@Nullable final Executor executor)
+	throws IOException, ParserConfigurationException, SAXException {
+		this(builder().poolSize(poolSize).borrowTimeout(borrowTimeout, unit).executor(executor).eager(true));
+	}
+
+	/**
+	 * @param builder
+	 * @throws IOException
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 */
+	LanguageToolAnalyzer(@Nonnull final Builder builder)
+	throws IOException, ParserConfigurationException, SAXException {
+		if (builder.poolSize < 1) {
+			throw new IllegalArgumentException("Pool size should be positive: " + builder.poolSize);
+		}
+		if (builder.languages.isEmpty()) {
+			throw new IllegalArgumentException("No languages enabled");
+		}
+
+		final List<String> languages = new ArrayList<>(SUPPORTED_LANGUAGES);
+		languages.retainAll(builder.languages);
+		this.metrics = new AnalysisMetrics(EnumSet.noneOf(Stage.class), languages, LANGUAGE_STAGES);
+
+		int languageMask = 0;
+		for (final String language : languages) {
+			this.analyzers.put(language, createEngine(language, builder, this.metrics.getLanguage(language)));
+			languageMask |= this.router.getMask(language);
+		}
+		this.languageMask = languageMask;
+		this.executor = builder.executor;
+
+		if (builder.eager) {
+			this.load();
+		}
+	}
+
+	/**
+	 * @return a builder which creates an analyzer with all the languages
+	 *         {@linkplain #SUPPORTED_LANGUAGES supported}, loaded on first
+	 *         use, and a single {@linkplain Mode#RULES complete} LanguageTool
+	 *         instance per language.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @param language
+	 * @param builder
+	 * @param metrics
+	 */
+	private static Engine createEngine(@Nonnull final String language,
+			@Nonnull final Builder builder,
+			@Nonnull final LanguageMetrics metrics) {
+		switch (language) {
+		case "ru":
+			return new Engine(Russian::new, new TagTable(new RussianTagParser()), RUSSIAN_WORD_MASK, builder, metrics);
+		case "uk":
+			return new Engine(Ukrainian::new, new TagTable(new UkrainianTagParser()), text -> text, builder, metrics);
+		default:
+			throw new IllegalArgumentException("Unsupported language: " + language);
+		}
+	}
+
+	/**
+	 * Loads the LanguageTool instances of all the languages enabled
+	 * which haven't been loaded yet, one language per thread.
+	 *
+	 * @throws IOException
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 */
+	private void load() throws IOException, ParserConfigurationException, SAXException {
+		if (this.analyzers.size() == 1) {
+			this.analyzers.values().iterator().next().load();
+			return;
+		}
+
+		/*
+		 * Language's static initializer instantiates every language
+		 * available, so initialize it on this thread: otherwise a thread
+		 * initializing Language waits for a subclass the other thread is
+		 * initializing, which in turn waits for Language, and both
+		 * threads deadlock.
+		 */
+		Language.getAllLanguages();
+
+		final List<CompletableFuture<Void>> loads = new ArrayList<>(this.analyzers.size());
 		for (final Engine engine : this.analyzers.values()) {
-			final JLanguageTool languageTool = engine.languageTool;
-			languageTool.activateDefaultFalseFriendRules();
-			languageTool.activateDefaultPatternRules();
+			final Runnable load = () -> {
+				try {
+					engine.load();
+				} catch (final IOException | ParserConfigurationException | SAXException e) {
+					throw new CompletionException(e);
+				}
+			};
+			loads.add(this.executor == null ? CompletableFuture.runAsync(load) : CompletableFuture.runAsync(load, this.executor));
+		}
+
+		for (final CompletableFuture<Void> load : loads) {
+			try {
+				load.join();
+			} catch (final CompletionException ce) {
+				final Throwable cause = ce.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				} else if (cause instanceof ParserConfigurationException) {
+					throw (ParserConfigurationException) cause;
+				} else if (cause instanceof SAXException) {
+					throw (SAXException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw ce;
+			}
+		}
+	}
+
+	/**
+	 * @param language
+	 * @param mode
+	 * @param poolSize
+	 * @param borrowTimeout
+	 * @param unit
+	 * @throws IOException
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 */
+	private static EnginePool<SentenceAnalyzer> createLanguageTools(@Nonnull final Supplier<Language> language,
+			@Nonnull final Mode mode,
+			final int poolSize,
+			final long borrowTimeout,
+			@Nonnull final TimeUnit unit)
+	throws IOException, ParserConfigurationException, SAXException {
+		final List<SentenceAnalyzer> languageTools = new ArrayList<>(poolSize);
+		for (int i = 0; i < poolSize; i++) {
+			/*
+			 * Language instances hold lazily initialized taggers
+			 * and tokenizers, so they aren't shared either.
+			 */
+			switch (mode) {
+			case RULES:
+				final JLanguageTool languageTool = new JLanguageTool(language.get());
+				languageTool.activateDefaultFalseFriendRules();
+				languageTool.activateDefaultPatternRules();
+				languageTools.add(new JLanguageToolSentenceAnalyzer(languageTool));
+				break;
+			case ANALYSIS:
+				languageTools.add(new TaggingSentenceAnalyzer(language.get(), true));
+				break;
+			case TAGGING:
+				languageTools.add(new TaggingSentenceAnalyzer(language.get(), false));
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported mode: " + mode);
+			}
 		}
+		return new EnginePool<>(languageTools, borrowTimeout, unit);
 	}
 
 	/**
+	 * @throws AnalysisException if no engine instance becomes available
+	 *         within the {@linkplain Builder#borrowTimeout(long, TimeUnit)
+	 *         borrow timeout}, or if LanguageTool fails.
 	 * @see MorphologicalAnalyzer#analyze(String)
 	 */
 	@Override
-	public Map<String, Set<MorphologicalAnalysisResult>> analyze(final String text) {
+	public Map<String, Set<MorphologicalAnalysisResult>> analyze(final String text)
+	throws AnalysisException {
 		if (text == null || text.length() == 0) {
 			return emptyMap();
 		}
 
+		return this.analyze(text, null, this.newStems());
+	}
+
+	/**
+	 * @throws AnalysisException if no engine instance becomes available
+	 *         within the {@linkplain Builder#borrowTimeout(long, TimeUnit)
+	 *         borrow timeout}, or if LanguageTool fails.
+	 * @see MorphologicalAnalyzer#analyzeSpans(String)
+	 */
+	@Override
+	public List<TokenSpan> analyzeSpans(final String text)
+	throws AnalysisException {
+		if (text == null || text.length() == 0) {
+			return emptyList();
+		}
+
+		/*
+		 * One more for the words not routed to any language.
+		 */
+		final List<TokenOccurrences> languageOccurrences = new ArrayList<>(this.analyzers.size() + 1);
+		for (int i = 0; i <= this.analyzers.size(); i++) {
+			languageOccurrences.add(new TokenOccurrences());
+		}
+		final Map<String, Set<MorphologicalAnalysisResult>> results = this.analyze(text, languageOccurrences, this.newStems());
+		return languageOccurrences.stream().reduce(TokenOccurrences::merge).get().toSpans(results);
+	}
+
+	/**
+	 * Analyzes each distinct text of the batch once.
+	 *
+	 * <p>Unlike {@link HunspellAnalyzer}, this analyzer doesn't analyze
+	 * each distinct word of the batch only once: LanguageTool disambiguates
+	 * the readings of a word by its sentence context, so the same word may
+	 * have different analyzes in different texts, and analyzing the distinct
+	 * words out of context would change the results. Instead, equal sets
+	 * of analyzes (and equal stems) are shared across the whole batch,
+	 * so that they take memory (and serialized space) only once.</p>
+	 *
+	 * <p>The maps and sets returned are read-only, since they may be
+	 * shared between texts.</p>
+	 *
+	 * @throws AnalysisException if no engine instance becomes available
+	 *         within the {@linkplain Builder#borrowTimeout(long, TimeUnit)
+	 *         borrow timeout}, or if LanguageTool fails.
+	 * @see MorphologicalAnalyzer#analyzeBatch(List)
+	 */
+	@Override
+	public List<Map<String, Set<MorphologicalAnalysisResult>>> analyzeBatch(final List<String> texts)
+	throws AnalysisException {
+		final Map<String, Map<String, Set<MorphologicalAnalysisResult>>> distinctResults = new HashMap<>();
+		final Map<Set<MorphologicalAnalysisResult>, Set<MorphologicalAnalysisResult>> sharedResults = new HashMap<>();
+		final Map<String, String> stems = this.newStems();
+		final List<Map<String, Set<MorphologicalAnalysisResult>>> results = new ArrayList<>(texts.size());
+		for (final String text : texts) {
+			Map<String, Set<MorphologicalAnalysisResult>> textResults = distinctResults.get(text);
+			if (textResults == null) {
+				final Map<String, Set<MorphologicalAnalysisResult>> analyzedText = text == null || text.length() == 0
+						? new LinkedHashMap<>()
+						: this.analyze(text, null, stems);
+				analyzedText.replaceAll((token, tokenResults) -> {
+					if (tokenResults.isEmpty()) {
+						return Collections.<MorphologicalAnalysisResult>emptySet();
+					}
+					return sharedResults.computeIfAbsent(tokenResults, Collections::unmodifiableSet);
+				});
+				textResults = unmodifiableMap(analyzedText);
+				distinctResults.put(text, textResults);
+			}
+			results.add(textResults);
+		}
+		return results;
+	}
+
+	/**
+	 * @param text
+	 * @param languageOccurrences a container for token occurrences for
+	 *        each language, in the order of languages, followed by one for
+	 *        the words not routed to any language, or {@code null} if token
+	 *        occurrences are not needed.
+	 * @param stems the stems of the call so far, each mapped to itself.
+	 * @throws AnalysisException
+	 */
+	private Map<String, Set<MorphologicalAnalysisResult>> analyze(final String text,
+			@Nullable final List<TokenOccurrences> languageOccurrences,
+			final Map<String, String> stems)
+	throws AnalysisException {
 		final Map<String, Set<MorphologicalAnalysisResult>> results = new LinkedHashMap<>();
 
+		final Map<String, Set<MorphologicalAnalysisResult>> unroutedResults = new LinkedHashMap<>();
+		final List<String> languageTexts = this.route(text,
+				unroutedResults,
+				languageOccurrences == null ? null : languageOccurrences.get(this.analyzers.size()));
+
+		if (this.executor == null) {
+			int i = 0;
+			for (final Entry<String, Engine> entry : this.analyzers.entrySet()) {
+				final TokenOccurrences occurrences = languageOccurrences == null ? null : languageOccurrences.get(i);
+				merge(results, analyze(entry.getKey(), entry.getValue(), languageTexts.get(i), occurrences, stems));
+				i++;
+			}
+			merge(results, unroutedResults);
+			return results;
+		}
+
+		final List<CompletableFuture<Map<String, Set<MorphologicalAnalysisResult>>>> languageResults = new ArrayList<>(this.analyzers.size());
 		this.analyzers.forEach((language, engine) -> {
+			final int i = languageResults.size();
+			final TokenOccurrences occurrences = languageOccurrences == null ? null : languageOccurrences.get(i);
+			final String languageText = languageTexts.get(i);
+			languageResults.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					return analyze(language, engine, languageText, occurrences, stems);
+				} catch (final AnalysisException ae) {
+					throw new CompletionException(ae);
+				}
+			}, this.executor));
+		});
+
+		/*
+		 * Merge in the order of languages, regardless of which
+		 * language has been analyzed first.
+		 */
+		for (final CompletableFuture<Map<String, Set<MorphologicalAnalysisResult>>> future : languageResults) {
 			try {
-				final AnalyzedSentence analyzedSentence = engine.languageTool.getAnalyzedSentence(engine.filter.getFilteredText(text));
+				merge(results, future.get());
+			} catch (final InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new AnalysisException(ie);
+			} catch (final ExecutionException ee) {
+				final Throwable cause = ee.getCause();
+				if (cause instanceof AnalysisException) {
+					throw (AnalysisException) cause;
+				}
+				throw new AnalysisException(cause);
+			}
+		}
+		merge(results, unroutedResults);
+		return results;
+	}
+
+	/**
+	 * Equal stems found by the same call share a single instance, so that
+	 * they take memory once and get serialized as back-references. Engines
+	 * run concurrently when there's an executor.
+	 *
+	 * @return an empty map of stems for a single call.
+	 */
+	private Map<String, String> newStems() {
+		return this.executor == null ? new HashMap<>() : new ConcurrentHashMap<>();
+	}
 
-				stream(analyzedSentence.getTokensWithoutWhitespace()).filter(analyzedTokenReadings -> {
-					final String token = analyzedTokenReadings.getToken();
+	/**
+	 * Routes each word of the <em>text</em> to the languages it may belong
+	 * to.
+	 *
+	 * @param text
+	 * @param unroutedResults a container for (empty) results for the
+	 *        words not routed to any language.
+	 * @param unroutedOccurrences a container for occurrences of the words
+	 *        not routed to any language, or {@code null}.
+	 * @return for each language, in the order of languages, the text with
+	 *         the words not routed to the language blanked out, or
+	 *         {@code null} if no word has been routed to the language.
+	 */
+	private List<String> route(final String text,
+			final Map<String, Set<MorphologicalAnalysisResult>> unroutedResults,
+			@Nullable final TokenOccurrences unroutedOccurrences) {
+		final List<String> languageTexts = new ArrayList<>(this.analyzers.size());
+		if (!this.routingEnabled) {
+			this.analyzers.forEach((language, engine) -> languageTexts.add(text));
+			return languageTexts;
+		}
+
+		final int masks[] = this.analyzers.keySet().stream().mapToInt(this.router::getMask).toArray();
+		/*
+		 * For each language, the start and end offsets of the words
+		 * to blank out.
+		 */
+		final int blankedWords[][] = new int[masks.length][];
+		final int blankedWordOffsets[] = new int[masks.length];
+		final int routedLanguages[] = {0};
+		this.router.route(text, (start, end, candidates) -> {
+			this.router.record(candidates);
+			routedLanguages[0] |= candidates;
+			/*
+			 * Words of the languages not enabled are left
+			 * unanalyzed, too.
+			 */
+			if ((candidates & this.languageMask) == 0) {
+				final String word = text.substring(start, end);
+				if (!unroutedResults.containsKey(word)) {
+					unroutedResults.put(word, Collections.<MorphologicalAnalysisResult>emptySet());
+				}
+				if (unroutedOccurrences != null) {
+					unroutedOccurrences.add(word, start);
+				}
+			}
+
+			for (int i = 0; i < masks.length; i++) {
+				if ((candidates & masks[i]) == 0) {
+					int offsets[] = blankedWords[i];
+					final int length = blankedWordOffsets[i];
+					if (offsets == null) {
+						offsets = blankedWords[i] = new int[16];
+					} else if (length == offsets.length) {
+						offsets = blankedWords[i] = Arrays.copyOf(offsets, 2 * length);
+					}
+					offsets[length] = start;
+					offsets[length + 1] = end;
+					blankedWordOffsets[i] = length + 2;
+				}
+			}
+		});
+
+		/*
+		 * A single buffer for all the languages.
+		 */
+		char maskedText[] = null;
+		for (int i = 0; i < masks.length; i++) {
+			if ((routedLanguages[0] & masks[i]) == 0) {
+				this.router.recordSkippedInvocation(masks[i]);
+				languageTexts.add(null);
+			} else if (blankedWords[i] == null) {
+				languageTexts.add(text);
+			} else {
+				if (maskedText == null) {
+					maskedText = new char[text.length()];
+				}
+				text.getChars(0, text.length(), maskedText, 0);
+				final int offsets[] = blankedWords[i];
+				for (int j = 0; j < blankedWordOffsets[i]; j += 2) {
 					/*
-					 * Don't return single-char punctuation marks.
+					 * Blank the word out, so that the rest of
+					 * the words keep their positions.
 					 */
-					return !token.isEmpty() && !(token.length() == 1 && WORD_DELIMITERS.contains(token));
-				}).forEach(analyzedTokenReadings -> {
-					final String token = analyzedTokenReadings.getToken();
-					Set<MorphologicalAnalysisResult> resultsGroup = results.get(token);
-
-					final List<AnalyzedToken> readings = analyzedTokenReadings.getReadings();
-					if (readings.size() == 1 && readings.iterator().next().getLemma() == null) {
-						if (resultsGroup == null) {
-							/*
-							 * Make sure tokens not present in the dictionary
-							 * still appear in the results returned.
-							 */
-							results.put(token, Collections.<MorphologicalAnalysisResult>emptySet());
-						}
-					} else {
-						for (final AnalyzedToken reading : readings) {
-							final String posTag = reading.getPOSTag();
-							final String stem = reading.getLemma();
-							/*
-							 * Skip sentence end marks and empty stems.
-							 */
-							if (!posTag.equals(SENTENCE_END) && stem != null) {
-								final TagParseResult tagParseResult = engine.tagParser.parse(posTag);
-								final MorphologicalAnalysisResult result = new MorphologicalAnalysisResult(language, stem, tagParseResult.getPartOfSpeech(), tagParseResult.getCategories());
-								if (resultsGroup == null || resultsGroup.isEmpty()) {
-									resultsGroup = new LinkedHashSet<>();
-									results.put(token, resultsGroup);
-								}
-								resultsGroup.add(result);
-							}
+					fill(maskedText, offsets[j], offsets[j + 1], ' ');
+				}
+				languageTexts.add(new String(maskedText));
+			}
+		}
+		return languageTexts;
+	}
+
+	/**
+	 * Analyzes the <em>text</em> in a single language.
+	 *
+	 * @param language
+	 * @param engine
+	 * @param text the text, or {@code null} if no word has been routed to
+	 *        the <em>language</em>.
+	 * @param occurrences a container for token occurrences, or {@code null}.
+	 * @param stems the stems of the call so far, each mapped to itself.
+	 * @throws AnalysisException
+	 */
+	private static Map<String, Set<MorphologicalAnalysisResult>> analyze(final String language,
+			final Engine engine,
+			@Nullable final String text,
+			@Nullable final TokenOccurrences occurrences,
+			final Map<String, String> stems)
+	throws AnalysisException {
+		final Map<String, Set<MorphologicalAnalysisResult>> results = new LinkedHashMap<>();
+		if (text == null) {
+			return results;
+		}
+
+		final AnalysisEvent analysisEvent = FlightRecorderEvents.AVAILABLE ? AnalysisEvent.start(ENGINE_NAME) : null;
+		final EnginePool<SentenceAnalyzer> languageTools = engine.getLanguageTools();
+		final EngineBorrowEvent borrowEvent = FlightRecorderEvents.AVAILABLE ? EngineBorrowEvent.start(languageTools.getSize()) : null;
+		final SentenceAnalyzer languageTool = languageTools.borrow();
+		if (borrowEvent != null) {
+			borrowEvent.borrowed();
+		}
+		try {
+			final LanguageMetrics metrics = engine.metrics;
+			long start = System.nanoTime();
+			final String filteredText = engine.filter.getFilteredText(text);
+			long end = System.nanoTime();
+			metrics.record(Stage.FILTERING, end - start);
+
+			start = end;
+			final List<String> sentences = languageTool.sentenceTokenize(filteredText);
+			end = System.nanoTime();
+			metrics.record(Stage.TOKENIZATION, end - start);
+
+			/*
+			 * Analyze the text one sentence at a time, so that
+			 * only a single sentence is kept in memory, and
+			 * the disambiguator never has to deal with the whole
+			 * document at once.
+			 */
+			long taggingNanos = 0;
+			long collectingNanos = 0;
+			long tagParsingNanos = 0;
+			int sentenceStart = 0;
+			for (final String sentence : sentences) {
+				final int sentenceOffset = filteredText.indexOf(sentence, sentenceStart);
+				if (sentenceOffset != -1) {
+					sentenceStart = sentenceOffset;
+				}
+
+				start = end;
+				final TaggingEvent taggingEvent = FlightRecorderEvents.AVAILABLE ? TaggingEvent.start() : null;
+				final AnalyzedSentence analyzedSentence = languageTool.getAnalyzedSentence(sentence);
+				if (taggingEvent != null) {
+					commit(taggingEvent, language, sentence, analyzedSentence);
+				}
+				end = System.nanoTime();
+				taggingNanos += end - start;
+
+				start = end;
+				tagParsingNanos += collect(language, engine, analyzedSentence, sentenceStart, results, occurrences, stems);
+				end = System.nanoTime();
+				collectingNanos += end - start;
+
+				sentenceStart += sentence.length();
+			}
+			metrics.record(Stage.TAGGING, taggingNanos);
+			metrics.record(Stage.TAG_PARSING, tagParsingNanos);
+			metrics.record(Stage.RESULT_CONSTRUCTION, collectingNanos - tagParsingNanos);
+		} catch (final IOException ioe) {
+			throw new AnalysisException(ioe);
+		} finally {
+			languageTools.release(languageTool);
+		}
+		if (borrowEvent != null) {
+			borrowEvent.record(language, text.length(), results);
+		}
+		if (analysisEvent != null) {
+			analysisEvent.record(language, text.length(), results);
+		}
+		return results;
+	}
+
+	/**
+	 * Ends and commits the <em>taggingEvent</em>, counting the tokens and
+	 * the readings only if the event is going to be recorded.
+	 *
+	 * @param taggingEvent
+	 * @param language
+	 * @param sentence
+	 * @param analyzedSentence
+	 */
+	private static void commit(final TaggingEvent taggingEvent,
+			final String language,
+			final String sentence,
+			final AnalyzedSentence analyzedSentence) {
+		taggingEvent.end();
+		if (taggingEvent.shouldCommit()) {
+			final AnalyzedTokenReadings tokens[] = analyzedSentence.getTokensWithoutWhitespace();
+			int readingCount = 0;
+			for (final AnalyzedTokenReadings analyzedTokenReadings : tokens) {
+				readingCount += analyzedTokenReadings.getReadings().size();
+			}
+			taggingEvent.set(language, sentence.length(), tokens.length, readingCount);
+			taggingEvent.commit();
+		}
+	}
+
+	/**
+	 * Collects the analyzes of a single sentence, and records the number
+	 * of tokens, readings and out-of-vocabulary tokens.
+	 *
+	 * @param language
+	 * @param engine
+	 * @param analyzedSentence
+	 * @param sentenceStart the position of the sentence within the text.
+	 * @param results
+	 * @param occurrences a container for token occurrences, or {@code null}.
+	 * @param stems the stems of the call so far, each mapped to itself.
+	 * @return the time spent parsing tags, in nanoseconds.
+	 */
+	private static long collect(final String language,
+			final Engine engine,
+			final AnalyzedSentence analyzedSentence,
+			final int sentenceStart,
+			final Map<String, Set<MorphologicalAnalysisResult>> results,
+			@Nullable final TokenOccurrences occurrences,
+			final Map<String, String> stems) {
+		long tagParsingNanos = 0;
+		int tokenCount = 0;
+		int readingCount = 0;
+		int outOfVocabularyCount = 0;
+		for (final AnalyzedTokenReadings analyzedTokenReadings : analyzedSentence.getTokensWithoutWhitespace()) {
+			final String token = analyzedTokenReadings.getToken();
+			/*
+			 * Don't return single-char punctuation marks, nor the blanks
+			 * a masked word leaves behind (a sentence which is blank
+			 * throughout still has its last token marked as the sentence
+			 * end, so it isn't filtered out as whitespace).
+			 */
+			if (token.isEmpty()
+					|| analyzedTokenReadings.isWhitespace()
+					|| token.length() == 1 && WORD_DELIMITERS.contains(token)) {
+				continue;
+			}
+
+			tokenCount++;
+			if (occurrences != null) {
+				occurrences.add(token, sentenceStart + analyzedTokenReadings.getStartPos());
+			}
+			Set<MorphologicalAnalysisResult> resultsGroup = results.get(token);
+
+			final List<AnalyzedToken> readings = analyzedTokenReadings.getReadings();
+			if (readings.size() == 1 && readings.iterator().next().getLemma() == null) {
+				outOfVocabularyCount++;
+				if (resultsGroup == null) {
+					/*
+					 * Make sure tokens not present in the dictionary
+					 * still appear in the results returned.
+					 */
+					results.put(token, Collections.<MorphologicalAnalysisResult>emptySet());
+				}
+			} else {
+				for (final AnalyzedToken reading : readings) {
+					final String posTag = reading.getPOSTag();
+					final String lemma = reading.getLemma();
+					/*
+					 * Skip sentence end marks and empty stems.
+					 */
+					if (!posTag.equals(SENTENCE_END) && lemma != null) {
+						readingCount++;
+						final String sharedStem = stems.putIfAbsent(lemma, lemma);
+						final String stem = sharedStem == null ? lemma : sharedStem;
+						final long start = System.nanoTime();
+						final TagParseResult tagParseResult = engine.tagParser.parse(posTag);
+						tagParsingNanos += System.nanoTime() - start;
+						final MorphologicalAnalysisResult result = new MorphologicalAnalysisResult(language, stem, tagParseResult.getPartOfSpeech(), tagParseResult.getCategoryMask());
+						if (resultsGroup == null || resultsGroup.isEmpty()) {
+							resultsGroup = new LinkedHashSet<>();
+							results.put(token, resultsGroup);
 						}
+						resultsGroup.add(result);
 					}
-				});
-			} catch (final IOException ioe) {
-				throw new UncheckedIOException(ioe);
+				}
+			}
+		}
+		engine.metrics.recordTokens(tokenCount, readingCount, outOfVocabularyCount);
+		return tagParsingNanos;
+	}
+
+	/**
+	 * Merges the results of a single language into <em>results</em>.
+	 * Tokens keep the position of their first occurrence, and an empty
+	 * set of results is replaced with a non-empty one.
+	 *
+	 * @param results
+	 * @param languageResults
+	 */
+	private static void merge(final Map<String, Set<MorphologicalAnalysisResult>> results,
+			final Map<String, Set<MorphologicalAnalysisResult>> languageResults) {
+		languageResults.forEach((token, languageResultsGroup) -> {
+			final Set<MorphologicalAnalysisResult> resultsGroup = results.get(token);
+			if (resultsGroup == null || resultsGroup.isEmpty()) {
+				results.put(token, languageResultsGroup);
+			} else {
+				resultsGroup.addAll(languageResultsGroup);
 			}
 		});
-		return results;
 	}
 
 	/**
+	 * Turns per-token language routing on or off (off by default). When on,
+	 * each engine only sees the words which may belong to its language,
+	 * judging by their alphabet; the other words are blanked out, and an
+	 * engine isn't invoked at all if no word has been routed to it. Words
+	 * with no Cyrillic letters (Latin words, numbers) aren't sent to any
+	 * engine and are returned with no analyzes, after all the other words.
+	 * The results may therefore differ from those with routing off.
+	 *
+	 * @param routingEnabled
+	 * @see LanguageRouter
+	 */
+	public void setRoutingEnabled(final boolean routingEnabled) {
+		this.routingEnabled = routingEnabled;
+	}
+
+	public boolean isRoutingEnabled() {
+		return this.routingEnabled;
+	}
+
+	/**
+	 * @return the language router, which also reports how many words
+	 *         haven't been sent to each engine.
+	 */
+	public LanguageRouter getRouter() {
+		return this.router;
+	}
+
+	/**
+	 * @return per-language token counts, and the latencies of each stage
+	 *         of the analysis, which can also be published over JMX.
+	 */
+	public AnalysisMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	/**
+	 * @return the languages enabled, in the order their results are
+	 *         merged in.
+	 */
+	public Set<String> getLanguages() {
+		return unmodifiableSet(this.analyzers.keySet());
+	}
+
+	/**
+	 * @param language lowercase 2 to 8 language code.
+	 * @return whether the LanguageTool instances for the <em>language</em>
+	 *         have been loaded.
+	 */
+	public boolean isLoaded(final String language) {
+		final Engine engine = this.analyzers.get(language);
+		return engine != null && engine.languageTools != null;
+	}
+
+	/**
+	 * @param language lowercase 2 to 8 language code.
+	 * @return the pool of LanguageTool instances for the <em>language</em>,
+	 *         which also reports utilization and wait times, or {@code null}
+	 *         if the <em>language</em> is not enabled, or hasn't been
+	 *         {@linkplain #isLoaded(String) loaded} yet.
+	 */
+	@Nullable
+	public EnginePool<?> getEnginePool(final String language) {
+		final Engine engine = this.analyzers.get(language);
+		return engine == null ? null : engine.languageTools;
+	}
+
+	/**
+	 * Which parts of LanguageTool each engine instance loads.
+	 *
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	public enum Mode {
+		/**
+		 * A complete {@link JLanguageTool} instance, with the default
+		 * pattern and false friend rules activated. The rules are never
+		 * used for analysis, but take most of the startup time and heap.
+		 */
+		RULES,
+
+		/**
+		 * The tokenizers, the tagger and the disambiguator of the language
+		 * only, with no rules loaded. The analyzes are the same as those of
+		 * {@link #RULES}.
+		 */
+		ANALYSIS,
+
+		/**
+		 * Same as {@link #ANALYSIS}, but with no disambiguator, so that all
+		 * the readings of each token are returned.
+		 */
+		TAGGING,
+	}
+
+	/**
+	 * Configures and creates a {@link LanguageToolAnalyzer}.
+	 *
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	public static final class Builder {
+		@Nonnull
+		Set<String> languages = new LinkedHashSet<>(SUPPORTED_LANGUAGES);
+
+		int poolSize = 1;
+
+		long borrowTimeout = EnginePool.NO_TIMEOUT;
+
+		@Nonnull
+		TimeUnit unit = MILLISECONDS;
+
+		@Nullable
+		Executor executor;
+
+		@Nonnull
+		Mode mode = Mode.RULES;
+
+		boolean eager;
+
+		Builder() {
+			// empty
+		}
+
+		/**
+		 * @param languages the languages to enable, out of those
+		 *        {@linkplain LanguageToolAnalyzer#SUPPORTED_LANGUAGES
+		 *        supported}. Words which may only belong to other
+		 *        languages are returned with no analyzes.
+		 * @return this builder.
+		 */
+		public Builder languages(@Nonnull final String ... languages) {
+			final Set<String> enabledLanguages = new LinkedHashSet<>(asList(languages));
+			for (final String language : enabledLanguages) {
+				if (!SUPPORTED_LANGUAGES.contains(language)) {
+					throw new IllegalArgumentException("Unsupported language: " + language);
+				}
+			}
+			this.languages = enabledLanguages;
+			return this;
+		}
+
+		/**
+		 * @param poolSize the number of LanguageTool instances per language.
+		 * @return this builder.
+		 * @see LanguageToolAnalyzer#LanguageToolAnalyzer(int, long, TimeUnit)
+		 */
+		public Builder poolSize(final int poolSize) {
+			this.poolSize = poolSize;
+			return this;
+		}
+
+		/**
+		 * @param borrowTimeout how long a caller may wait for a LanguageTool
+		 *        instance, or {@link EnginePool#NO_TIMEOUT}.
+		 * @param unit the time unit of the <em>borrowTimeout</em>.
+		 * @return this builder.
+		 */
+		public Builder borrowTimeout(final long borrowTimeout, @Nonnull final TimeUnit unit) {
+			this.borrowTimeout = borrowTimeout;
+			this.unit = unit;
+			return this;
+		}
+
+		/**
+		 * @param executor the executor to run per-language analysis (and
+		 *        eager loading) on, or {@code null}.
+		 * @return this builder.
+		 * @see LanguageToolAnalyzer#LanguageToolAnalyzer(int, long, TimeUnit, Executor)
+		 */
+		public Builder executor(@Nullable final Executor executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * @param mode which parts of LanguageTool to load.
+		 * @return this builder.
+		 */
+		public Builder mode(@Nonnull final Mode mode) {
+			this.mode = mode;
+			return this;
+		}
+
+		/**
+		 * @param eager whether to load the LanguageTool instances of all the
+		 *        languages enabled when the analyzer is {@linkplain #build()
+		 *        built}, in parallel, rather than those of each language when
+		 *        a word is first sent to it (the default).
+		 * @return this builder.
+		 */
+		public Builder eager(final boolean eager) {
+			this.eager = eager;
+			return this;
+		}
+
+		/**
+		 * @throws IOException
+		 * @throws ParserConfigurationException
+		 * @throws SAXException
+		 */
+		public LanguageToolAnalyzer build() throws IOException, ParserConfigurationException, SAXException {
+			return new LanguageToolAnalyzer(this);
+		}
+	}
+
+	/**
+	 * The LanguageTool instances of a single language, loaded on first
+	 * use, along with the language-specific tag parser and word filter.
+	 *
 	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
 	 */
 	private static final class Engine {
 		@Nonnull
-		final JLanguageTool languageTool;
+		private final Supplier<Language> language;
+
+		@Nonnull
+		private final Mode mode;
+
+		private final int poolSize;
+
+		private final long borrowTimeout;
+
+		@Nonnull
+		private final TimeUnit unit;
+
+		@Nullable
+		volatile EnginePool<SentenceAnalyzer> languageTools;
 
 		@Nonnull
 		final TagParser tagParser;
@@ -150,37 +1057,67 @@ public final class LanguageToolAnalyzer implements MorphologicalAnalyzer {
 		@Nonnull
 		final WordFilter filter;
 
+		@Nonnull
+		final LanguageMetrics metrics;
+
 		/**
-		 * @param languageTool
+		 * @param language
 		 * @param tagParser
 		 * @param filter
+		 * @param builder
+		 * @param metrics
 		 */
-		private Engine(@Nonnull final JLanguageTool languageTool,
+		Engine(@Nonnull final Supplier<Language> language,
 				@Nonnull final TagParser tagParser,
-				@Nonnull final WordFilter filter) {
-			this.languageTool = languageTool;
+				@Nonnull final WordFilter filter,
+				@Nonnull final Builder builder,
+				@Nonnull final LanguageMetrics metrics) {
+			this.language = language;
+			this.mode = builder.mode;
+			this.poolSize = builder.poolSize;
+			this.borrowTimeout = builder.borrowTimeout;
+			this.unit = builder.unit;
 			this.tagParser = tagParser;
 			this.filter = filter;
+			this.metrics = metrics;
 		}
 
 		/**
-		 * @param languageTool
-		 * @param tagParser
+		 * @return the pool of LanguageTool instances, loading them
+		 *         if necessary.
+		 * @throws AnalysisException if the LanguageTool instances
+		 *         have failed to load.
 		 */
-		static Engine create(@Nonnull final JLanguageTool languageTool,
-				@Nonnull final TagParser tagParser) {
-			return new Engine(languageTool, tagParser, text -> text);
+		@Nonnull
+		EnginePool<SentenceAnalyzer> getLanguageTools() throws AnalysisException {
+			final EnginePool<SentenceAnalyzer> languageTools = this.languageTools;
+			if (languageTools != null) {
+				return languageTools;
+			}
+
+			try {
+				return this.load();
+			} catch (final IOException | ParserConfigurationException | SAXException e) {
+				throw new AnalysisException(e);
+			}
 		}
 
 		/**
-		 * @param languageTool
-		 * @param tagParser
-		 * @param filter
+		 * Loads the LanguageTool instances, unless already loaded.
+		 * A failed load is retried on next use.
+		 *
+		 * @throws IOException
+		 * @throws ParserConfigurationException
+		 * @throws SAXException
 		 */
-		static Engine create(@Nonnull final JLanguageTool languageTool,
-				@Nonnull final TagParser tagParser,
-				@Nonnull final WordFilter filter) {
-			return new Engine(languageTool, tagParser, filter);
+		synchronized EnginePool<SentenceAnalyzer> load()
+		throws IOException, ParserConfigurationException, SAXException {
+			EnginePool<SentenceAnalyzer> languageTools = this.languageTools;
+			if (languageTools == null) {
+				languageTools = createLanguageTools(this.language, this.mode, this.poolSize, this.borrowTimeout, this.unit);
+				this.languageTools = languageTools;
+			}
+			return languageTools;
 		}
 	}
 }
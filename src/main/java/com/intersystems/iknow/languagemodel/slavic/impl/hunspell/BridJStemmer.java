@@ -0,0 +1,48 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.impl.hunspell;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import com.atlascopco.hunspell.Hunspell;
+
+/**
+ * A {@linkplain Stemmer stemmer} backed by the BridJ binding
+ * ({@code hunspell-bridj}), which works with any Java version, but
+ * allocates a list of its own per word.
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class BridJStemmer implements Stemmer {
+	@Nonnull
+	private final Hunspell hunspell;
+
+	/**
+	 * @param dictionaryPath the path of the {@code .dic} file.
+	 * @param affixPath the path of the {@code .aff} file.
+	 */
+	public BridJStemmer(@Nonnull final String dictionaryPath, @Nonnull final String affixPath) {
+		this.hunspell = new Hunspell(dictionaryPath, affixPath);
+	}
+
+	/**
+	 * @see Stemmer#stem(String, List)
+	 */
+	@Override
+	public int stem(final String word, final List<String> stems) {
+		final List<String> wordStems = this.hunspell.stem(word);
+		stems.addAll(wordStems);
+		return wordStems.size();
+	}
+
+	/**
+	 * @see Stemmer#close()
+	 */
+	@Override
+	public void close() {
+		this.hunspell.close();
+	}
+}
@@ -0,0 +1,33 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.impl.hunspell;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A native Hunspell handle, loaded with a single dictionary. Instances
+ * are not safe for concurrent use, and hold native memory until
+ * {@linkplain #close() closed}.
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public interface Stemmer extends AutoCloseable {
+	/**
+	 * @param word
+	 * @param stems receives the stems of the <em>word</em>; reusing
+	 *        the same list across calls saves an allocation per word.
+	 * @return the number of stems added.
+	 */
+	int stem(@Nonnull final String word, @Nonnull final List<String> stems);
+
+	/**
+	 * Frees the native handle. The stemmer can't be used afterwards.
+	 *
+	 * @see AutoCloseable#close()
+	 */
+	@Override
+	void close();
+}
@@ -0,0 +1,46 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.impl.languagetool;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import org.languagetool.AnalyzedSentence;
+import org.languagetool.JLanguageTool;
+
+/**
+ * A {@linkplain SentenceAnalyzer sentence analyzer} backed by a complete
+ * {@link JLanguageTool} instance.
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class JLanguageToolSentenceAnalyzer implements SentenceAnalyzer {
+	@Nonnull
+	private final JLanguageTool languageTool;
+
+	/**
+	 * @param languageTool
+	 */
+	public JLanguageToolSentenceAnalyzer(@Nonnull final JLanguageTool languageTool) {
+		this.languageTool = languageTool;
+	}
+
+	/**
+	 * @see SentenceAnalyzer#sentenceTokenize(String)
+	 */
+	@Override
+	public List<String> sentenceTokenize(final String text) {
+		return this.languageTool.sentenceTokenize(text);
+	}
+
+	/**
+	 * @see SentenceAnalyzer#getAnalyzedSentence(String)
+	 */
+	@Override
+	public AnalyzedSentence getAnalyzedSentence(final String sentence) throws IOException {
+		return this.languageTool.getAnalyzedSentence(sentence);
+	}
+}
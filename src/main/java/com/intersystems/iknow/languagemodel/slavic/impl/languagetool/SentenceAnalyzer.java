@@ -0,0 +1,34 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.impl.languagetool;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.languagetool.AnalyzedSentence;
+
+/**
+ * The part of a LanguageTool engine which morphological analysis needs:
+ * sentence splitting, and tagging (with disambiguation) of a single
+ * sentence. Instances are not safe for concurrent use.
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public interface SentenceAnalyzer {
+	/**
+	 * @param text
+	 * @return the sentences of the <em>text</em>, which, concatenated,
+	 *         make up the whole <em>text</em>.
+	 */
+	List<String> sentenceTokenize(final String text);
+
+	/**
+	 * @param sentence
+	 * @return the tokens of the <em>sentence</em>, including whitespace,
+	 *         preceded by the sentence start token, along with their
+	 *         readings.
+	 * @throws IOException
+	 */
+	AnalyzedSentence getAnalyzedSentence(final String sentence) throws IOException;
+}
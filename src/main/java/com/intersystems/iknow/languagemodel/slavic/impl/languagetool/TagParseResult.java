@@ -4,15 +4,14 @@
 package com.intersystems.iknow.languagemodel.slavic.impl.languagetool;
 
 import static java.util.Arrays.asList;
-import static java.util.Collections.unmodifiableSet;
 
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Set;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.intersystems.iknow.languagemodel.slavic.GrammaticalCategories;
 import com.intersystems.iknow.languagemodel.slavic.GrammaticalCategory;
 import com.intersystems.iknow.languagemodel.slavic.PartOfSpeech;
 
@@ -23,8 +22,10 @@ public final class TagParseResult {
 	@Nullable
 	private final PartOfSpeech partOfSpeech;
 
-	@Nonnull
-	private final Set<GrammaticalCategory> categories = new HashSet<>();
+	/**
+	 * @see GrammaticalCategories
+	 */
+	private final long categoryMask;
 
 	/**
 	 * @param partOfSpeech
@@ -42,14 +43,25 @@ public final class TagParseResult {
 	TagParseResult(@Nullable final PartOfSpeech partOfSpeech,
 			@Nonnull final Collection<GrammaticalCategory> categories) {
 		this.partOfSpeech = partOfSpeech;
-		this.categories.addAll(categories);
+		this.categoryMask = GrammaticalCategories.mask(categories);
 	}
 
 	public PartOfSpeech getPartOfSpeech() {
 		return this.partOfSpeech;
 	}
 
+	/**
+	 * @return a read-only view of the {@linkplain #getCategoryMask()
+	 *         category mask}.
+	 */
 	public Set<GrammaticalCategory> getCategories() {
-		return unmodifiableSet(this.categories);
+		return GrammaticalCategories.asSet(this.categoryMask);
+	}
+
+	/**
+	 * @see GrammaticalCategories
+	 */
+	public long getCategoryMask() {
+		return this.categoryMask;
 	}
 }
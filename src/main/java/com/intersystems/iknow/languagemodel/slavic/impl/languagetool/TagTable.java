@@ -0,0 +1,67 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.impl.languagetool;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A {@linkplain TagParser tag parser} which compiles each distinct tag
+ * string into a canonical {@link TagParseResult} only once, using its
+ * delegate, and returns the very same instance for any subsequent
+ * occurrence of the tag string.
+ *
+ * <p>LanguageTool tagsets are finite (a few hundred distinct tag strings
+ * per language), so the table is never evicted.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class TagTable implements TagParser {
+	@Nonnull
+	private final TagParser delegate;
+
+	private final ConcurrentMap<String, TagParseResult> table = new ConcurrentHashMap<>(1024);
+
+	/**
+	 * @param delegate
+	 */
+	public TagTable(@Nonnull final TagParser delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Compiles the <em>tags</em> up front, so that no parsing happens
+	 * on the analysis path.
+	 *
+	 * @param tags
+	 */
+	public void compile(@Nonnull final Collection<String> tags) {
+		tags.forEach(this::parse);
+	}
+
+	/**
+	 * @see TagParser#parse(String)
+	 */
+	@Override
+	public TagParseResult parse(final String tags) {
+		if (tags == null) {
+			return this.delegate.parse(tags);
+		}
+
+		final TagParseResult result = this.table.get(tags);
+		return result == null
+				? this.table.computeIfAbsent(tags, this.delegate::parse)
+				: result;
+	}
+
+	/**
+	 * @return the number of distinct tag strings compiled so far.
+	 */
+	public int size() {
+		return this.table.size();
+	}
+}
@@ -0,0 +1,118 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.impl.languagetool;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.languagetool.AnalyzedSentence;
+import org.languagetool.AnalyzedToken;
+import org.languagetool.AnalyzedTokenReadings;
+import org.languagetool.JLanguageTool;
+import org.languagetool.Language;
+import org.languagetool.chunking.Chunker;
+import org.languagetool.tagging.Tagger;
+import org.languagetool.tagging.disambiguation.Disambiguator;
+import org.languagetool.tokenizers.SentenceTokenizer;
+import org.languagetool.tokenizers.Tokenizer;
+
+/**
+ * A {@linkplain SentenceAnalyzer sentence analyzer} which drives the
+ * tokenizers, the tagger and (optionally) the disambiguator of a
+ * {@link Language} directly, the way {@link
+ * JLanguageTool#getAnalyzedSentence(String)} does, but without creating
+ * a {@link JLanguageTool} instance, and hence without loading any rules.
+ *
+ * <p>Soft hyphens are not removed from words before tagging, so a word
+ * containing one gets no readings.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class TaggingSentenceAnalyzer implements SentenceAnalyzer {
+	@Nonnull
+	private final SentenceTokenizer sentenceTokenizer;
+
+	@Nonnull
+	private final Tokenizer wordTokenizer;
+
+	@Nonnull
+	private final Tagger tagger;
+
+	@Nullable
+	private final Chunker chunker;
+
+	@Nullable
+	private final Disambiguator disambiguator;
+
+	/**
+	 * @param language the language, not shared with any other instance,
+	 *        since it holds lazily initialized tokenizers and taggers.
+	 * @param disambiguate whether to run the disambiguator of the
+	 *        <em>language</em>, or keep all the readings of each token.
+	 */
+	public TaggingSentenceAnalyzer(@Nonnull final Language language, final boolean disambiguate) {
+		this.sentenceTokenizer = language.getSentenceTokenizer();
+		this.wordTokenizer = language.getWordTokenizer();
+		this.tagger = language.getTagger();
+		this.chunker = language.getChunker();
+		this.disambiguator = disambiguate ? language.getDisambiguator() : null;
+	}
+
+	/**
+	 * @see SentenceAnalyzer#sentenceTokenize(String)
+	 */
+	@Override
+	public List<String> sentenceTokenize(final String text) {
+		return this.sentenceTokenizer.tokenize(text);
+	}
+
+	/**
+	 * @see SentenceAnalyzer#getAnalyzedSentence(String)
+	 */
+	@Override
+	public AnalyzedSentence getAnalyzedSentence(final String sentence) throws IOException {
+		final List<String> tokens = this.wordTokenizer.tokenize(sentence);
+		final List<AnalyzedTokenReadings> taggedTokens = this.tagger.tag(tokens);
+		if (this.chunker != null) {
+			this.chunker.addChunkTags(taggedTokens);
+		}
+
+		final AnalyzedTokenReadings tokenArray[] = new AnalyzedTokenReadings[taggedTokens.size() + 1];
+		tokenArray[0] = new AnalyzedTokenReadings(new AnalyzedToken[] {new AnalyzedToken("", JLanguageTool.SENTENCE_START_TAGNAME, null)}, 0);
+		int startPos = 0;
+		for (int i = 0; i < taggedTokens.size(); i++) {
+			final AnalyzedTokenReadings taggedToken = taggedTokens.get(i);
+			if (i > 0) {
+				taggedToken.setWhitespaceBefore(taggedTokens.get(i - 1).isWhitespace());
+			}
+			taggedToken.setStartPos(startPos);
+			tokenArray[i + 1] = taggedToken;
+			startPos += taggedToken.getToken().length();
+		}
+
+		/*
+		 * The sentence end goes to the last token which isn't
+		 * whitespace, if any.
+		 */
+		int lastToken = tokenArray.length - 1;
+		for (int i = lastToken; i > 0; i--) {
+			if (!tokenArray[i].isWhitespace()) {
+				lastToken = i;
+				break;
+			}
+		}
+		tokenArray[lastToken].setSentEnd();
+		if (lastToken == tokenArray.length - 1 && tokenArray[lastToken].isLinebreak()) {
+			tokenArray[lastToken].setParagraphEnd();
+		}
+
+		final AnalyzedSentence analyzedSentence = new AnalyzedSentence(tokenArray);
+		return this.disambiguator == null
+				? analyzedSentence
+				: this.disambiguator.disambiguate(analyzedSentence);
+	}
+}
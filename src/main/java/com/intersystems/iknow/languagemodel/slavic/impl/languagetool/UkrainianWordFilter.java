@@ -0,0 +1,225 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.impl.languagetool;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Removes (or blanks out) Ukrainian-only words, i.&nbsp;e. words with an
+ * apostrophe ("п'ятниця", "f'oo-b'ar"), so that they aren't split and
+ * misinterpreted by the analyzers of other languages.
+ *
+ * <p>The text is scanned once, one <em>compound</em> (a run of letters,
+ * digits, apostrophes and hyphens) at a time. Only the compounds which
+ * contain an apostrophe are matched against the expressions below, so
+ * text without apostrophes is returned as is, without any copying.
+ * Otherwise, the expressions are matched against regions of the original
+ * text, and the filtered text is written to a single buffer.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class UkrainianWordFilter implements WordFilter {
+	/**
+	 * Applied to each compound in this order.
+	 */
+	private static final Pattern UKRAINIAN_ONLY_EXPRESSIONS[] = {
+		Pattern.compile("\\b[\\p{L}]+\\'[\\p{L}]+\\-[\\p{L}]+\\'[\\p{L}]+\\b"), // "f'oo-b'ar". This expression should be applied first.
+		Pattern.compile("\\b[\\p{L}]+\\-[\\p{L}]+\\'[\\p{L}]+\\b"), // "foo-b'ar"
+		Pattern.compile("\\b[\\p{L}]+\\'[\\p{L}]+(\\-[\\p{L}]+[\\p{L}]+)?\\b"), // "f'oo" (e.g.: "п'ятниця"), "f'oo-bar"
+	};
+
+	/**
+	 * One bit per {@code char}: whether the character may be a part of
+	 * a compound. Besides letters, digits, apostrophes and hyphens, this
+	 * includes everything {@link Pattern} may treat as a word character
+	 * when matching a word boundary (underscores, combining marks), as well
+	 * as surrogates, so that no match can ever cross the boundary of
+	 * a compound.
+	 */
+	private static final long COMPOUND_CHARACTERS[] = new long[(Character.MAX_VALUE + 1) >>> 6];
+
+	static {
+		for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+			if (Character.isLetterOrDigit(c)
+					|| c == '_'
+					|| c == '\''
+					|| c == '-'
+					|| Character.getType(c) == Character.NON_SPACING_MARK
+					|| Character.isSurrogate((char) c)) {
+				COMPOUND_CHARACTERS[c >>> 6] |= 1L << c;
+			}
+		}
+	}
+
+	private final boolean mask;
+
+	/**
+	 * @param mask whether Ukrainian-only words should be replaced with
+	 *        spaces (so that the rest of the text keeps its offsets)
+	 *        rather than removed.
+	 */
+	public UkrainianWordFilter(final boolean mask) {
+		this.mask = mask;
+	}
+
+	/**
+	 * @see WordFilter#getFilteredText(String)
+	 */
+	@Override
+	public String getFilteredText(@Nonnull final String originalText) {
+		final int length = originalText.length();
+
+		/*
+		 * Only allocated once something has to be filtered out.
+		 */
+		StringBuilder filteredText = null;
+		int copied = 0;
+
+		/*
+		 * Only allocated once a compound with an apostrophe is found,
+		 * and reused for the rest of the text.
+		 */
+		Matcher matchers[] = null;
+		Words words = null;
+		Words mergedWords = null;
+
+		int i = 0;
+		while (i < length) {
+			if (!isCompoundCharacter(originalText.charAt(i))) {
+				i++;
+				continue;
+			}
+
+			final int start = i;
+			boolean apostrophe = false;
+			while (i < length && isCompoundCharacter(originalText.charAt(i))) {
+				apostrophe |= originalText.charAt(i) == '\'';
+				i++;
+			}
+			if (!apostrophe) {
+				continue;
+			}
+
+			if (matchers == null) {
+				matchers = new Matcher[UKRAINIAN_ONLY_EXPRESSIONS.length];
+				for (int j = 0; j < matchers.length; j++) {
+					matchers[j] = UKRAINIAN_ONLY_EXPRESSIONS[j].matcher(originalText);
+				}
+				words = new Words();
+				mergedWords = new Words();
+			}
+
+			/*
+			 * Each next expression is only matched between the words
+			 * the previous ones have filtered out. No match can span such
+			 * a word: the characters around it are hyphens or apostrophes,
+			 * which no expression allows two of in a row.
+			 */
+			words.clear();
+			words.find(matchers[0], originalText, start, i);
+			for (int j = 1; j < matchers.length; j++) {
+				mergedWords.clear();
+				int from = start;
+				for (int k = 0; k < words.size; k += 2) {
+					mergedWords.find(matchers[j], originalText, from, words.offsets[k]);
+					mergedWords.add(words.offsets[k], words.offsets[k + 1]);
+					from = words.offsets[k + 1];
+				}
+				mergedWords.find(matchers[j], originalText, from, i);
+
+				final Words swap = words;
+				words = mergedWords;
+				mergedWords = swap;
+			}
+			if (words.size == 0) {
+				continue;
+			}
+
+			if (filteredText == null) {
+				filteredText = new StringBuilder(length);
+			}
+			for (int k = 0; k < words.size; k += 2) {
+				filteredText.append(originalText, copied, words.offsets[k]);
+				if (this.mask) {
+					for (int j = words.offsets[k]; j < words.offsets[k + 1]; j++) {
+						filteredText.append(' ');
+					}
+				}
+				copied = words.offsets[k + 1];
+			}
+		}
+
+		if (filteredText == null) {
+			return originalText;
+		}
+		return filteredText.append(originalText, copied, length).toString();
+	}
+
+	/**
+	 * @param c
+	 */
+	private static boolean isCompoundCharacter(final char c) {
+		return (COMPOUND_CHARACTERS[c >>> 6] & 1L << c) != 0;
+	}
+
+	/**
+	 * The start and end offsets of the words to filter out of a compound,
+	 * in the order of occurrence.
+	 *
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	private static final class Words {
+		int offsets[] = new int[8];
+
+		/**
+		 * The number of offsets, i.&nbsp;e. twice the number of words.
+		 */
+		int size;
+
+		void clear() {
+			this.size = 0;
+		}
+
+		/**
+		 * @param start
+		 * @param end
+		 */
+		void add(final int start, final int end) {
+			if (this.size == this.offsets.length) {
+				this.offsets = Arrays.copyOf(this.offsets, 2 * this.size);
+			}
+			this.offsets[this.size++] = start;
+			this.offsets[this.size++] = end;
+		}
+
+		/**
+		 * Adds the words the <em>matcher</em> finds between <em>start</em>
+		 * and <em>end</em>. The bounds of the region are opaque, so words
+		 * are matched just as if the region were a string of its own.
+		 *
+		 * @param matcher
+		 * @param text the text the <em>matcher</em> has been created for.
+		 * @param start
+		 * @param end
+		 */
+		void find(final Matcher matcher, final String text, final int start, final int end) {
+			/*
+			 * Every expression needs an apostrophe.
+			 */
+			final int apostrophe = text.indexOf('\'', start);
+			if (apostrophe == -1 || apostrophe >= end) {
+				return;
+			}
+
+			matcher.region(start, end);
+			while (matcher.find()) {
+				this.add(matcher.start(), matcher.end());
+			}
+		}
+	}
+}
@@ -0,0 +1,41 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.jfr;
+
+import javax.annotation.Nonnull;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A single analyzer call, in a single language. The token count is the
+ * number of distinct word forms.
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+@Name(FlightRecorderEvents.NAME_PREFIX + "Analysis")
+@Label("Morphological Analysis")
+public final class AnalysisEvent extends MorphologicalAnalysisEvent {
+	@Label("Engine")
+	@Description("Either languagetool or hunspell")
+	final String engine;
+
+	/**
+	 * @param engine
+	 */
+	private AnalysisEvent(@Nonnull final String engine) {
+		this.engine = engine;
+	}
+
+	/**
+	 * @param engine either {@code languagetool} or {@code hunspell}.
+	 * @return a new event, which has begun.
+	 */
+	public static AnalysisEvent start(@Nonnull final String engine) {
+		final AnalysisEvent event = new AnalysisEvent(engine);
+		event.begin();
+		return event;
+	}
+}
@@ -0,0 +1,58 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The time an engine instance is borrowed from a pool, from the
+ * borrow call until the instance is returned. The token count is the
+ * number of distinct word forms analyzed by the instance.
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+@Name(FlightRecorderEvents.NAME_PREFIX + "EngineBorrow")
+@Label("Engine Borrow")
+public final class EngineBorrowEvent extends MorphologicalAnalysisEvent {
+	@Label("Pool Size")
+	final int poolSize;
+
+	@Label("Wait Time")
+	@Description("The time spent waiting for a free engine instance")
+	@Timespan
+	long waitTime;
+
+	private final transient long startNanos;
+
+	/**
+	 * @param poolSize
+	 */
+	private EngineBorrowEvent(final int poolSize) {
+		this.poolSize = poolSize;
+		this.startNanos = this.isEnabled() ? System.nanoTime() : 0L;
+	}
+
+	/**
+	 * @param poolSize
+	 * @return a new event, which has begun.
+	 */
+	public static EngineBorrowEvent start(final int poolSize) {
+		final EngineBorrowEvent event = new EngineBorrowEvent(poolSize);
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Records the time spent waiting, once an engine instance has been
+	 * borrowed.
+	 */
+	public void borrowed() {
+		if (this.startNanos != 0L) {
+			this.waitTime = System.nanoTime() - this.startNanos;
+		}
+	}
+}
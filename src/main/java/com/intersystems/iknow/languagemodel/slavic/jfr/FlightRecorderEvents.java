@@ -0,0 +1,47 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.jfr;
+
+/**
+ * Java Flight Recorder events of the analysis pipeline. All of them are
+ * disabled by default, and have to be enabled in the recording settings,
+ * e.&nbsp;g.:
+ *
+ * <pre>
+ * &lt;event name="com.intersystems.iknow.languagemodel.slavic.Analysis"&gt;
+ *   &lt;setting name="enabled"&gt;true&lt;/setting&gt;
+ * &lt;/event&gt;
+ * </pre>
+ *
+ * <p>The library targets Java 8, and not every Java 8 runtime ships the
+ * {@code jdk.jfr} API (it has been backported to OpenJDK 8u262). The
+ * event classes are only ever loaded if {@link #AVAILABLE} is {@code true},
+ * so the callers should check it before creating an event.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class FlightRecorderEvents {
+	/**
+	 * The prefix of all the event names.
+	 */
+	public static final String NAME_PREFIX = "com.intersystems.iknow.languagemodel.slavic.";
+
+	/**
+	 * Whether the {@code jdk.jfr} API is available in this runtime.
+	 */
+	public static final boolean AVAILABLE = isAvailable();
+
+	private FlightRecorderEvents() {
+		assert false;
+	}
+
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, FlightRecorderEvents.class.getClassLoader());
+			return true;
+		} catch (final ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+}
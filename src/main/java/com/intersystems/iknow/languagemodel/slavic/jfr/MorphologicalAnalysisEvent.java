@@ -0,0 +1,118 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.jfr;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalysisResult;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * The fields shared by all the events of the analysis pipeline. The event
+ * {@linkplain #begin() begins} when created with {@code start()}.
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ * @see FlightRecorderEvents
+ */
+@Category({"InterSystems iKnow", "Morphological Analysis"})
+@Enabled(false)
+@StackTrace(false)
+public abstract class MorphologicalAnalysisEvent extends Event {
+	@Label("Language")
+	@Description("The language of the analysis, or null if the call covers several languages")
+	String language;
+
+	@Label("Input Length")
+	@Description("The number of characters analyzed")
+	int inputLength;
+
+	@Label("Token Count")
+	int tokenCount;
+
+	@Label("Reading Count")
+	int readingCount;
+
+	/**
+	 * @param language
+	 * @param inputLength
+	 * @param tokenCount
+	 * @param readingCount
+	 */
+	public final void set(@Nullable final String language,
+			final int inputLength,
+			final int tokenCount,
+			final int readingCount) {
+		this.language = language;
+		this.inputLength = inputLength;
+		this.tokenCount = tokenCount;
+		this.readingCount = readingCount;
+	}
+
+	/**
+	 * Ends and commits the event, counting the tokens and the readings
+	 * of the <em>results</em> only if the event is going to be recorded.
+	 *
+	 * @param language
+	 * @param inputLength
+	 * @param results
+	 */
+	public final void record(@Nullable final String language,
+			final int inputLength,
+			@Nonnull final Map<String, Set<MorphologicalAnalysisResult>> results) {
+		this.end();
+		if (this.shouldCommit()) {
+			this.set(language, inputLength, results.size(), readingCount(results));
+			this.commit();
+		}
+	}
+
+	/**
+	 * Ends and commits the event, counting the tokens and the readings
+	 * of the <em>batchResults</em> only if the event is going to be
+	 * recorded.
+	 *
+	 * @param language
+	 * @param inputLength
+	 * @param batchResults
+	 */
+	public final void record(@Nullable final String language,
+			final int inputLength,
+			@Nonnull final List<Map<String, Set<MorphologicalAnalysisResult>>> batchResults) {
+		this.end();
+		if (this.shouldCommit()) {
+			int tokens = 0;
+			int readings = 0;
+			for (final Map<String, Set<MorphologicalAnalysisResult>> results : batchResults) {
+				tokens += results.size();
+				readings += readingCount(results);
+			}
+			this.set(language, inputLength, tokens, readings);
+			this.commit();
+		}
+	}
+
+	/**
+	 * @param results
+	 */
+	private static int readingCount(final Map<String, Set<MorphologicalAnalysisResult>> results) {
+		int readings = 0;
+		for (final Set<MorphologicalAnalysisResult> tokenResults : results.values()) {
+			if (tokenResults != null) {
+				readings += tokenResults.size();
+			}
+		}
+		return readings;
+	}
+}
@@ -0,0 +1,31 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.jfr;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Serialization of analysis results to JSON. The input length is that of
+ * the text analyzed, and the token count is the number of distinct word
+ * forms serialized.
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+@Name(FlightRecorderEvents.NAME_PREFIX + "Serialization")
+@Label("Serialization")
+public final class SerializationEvent extends MorphologicalAnalysisEvent {
+	private SerializationEvent() {
+		// empty
+	}
+
+	/**
+	 * @return a new event, which has begun.
+	 */
+	public static SerializationEvent start() {
+		final SerializationEvent event = new SerializationEvent();
+		event.begin();
+		return event;
+	}
+}
@@ -0,0 +1,30 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.jfr;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A single tagger invocation, which analyzes a single sentence. The token
+ * count includes repeated word forms and punctuation marks.
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+@Name(FlightRecorderEvents.NAME_PREFIX + "Tagging")
+@Label("Tagging")
+public final class TaggingEvent extends MorphologicalAnalysisEvent {
+	private TaggingEvent() {
+		// empty
+	}
+
+	/**
+	 * @return a new event, which has begun.
+	 */
+	public static TaggingEvent start() {
+		final TaggingEvent event = new TaggingEvent();
+		event.begin();
+		return event;
+	}
+}
@@ -0,0 +1,171 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.metrics;
+
+import static java.util.Collections.unmodifiableMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The metrics of a single analyzer: per-language {@linkplain
+ * LanguageMetrics metrics}, along with the latencies of the stages
+ * shared by all the languages (e.&nbsp;g. Hunspell tokenization, or
+ * serialization).
+ *
+ * <p>Once {@linkplain #register(MBeanServer, String) registered}, the
+ * metrics are available over JMX as</p>
+ * <ul>
+ * <li>{@code com.intersystems.iknow.languagemodel.slavic:type=AnalysisMetrics,name=<em>name</em>,stage=<em>stage</em>},</li>
+ * <li>{@code com.intersystems.iknow.languagemodel.slavic:type=AnalysisMetrics,name=<em>name</em>,language=<em>language</em>},
+ * and</li>
+ * <li>{@code com.intersystems.iknow.languagemodel.slavic:type=AnalysisMetrics,name=<em>name</em>,language=<em>language</em>,stage=<em>stage</em>}.</li>
+ * </ul>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class AnalysisMetrics {
+	public static final String DOMAIN = "com.intersystems.iknow.languagemodel.slavic";
+
+	/**
+	 * Indexed by {@link Stage#ordinal()}; {@code null} for the stages
+	 * not timed.
+	 */
+	private final LatencyHistogram stages[] = new LatencyHistogram[Stage.values().length];
+
+	@Nonnull
+	private final Map<String, LanguageMetrics> languages;
+
+	private final List<ObjectName> registeredNames = new ArrayList<>();
+
+	/**
+	 * @param sharedStages the stages shared by all the languages.
+	 * @param languages
+	 * @param languageStages the stages timed for each language.
+	 */
+	public AnalysisMetrics(@Nonnull final Set<Stage> sharedStages,
+			@Nonnull final Collection<String> languages,
+			@Nonnull final Set<Stage> languageStages) {
+		sharedStages.forEach(stage -> this.stages[stage.ordinal()] = new LatencyHistogram());
+
+		final Map<String, LanguageMetrics> languageMetrics = new LinkedHashMap<>();
+		languages.forEach(language -> languageMetrics.put(language, new LanguageMetrics(language, languageStages)));
+		this.languages = unmodifiableMap(languageMetrics);
+	}
+
+	/**
+	 * Records the time spent in a shared <em>stage</em> by a single call.
+	 *
+	 * @param stage
+	 * @param nanos
+	 */
+	public void record(@Nonnull final Stage stage, final long nanos) {
+		final LatencyHistogram histogram = this.stages[stage.ordinal()];
+		if (histogram != null) {
+			histogram.record(nanos);
+		}
+	}
+
+	/**
+	 * @param stage
+	 * @return the latencies of the shared <em>stage</em>, or {@code null}
+	 *         if the <em>stage</em> is not timed.
+	 */
+	@Nullable
+	public LatencyHistogram getStage(@Nonnull final Stage stage) {
+		return this.stages[stage.ordinal()];
+	}
+
+	/**
+	 * @param language
+	 * @return the metrics of the <em>language</em>, or {@code null}
+	 *         if the <em>language</em> is not analyzed.
+	 */
+	@Nullable
+	public LanguageMetrics getLanguage(final String language) {
+		return this.languages.get(language);
+	}
+
+	/**
+	 * @return the metrics of each language, by language.
+	 */
+	public Map<String, LanguageMetrics> getLanguages() {
+		return this.languages;
+	}
+
+	/**
+	 * Registers the metrics as MBeans.
+	 *
+	 * @param server
+	 * @param name distinguishes the metrics of this analyzer from those
+	 *        of the others, e.&nbsp;g. {@code languagetool}.
+	 * @throws JMException
+	 */
+	public synchronized void register(@Nonnull final MBeanServer server, @Nonnull final String name)
+	throws JMException {
+		final String prefix = DOMAIN + ":type=" + AnalysisMetrics.class.getSimpleName() + ",name=" + ObjectName.quote(name);
+		for (final Stage stage : Stage.values()) {
+			final LatencyHistogram histogram = this.stages[stage.ordinal()];
+			if (histogram != null) {
+				this.register(server, histogram, prefix + ",stage=" + stage.getKey());
+			}
+		}
+		for (final LanguageMetrics languageMetrics : this.languages.values()) {
+			final String languagePrefix = prefix + ",language=" + languageMetrics.getLanguage();
+			this.register(server, languageMetrics, languagePrefix);
+			for (final Stage stage : Stage.values()) {
+				final LatencyHistogram histogram = languageMetrics.getStage(stage);
+				if (histogram != null) {
+					this.register(server, histogram, languagePrefix + ",stage=" + stage.getKey());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param server
+	 * @param mbean
+	 * @param objectName
+	 * @throws JMException
+	 */
+	private void register(final MBeanServer server, final Object mbean, final String objectName)
+	throws JMException {
+		final ObjectName registeredName = server.registerMBean(mbean, new ObjectName(objectName)).getObjectName();
+		this.registeredNames.add(registeredName);
+	}
+
+	/**
+	 * Unregisters the MBeans previously {@linkplain #register(MBeanServer,
+	 * String) registered}.
+	 *
+	 * @param server
+	 * @throws JMException
+	 */
+	public synchronized void unregister(@Nonnull final MBeanServer server) throws JMException {
+		for (final ObjectName registeredName : this.registeredNames) {
+			if (server.isRegistered(registeredName)) {
+				server.unregisterMBean(registeredName);
+			}
+		}
+		this.registeredNames.clear();
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("{:languages %s}", this.languages.values());
+	}
+}
@@ -0,0 +1,162 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.metrics;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Analysis metrics of a single language: how many tokens have been
+ * analyzed, how many readings they've got, how many have been out of
+ * vocabulary, and the time spent in each {@linkplain Stage stage}.
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class LanguageMetrics implements LanguageMetricsMBean {
+	@Nonnull
+	private final String language;
+
+	/**
+	 * Indexed by {@link Stage#ordinal()}; {@code null} for the stages
+	 * not timed.
+	 */
+	private final LatencyHistogram stages[] = new LatencyHistogram[Stage.values().length];
+
+	private final LongAdder tokenCount = new LongAdder();
+
+	private final LongAdder readingCount = new LongAdder();
+
+	private final LongAdder outOfVocabularyCount = new LongAdder();
+
+	/**
+	 * @param language
+	 * @param stages the stages to time.
+	 */
+	public LanguageMetrics(@Nonnull final String language, @Nonnull final Set<Stage> stages) {
+		this.language = language;
+		stages.forEach(stage -> this.stages[stage.ordinal()] = new LatencyHistogram());
+	}
+
+	/**
+	 * Records the time spent in the <em>stage</em> by a single call.
+	 *
+	 * @param stage
+	 * @param nanos
+	 */
+	public void record(@Nonnull final Stage stage, final long nanos) {
+		final LatencyHistogram histogram = this.stages[stage.ordinal()];
+		if (histogram != null) {
+			histogram.record(nanos);
+		}
+	}
+
+	/**
+	 * @param tokens the number of tokens analyzed.
+	 * @param readings the number of readings the <em>tokens</em> have got.
+	 * @param outOfVocabularyTokens the number of <em>tokens</em> with no
+	 *        readings.
+	 */
+	public void recordTokens(final int tokens, final int readings, final int outOfVocabularyTokens) {
+		if (tokens != 0) {
+			this.tokenCount.add(tokens);
+			this.readingCount.add(readings);
+			this.outOfVocabularyCount.add(outOfVocabularyTokens);
+		}
+	}
+
+	/**
+	 * @param stage
+	 * @return the latencies of the <em>stage</em>, or {@code null} if the
+	 *         <em>stage</em> is not timed.
+	 */
+	@Nullable
+	public LatencyHistogram getStage(@Nonnull final Stage stage) {
+		return this.stages[stage.ordinal()];
+	}
+
+	/**
+	 * @see LanguageMetricsMBean#getLanguage()
+	 */
+	@Override
+	public String getLanguage() {
+		return this.language;
+	}
+
+	/**
+	 * @see LanguageMetricsMBean#getTokenCount()
+	 */
+	@Override
+	public long getTokenCount() {
+		return this.tokenCount.sum();
+	}
+
+	/**
+	 * @see LanguageMetricsMBean#getReadingCount()
+	 */
+	@Override
+	public long getReadingCount() {
+		return this.readingCount.sum();
+	}
+
+	/**
+	 * @see LanguageMetricsMBean#getOutOfVocabularyCount()
+	 */
+	@Override
+	public long getOutOfVocabularyCount() {
+		return this.outOfVocabularyCount.sum();
+	}
+
+	/**
+	 * @see LanguageMetricsMBean#getReadingsPerToken()
+	 */
+	@Override
+	public double getReadingsPerToken() {
+		final long tokens = this.getTokenCount();
+		return tokens == 0 ? 0 : (double) this.getReadingCount() / tokens;
+	}
+
+	/**
+	 * @see LanguageMetricsMBean#getOutOfVocabularyRate()
+	 */
+	@Override
+	public double getOutOfVocabularyRate() {
+		final long tokens = this.getTokenCount();
+		return tokens == 0 ? 0 : (double) this.getOutOfVocabularyCount() / tokens;
+	}
+
+	/**
+	 * @return the number of tokens analyzed per second spent in all the
+	 *         stages timed, i.&nbsp;e. the throughput of a single thread
+	 *         while it's busy.
+	 * @see LanguageMetricsMBean#getTokensPerSecond()
+	 */
+	@Override
+	public double getTokensPerSecond() {
+		long totalNanos = 0;
+		for (final LatencyHistogram histogram : this.stages) {
+			if (histogram != null) {
+				totalNanos += histogram.getTotalNanos();
+			}
+		}
+		return totalNanos == 0 ? 0 : (double) this.getTokenCount() * SECONDS.toNanos(1) / totalNanos;
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("{:language %s :tokens %d :readingsPerToken %.2f :outOfVocabularyRate %.3f :tokensPerSecond %.0f}",
+				this.language,
+				Long.valueOf(this.getTokenCount()),
+				Double.valueOf(this.getReadingsPerToken()),
+				Double.valueOf(this.getOutOfVocabularyRate()),
+				Double.valueOf(this.getTokensPerSecond()));
+	}
+}
@@ -0,0 +1,24 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.metrics;
+
+/**
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ * @see LanguageMetrics
+ */
+public interface LanguageMetricsMBean {
+	String getLanguage();
+
+	long getTokenCount();
+
+	long getReadingCount();
+
+	long getOutOfVocabularyCount();
+
+	double getReadingsPerToken();
+
+	double getOutOfVocabularyRate();
+
+	double getTokensPerSecond();
+}
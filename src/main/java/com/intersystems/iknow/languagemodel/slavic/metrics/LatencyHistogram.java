@@ -0,0 +1,197 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies, in nanoseconds, with log-linear buckets:
+ * each power of two is split into {@value #SUB_BUCKETS} equal buckets,
+ * so percentiles are reported with a relative error of at most 25%,
+ * over the whole range of {@code long} values.
+ *
+ * <p>{@linkplain #record(long) Recording} is lock-free and doesn't
+ * allocate (save for the cells {@link LongAdder} may add under
+ * contention), so it can stay on in production. Readings are not
+ * an atomic snapshot, which is fine for monitoring.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class LatencyHistogram implements LatencyHistogramMBean {
+	private static final int SUB_BUCKET_BITS = 2;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Values below {@link #SUB_BUCKETS} get a bucket each; then
+	 * {@link #SUB_BUCKETS} buckets for each of the remaining powers of
+	 * two.
+	 */
+	private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final LongAdder buckets[] = new LongAdder[BUCKETS];
+
+	private final LongAdder count = new LongAdder();
+
+	private final LongAdder totalNanos = new LongAdder();
+
+	private final AtomicLong maximumNanos = new AtomicLong();
+
+	public LatencyHistogram() {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * @param nanos the latency; negative values (a clock going backwards)
+	 *        are recorded as zero.
+	 */
+	public void record(final long nanos) {
+		final long value = Math.max(nanos, 0);
+		this.buckets[bucketOf(value)].increment();
+		this.count.increment();
+		this.totalNanos.add(value);
+		if (value > this.maximumNanos.get()) {
+			this.maximumNanos.accumulateAndGet(value, Math::max);
+		}
+	}
+
+	/**
+	 * @param value a non-negative value.
+	 */
+	static int bucketOf(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		final int subBucket = (int) (value >>> exponent - SUB_BUCKET_BITS) & SUB_BUCKETS - 1;
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * @param bucket
+	 * @return the greatest value which falls into the <em>bucket</em>.
+	 */
+	static long upperBoundOf(final int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		final long subBucket = bucket % SUB_BUCKETS;
+		final long lowerBound = (SUB_BUCKETS + subBucket) << exponent - SUB_BUCKET_BITS;
+		return lowerBound + (1L << exponent - SUB_BUCKET_BITS) - 1;
+	}
+
+	/**
+	 * @param fraction from 0 to 1.
+	 * @return the upper bound of the bucket the percentile falls into
+	 *         (but no more than the {@linkplain #getMaximumNanos() maximum}),
+	 *         or {@code 0} if nothing has been recorded yet.
+	 */
+	public long getPercentileNanos(final double fraction) {
+		if (fraction < 0 || fraction > 1) {
+			throw new IllegalArgumentException("Not a fraction: " + fraction);
+		}
+
+		final long counts[] = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = this.buckets[i].sum();
+			total += counts[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		final long rank = Math.max(1, (long) Math.ceil(fraction * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(upperBoundOf(i), this.getMaximumNanos());
+			}
+		}
+		return this.getMaximumNanos();
+	}
+
+	/**
+	 * @see LatencyHistogramMBean#getCount()
+	 */
+	@Override
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	/**
+	 * @see LatencyHistogramMBean#getTotalNanos()
+	 */
+	@Override
+	public long getTotalNanos() {
+		return this.totalNanos.sum();
+	}
+
+	/**
+	 * @see LatencyHistogramMBean#getMeanNanos()
+	 */
+	@Override
+	public double getMeanNanos() {
+		final long count = this.getCount();
+		return count == 0 ? 0 : (double) this.getTotalNanos() / count;
+	}
+
+	/**
+	 * @see LatencyHistogramMBean#getMaximumNanos()
+	 */
+	@Override
+	public long getMaximumNanos() {
+		return this.maximumNanos.get();
+	}
+
+	/**
+	 * @see LatencyHistogramMBean#getMedianNanos()
+	 */
+	@Override
+	public long getMedianNanos() {
+		return this.getPercentileNanos(0.5);
+	}
+
+	/**
+	 * @see LatencyHistogramMBean#get90thPercentileNanos()
+	 */
+	@Override
+	public long get90thPercentileNanos() {
+		return this.getPercentileNanos(0.9);
+	}
+
+	/**
+	 * @see LatencyHistogramMBean#get99thPercentileNanos()
+	 */
+	@Override
+	public long get99thPercentileNanos() {
+		return this.getPercentileNanos(0.99);
+	}
+
+	/**
+	 * @see LatencyHistogramMBean#get999thPercentileNanos()
+	 */
+	@Override
+	public long get999thPercentileNanos() {
+		return this.getPercentileNanos(0.999);
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("{:count %d :meanNanos %.0f :medianNanos %d :p99Nanos %d :maximumNanos %d}",
+				Long.valueOf(this.getCount()),
+				Double.valueOf(this.getMeanNanos()),
+				Long.valueOf(this.getMedianNanos()),
+				Long.valueOf(this.get99thPercentileNanos()),
+				Long.valueOf(this.getMaximumNanos()));
+	}
+}
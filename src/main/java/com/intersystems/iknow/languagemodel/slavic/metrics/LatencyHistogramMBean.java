@@ -0,0 +1,26 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.metrics;
+
+/**
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ * @see LatencyHistogram
+ */
+public interface LatencyHistogramMBean {
+	long getCount();
+
+	long getTotalNanos();
+
+	double getMeanNanos();
+
+	long getMaximumNanos();
+
+	long getMedianNanos();
+
+	long get90thPercentileNanos();
+
+	long get99thPercentileNanos();
+
+	long get999thPercentileNanos();
+}
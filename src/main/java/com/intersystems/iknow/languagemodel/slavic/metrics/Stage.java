@@ -0,0 +1,55 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.metrics;
+
+import java.util.Locale;
+
+/**
+ * The stages of the analysis pipeline, timed separately.
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public enum Stage {
+	/**
+	 * Removing or blanking out words a language shouldn't see.
+	 */
+	FILTERING,
+
+	/**
+	 * Splitting text into sentences or words.
+	 */
+	TOKENIZATION,
+
+	/**
+	 * Looking words up: {@code getAnalyzedSentence()} for LanguageTool
+	 * (which also tokenizes sentences into words and disambiguates), or
+	 * {@code stem()} for Hunspell.
+	 */
+	TAGGING,
+
+	/**
+	 * Parsing part-of-speech tags into grammatical categories.
+	 */
+	TAG_PARSING,
+
+	/**
+	 * Collecting tagger output into analysis results, excluding
+	 * {@linkplain #TAG_PARSING tag parsing}.
+	 */
+	RESULT_CONSTRUCTION,
+
+	/**
+	 * Writing analysis results out, e.&nbsp;g. as JSON.
+	 */
+	SERIALIZATION,
+	;
+
+	/**
+	 * @return the stage name as used in JMX object names, e.&nbsp;g.
+	 *         {@code tag-parsing}, whatever the default locale.
+	 */
+	public String getKey() {
+		return this.name().toLowerCase(Locale.ROOT).replace('_', '-');
+	}
+}
@@ -0,0 +1,278 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.server;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+
+import com.intersystems.iknow.languagemodel.slavic.AnalysisException;
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalysisResult;
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.TokenSpan;
+
+/**
+ * A {@linkplain MorphologicalAnalyzer morphological analyzer} which runs
+ * each call to its delegate on a fixed number of worker threads, with
+ * a limited number of calls allowed to wait for a free worker.
+ *
+ * <p>RMI serves each call on a thread of its own, so under a burst
+ * of calls the number of threads competing for the delegate is unbounded.
+ * Here, once all the workers are busy and the queue is full, a call fails
+ * immediately with an {@link AnalysisException} caused by a {@link
+ * RejectedExecutionException}, so that the client can back off or retry
+ * elsewhere, instead of piling up on the server. Since {@link
+ * AnalysisException} is a {@link java.rmi.RemoteException}, a remote client
+ * receives it wrapped in a {@link java.rmi.ServerException}.</p>
+ *
+ * <p>This class is thread-safe provided the delegate is.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class BoundedMorphologicalAnalyzer implements MorphologicalAnalyzer {
+	@Nonnull
+	private final MorphologicalAnalyzer delegate;
+
+	private final int workerCount;
+
+	private final int queueDepth;
+
+	@Nonnull
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * One permit per call either running or queued.
+	 */
+	@Nonnull
+	private final Semaphore permits;
+
+	private final LongAdder acceptedCount = new LongAdder();
+
+	private final LongAdder rejectedCount = new LongAdder();
+
+	/**
+	 * @param delegate
+	 * @param workerCount the number of calls to the delegate which may run
+	 *        concurrently, at least one.
+	 * @param queueDepth the number of calls which may wait for a free
+	 *        worker; {@code 0} means calls are rejected as soon as all
+	 *        the workers are busy.
+	 */
+	public BoundedMorphologicalAnalyzer(@Nonnull final MorphologicalAnalyzer delegate,
+			final int workerCount,
+			final int queueDepth) {
+		if (workerCount <= 0) {
+			throw new IllegalArgumentException("Worker count is not positive: " + workerCount);
+		}
+		if (queueDepth < 0) {
+			throw new IllegalArgumentException("Queue depth is negative: " + queueDepth);
+		}
+
+		this.delegate = delegate;
+		this.workerCount = workerCount;
+		this.queueDepth = queueDepth;
+
+		/*
+		 * Calls are admitted by the semaphore rather than by the queue
+		 * capacity: the queue may be momentarily full while some
+		 * of the workers have not yet taken their calls off it.
+		 */
+		this.permits = new Semaphore(workerCount + queueDepth);
+		final AtomicInteger threadCount = new AtomicInteger();
+		final ThreadFactory threadFactory = runnable -> {
+			final Thread thread = new Thread(runnable, "analysis-worker-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		this.executor = new ThreadPoolExecutor(workerCount, workerCount,
+				0L, MILLISECONDS,
+				new LinkedBlockingQueue<>(),
+				threadFactory);
+		this.executor.prestartAllCoreThreads();
+	}
+
+	/**
+	 * @see MorphologicalAnalyzer#analyze(String)
+	 */
+	@Override
+	public Map<String, Set<MorphologicalAnalysisResult>> analyze(final String text)
+	throws AnalysisException, RemoteException {
+		return this.execute(() -> this.delegate.analyze(text));
+	}
+
+	/**
+	 * @see MorphologicalAnalyzer#analyzeSpans(String)
+	 */
+	@Override
+	public List<TokenSpan> analyzeSpans(final String text)
+	throws AnalysisException, RemoteException {
+		return this.execute(() -> this.delegate.analyzeSpans(text));
+	}
+
+	/**
+	 * A batch takes a single worker and a single queue slot, regardless
+	 * of the number of texts.
+	 *
+	 * @see MorphologicalAnalyzer#analyzeBatch(List)
+	 */
+	@Override
+	public List<Map<String, Set<MorphologicalAnalysisResult>>> analyzeBatch(final List<String> texts)
+	throws AnalysisException, RemoteException {
+		return this.execute(() -> this.delegate.analyzeBatch(texts));
+	}
+
+	/**
+	 * Runs the <em>task</em> on a worker thread and waits for it
+	 * to complete.
+	 *
+	 * @param task
+	 * @throws AnalysisException if the call has been rejected, or if
+	 *         the current thread has been interrupted while waiting.
+	 * @throws RemoteException
+	 */
+	private <T> T execute(final Callable<T> task) throws AnalysisException, RemoteException {
+		if (!this.permits.tryAcquire()) {
+			this.rejectedCount.increment();
+			throw new AnalysisException(String.format("Server overloaded: %d workers busy, %d calls queued",
+					Integer.valueOf(this.getActiveCount()),
+					Integer.valueOf(this.getQueuedCount())),
+					new RejectedExecutionException());
+		}
+
+		/*
+		 * The permit is released only once a worker is done with the call.
+		 * A call cancelled while running keeps its permit until the worker
+		 * actually returns, and a call cancelled while still queued keeps it
+		 * until a worker dequeues it, so at most workerCount + queueDepth
+		 * calls ever occupy the executor.
+		 */
+		final FutureTask<T> future = new FutureTask<T>(task) {
+			/**
+			 * @see FutureTask#run()
+			 */
+			@Override
+			public void run() {
+				try {
+					super.run();
+				} finally {
+					BoundedMorphologicalAnalyzer.this.permits.release();
+				}
+			}
+		};
+		try {
+			this.executor.execute(future);
+		} catch (final RejectedExecutionException ree) {
+			this.permits.release();
+			this.rejectedCount.increment();
+			throw new AnalysisException("Server shut down", ree);
+		}
+		this.acceptedCount.increment();
+
+		try {
+			return future.get();
+		} catch (final InterruptedException ie) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new AnalysisException(ie);
+		} catch (final ExecutionException ee) {
+			final Throwable cause = ee.getCause();
+			if (cause instanceof RemoteException) {
+				throw (RemoteException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new AnalysisException(cause);
+		}
+	}
+
+	/**
+	 * Stops accepting calls. The calls already accepted still run
+	 * to completion.
+	 */
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	/**
+	 * @param timeout
+	 * @param unit
+	 * @return whether all the calls accepted have completed within
+	 *         the <em>timeout</em> after a {@linkplain #shutdown() shutdown}.
+	 * @throws InterruptedException
+	 */
+	public boolean awaitTermination(final long timeout, @Nonnull final TimeUnit unit) throws InterruptedException {
+		return this.executor.awaitTermination(timeout, unit);
+	}
+
+	public int getWorkerCount() {
+		return this.workerCount;
+	}
+
+	public int getQueueDepth() {
+		return this.queueDepth;
+	}
+
+	/**
+	 * @return the approximate number of calls currently running.
+	 */
+	public int getActiveCount() {
+		return this.executor.getActiveCount();
+	}
+
+	/**
+	 * @return the number of calls currently waiting for a free worker.
+	 */
+	public int getQueuedCount() {
+		return this.executor.getQueue().size();
+	}
+
+	/**
+	 * @return the number of calls accepted.
+	 */
+	public long getAcceptedCount() {
+		return this.acceptedCount.sum();
+	}
+
+	/**
+	 * @return the number of calls rejected because the server has been
+	 *         overloaded or shut down.
+	 */
+	public long getRejectedCount() {
+		return this.rejectedCount.sum();
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("{:workers %d :queueDepth %d :active %d :queued %d :accepted %d :rejected %d}",
+				Integer.valueOf(this.workerCount),
+				Integer.valueOf(this.queueDepth),
+				Integer.valueOf(this.getActiveCount()),
+				Integer.valueOf(this.getQueuedCount()),
+				Long.valueOf(this.getAcceptedCount()),
+				Long.valueOf(this.getRejectedCount()));
+	}
+}
@@ -0,0 +1,179 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
+
+/**
+ * Creates RMI sockets with {@code TCP_NODELAY} enabled (a call is a single
+ * small request followed by a single response, so Nagle's algorithm only
+ * adds latency) and with buffered streams, so that the object stream
+ * of a call is written to the network in as few segments as possible.
+ *
+ * <p>The same instance serves as both the client and the server socket
+ * factory. It is sent to clients along with the stub, so it has to be
+ * {@linkplain Serializable serializable} and available on the client
+ * class path, and implements {@link #equals(Object)} and {@link
+ * #hashCode()}, which RMI relies upon to reuse connections.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class BufferedSocketFactory implements RMIClientSocketFactory, RMIServerSocketFactory, Serializable {
+	private static final long serialVersionUID = -3140934218760429527L;
+
+	/**
+	 * 64 kB.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64 << 10;
+
+	private final int bufferSize;
+
+	public BufferedSocketFactory() {
+		this(DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param bufferSize the size of both the input and the output buffer
+	 *        of each socket, in bytes.
+	 */
+	public BufferedSocketFactory(final int bufferSize) {
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("Buffer size is not positive: " + bufferSize);
+		}
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * @see RMIClientSocketFactory#createSocket(String, int)
+	 */
+	@Override
+	public Socket createSocket(final String host, final int port) throws IOException {
+		final Socket socket = new BufferedSocket(this.bufferSize);
+		try {
+			configure(socket);
+			socket.connect(new InetSocketAddress(host, port));
+		} catch (final IOException ioe) {
+			socket.close();
+			throw ioe;
+		}
+		return socket;
+	}
+
+	/**
+	 * @see RMIServerSocketFactory#createServerSocket(int)
+	 */
+	@Override
+	public ServerSocket createServerSocket(final int port) throws IOException {
+		return new ServerSocket(port) {
+			/**
+			 * @see ServerSocket#accept()
+			 */
+			@Override
+			public Socket accept() throws IOException {
+				final Socket socket = new BufferedSocket(BufferedSocketFactory.this.bufferSize);
+				this.implAccept(socket);
+				try {
+					configure(socket);
+				} catch (final IOException ioe) {
+					socket.close();
+					throw ioe;
+				}
+				return socket;
+			}
+		};
+	}
+
+	public int getBufferSize() {
+		return this.bufferSize;
+	}
+
+	/**
+	 * @param socket
+	 * @throws SocketException
+	 */
+	private static void configure(final Socket socket) throws SocketException {
+		socket.setTcpNoDelay(true);
+		socket.setKeepAlive(true);
+	}
+
+	/**
+	 * @see Object#equals(Object)
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		return obj instanceof BufferedSocketFactory
+				&& this.bufferSize == ((BufferedSocketFactory) obj).bufferSize;
+	}
+
+	/**
+	 * @see Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return this.bufferSize;
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("{:bufferSize %d}", Integer.valueOf(this.bufferSize));
+	}
+
+	/**
+	 * A socket which returns the same buffered stream each time its input
+	 * or output stream is requested. The output stream is flushed by RMI
+	 * once a call or a response has been written.
+	 *
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	private static final class BufferedSocket extends Socket {
+		private final int bufferSize;
+
+		private InputStream in;
+
+		private OutputStream out;
+
+		/**
+		 * @param bufferSize
+		 */
+		BufferedSocket(final int bufferSize) {
+			this.bufferSize = bufferSize;
+		}
+
+		/**
+		 * @see Socket#getInputStream()
+		 */
+		@Override
+		public synchronized InputStream getInputStream() throws IOException {
+			if (this.in == null) {
+				this.in = new BufferedInputStream(super.getInputStream(), this.bufferSize);
+			}
+			return this.in;
+		}
+
+		/**
+		 * @see Socket#getOutputStream()
+		 */
+		@Override
+		public synchronized OutputStream getOutputStream() throws IOException {
+			if (this.out == null) {
+				this.out = new BufferedOutputStream(super.getOutputStream(), this.bufferSize);
+			}
+			return this.out;
+		}
+	}
+}
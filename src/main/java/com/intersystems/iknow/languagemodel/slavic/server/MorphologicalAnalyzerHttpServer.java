@@ -0,0 +1,371 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.server;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.SerializingMorphologicalAnalyzer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves a {@linkplain MorphologicalAnalyzer morphological analyzer} over
+ * HTTP, for clients which can't use RMI. Both endpoints accept {@code POST}
+ * requests only and respond with JSON in the format of {@link
+ * SerializingMorphologicalAnalyzer}, written straight to the connection
+ * (using chunked transfer encoding):
+ *
+ * <dl>
+ * <dt>{@value #ANALYZE_PATH}</dt>
+ * <dd>the request body is a single text, in UTF-8; the response is an
+ * object mapping each token to its analyzes.</dd>
+ * <dt>{@value #ANALYZE_BATCH_PATH}</dt>
+ * <dd>the request body is a JSON array of texts; the response is an array
+ * of such objects, one per text, in the same order.</dd>
+ * </dl>
+ *
+ * <p>Malformed requests are answered with {@code 400}. If the analyzer
+ * fails, the response is {@code 503} when the analyzer is {@linkplain
+ * BoundedMorphologicalAnalyzer overloaded}, and {@code 500} otherwise.</p>
+ *
+ * <p>Connections are kept alive between requests (this is the default
+ * for HTTP/1.1 clients). The JDK server only enables {@code TCP_NODELAY}
+ * if the {@value #NODELAY_PROPERTY} system property is {@code true}, which
+ * {@link #main(String[])} sets unless it is set explicitly; applications
+ * embedding the server should set it, too (see {@link
+ * #NODELAY_PROPERTY}). Requests are served on the executor supplied,
+ * which is not shut down by the server.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class MorphologicalAnalyzerHttpServer implements AutoCloseable {
+	public static final String ANALYZE_PATH = "/analyze";
+
+	public static final String ANALYZE_BATCH_PATH = "/analyzeBatch";
+
+	private static final String JSON_CONTENT_TYPE = "application/json; charset=UTF-8";
+
+	private static final String TEXT_CONTENT_TYPE = "text/plain; charset=UTF-8";
+
+	/**
+	 * Enables {@code TCP_NODELAY} for all the JDK HTTP servers in the VM.
+	 * The JDK server flushes the response headers before the body, so with
+	 * Nagle's algorithm on, the body waits for the delayed ACK of the
+	 * headers (~40&nbsp;ms on Linux). The property is read once per VM,
+	 * when the first server is created, so it should be set on the command
+	 * line ({@code -Dsun.net.httpserver.nodelay=true}), or at startup.
+	 */
+	public static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+	@Nonnull
+	private final SerializingMorphologicalAnalyzer analyzer;
+
+	@Nonnull
+	private final HttpServer server;
+
+	/**
+	 * Creates and starts the server.
+	 *
+	 * @param delegate the analyzer to serve.
+	 * @param address the address to listen on; the port may be {@code 0},
+	 *        see {@link #getAddress()}.
+	 * @param executor the executor to serve requests on, e.&nbsp;g. a
+	 *        {@linkplain #newWorkerPool(int) worker pool} or a {@linkplain
+	 *        #newVirtualThreadPool() virtual thread per request}.
+	 * @throws IOException
+	 */
+	public MorphologicalAnalyzerHttpServer(@Nonnull final MorphologicalAnalyzer delegate,
+			@Nonnull final InetSocketAddress address,
+			@Nonnull final Executor executor)
+	throws IOException {
+		this.analyzer = new SerializingMorphologicalAnalyzer(delegate);
+		this.server = HttpServer.create(address, 0);
+		this.server.createContext(ANALYZE_PATH, exchange -> this.handle(exchange, false));
+		this.server.createContext(ANALYZE_BATCH_PATH, exchange -> this.handle(exchange, true));
+		this.server.setExecutor(executor);
+		this.server.start();
+	}
+
+	/**
+	 * @return the address the server listens on.
+	 */
+	public InetSocketAddress getAddress() {
+		return this.server.getAddress();
+	}
+
+	/**
+	 * Stops the server, closing all the connections.
+	 *
+	 * @see AutoCloseable#close()
+	 */
+	@Override
+	public void close() {
+		this.server.stop(0);
+	}
+
+	/**
+	 * @param exchange
+	 * @param batch
+	 * @throws IOException
+	 */
+	private void handle(final HttpExchange exchange, final boolean batch) throws IOException {
+		final ResponseStream out = new ResponseStream(exchange);
+		try {
+			final String path = batch ? ANALYZE_BATCH_PATH : ANALYZE_PATH;
+			if (!path.equals(exchange.getRequestURI().getPath())) {
+				sendError(exchange, HttpURLConnection.HTTP_NOT_FOUND, "Not found: " + exchange.getRequestURI().getPath());
+				return;
+			}
+			if (!"POST".equals(exchange.getRequestMethod())) {
+				exchange.getResponseHeaders().set("Allow", "POST");
+				sendError(exchange, HttpURLConnection.HTTP_BAD_METHOD, "Method not allowed: " + exchange.getRequestMethod());
+				return;
+			}
+
+			exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+			if (batch) {
+				final List<String> texts;
+				try {
+					texts = readTexts(exchange.getRequestBody());
+				} catch (final JsonParseException jpe) {
+					sendError(exchange, HttpURLConnection.HTTP_BAD_REQUEST, "Malformed batch: " + jpe.getMessage());
+					return;
+				}
+				if (texts == null || texts.contains(null)) {
+					sendError(exchange, HttpURLConnection.HTTP_BAD_REQUEST, "A JSON array of strings expected");
+					return;
+				}
+				this.analyzer.analyzeBatch(texts, out);
+			} else {
+				this.analyzer.analyze(new String(readFully(exchange.getRequestBody()), UTF_8), out);
+			}
+			out.close();
+		} catch (final RemoteException re) {
+			/*
+			 * Either an AnalysisException, or a failure of a remote
+			 * delegate.
+			 */
+			if (!out.isCommitted()) {
+				sendError(exchange,
+						re.getCause() instanceof RejectedExecutionException ? HttpURLConnection.HTTP_UNAVAILABLE : HttpURLConnection.HTTP_INTERNAL_ERROR,
+						String.valueOf(re.getMessage()));
+			}
+		} catch (final RuntimeException rte) {
+			if (!out.isCommitted()) {
+				sendError(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR, String.valueOf(rte));
+			}
+		} finally {
+			/*
+			 * Closing the exchange drains the request body, so that
+			 * the connection can be reused.
+			 */
+			exchange.close();
+		}
+	}
+
+	/**
+	 * @param in
+	 * @return the texts, or {@code null} if the request body is empty.
+	 * @throws JsonParseException if the request body is not a JSON array
+	 *         of strings.
+	 */
+	@Nullable
+	private static List<String> readTexts(final InputStream in) {
+		final String texts[] = new Gson().fromJson(new InputStreamReader(in, UTF_8), String[].class);
+		return texts == null ? null : asList(texts);
+	}
+
+	/**
+	 * @param in
+	 * @throws IOException
+	 */
+	private static byte[] readFully(final InputStream in) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte buffer[] = new byte[8192];
+		int length;
+		while ((length = in.read(buffer)) != -1) {
+			out.write(buffer, 0, length);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * @param exchange
+	 * @param status
+	 * @param message
+	 * @throws IOException
+	 */
+	private static void sendError(final HttpExchange exchange, final int status, final String message) throws IOException {
+		final byte body[] = message.getBytes(UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", TEXT_CONTENT_TYPE);
+		exchange.sendResponseHeaders(status, body.length);
+		try (final OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * @param workerCount the number of requests which may be served
+	 *        concurrently.
+	 * @return a fixed-size pool of daemon threads.
+	 */
+	public static ExecutorService newWorkerPool(final int workerCount) {
+		final AtomicInteger threadCount = new AtomicInteger();
+		return Executors.newFixedThreadPool(workerCount, runnable -> {
+			final Thread thread = new Thread(runnable, "http-worker-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * The library targets Java 8, so virtual threads (Java 21+) are
+	 * looked up reflectively.
+	 *
+	 * @return an executor which serves each request on a virtual thread
+	 *         of its own, or {@code null} if virtual threads are not
+	 *         available in this VM.
+	 */
+	@Nullable
+	public static ExecutorService newVirtualThreadPool() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (final NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Usage: {@code MorphologicalAnalyzerHttpServer [languagetool|hunspell
+	 * [port [workerCount|virtual]]]}
+	 *
+	 * <p>Serves the analyzer on the <em>port</em> (8080 by default) until
+	 * the VM is terminated. By default, there are as many workers as there
+	 * are processors. {@code TCP_NODELAY} is enabled unless the {@value
+	 * #NODELAY_PROPERTY} system property is set explicitly.</p>
+	 *
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(final String args[]) throws Exception {
+		final String engine = args.length > 0 ? args[0] : "languagetool";
+		final int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+		final String workers = args.length > 2 ? args[2] : String.valueOf(Runtime.getRuntime().availableProcessors());
+
+		if (System.getProperty(NODELAY_PROPERTY) == null) {
+			System.setProperty(NODELAY_PROPERTY, "true");
+		}
+
+		final ExecutorService executor;
+		final int workerCount;
+		if ("virtual".equals(workers)) {
+			executor = newVirtualThreadPool();
+			if (executor == null) {
+				throw new IllegalArgumentException("Virtual threads are not available in Java " + System.getProperty("java.version"));
+			}
+			workerCount = Runtime.getRuntime().availableProcessors();
+		} else {
+			workerCount = Integer.parseInt(workers);
+			executor = newWorkerPool(workerCount);
+		}
+
+		final MorphologicalAnalyzer delegate = MorphologicalAnalyzerServer.createAnalyzer(engine, workerCount);
+		final MorphologicalAnalyzerHttpServer server = new MorphologicalAnalyzerHttpServer(delegate, new InetSocketAddress(port), executor);
+		Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+		System.out.println(String.format("Listening on %s with %s workers", server.getAddress(), workers));
+	}
+
+	/**
+	 * Sends the response headers upon the first write, so that an error
+	 * status can still be sent if the analysis fails before any output.
+	 *
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	private static final class ResponseStream extends FilterOutputStream {
+		@Nonnull
+		private final HttpExchange exchange;
+
+		private boolean committed;
+
+		/**
+		 * @param exchange
+		 */
+		ResponseStream(@Nonnull final HttpExchange exchange) {
+			super(null);
+			this.exchange = exchange;
+		}
+
+		boolean isCommitted() {
+			return this.committed;
+		}
+
+		/**
+		 * @throws IOException
+		 */
+		private OutputStream commit() throws IOException {
+			if (!this.committed) {
+				this.exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
+				this.out = this.exchange.getResponseBody();
+				this.committed = true;
+			}
+			return this.out;
+		}
+
+		/**
+		 * @see FilterOutputStream#write(int)
+		 */
+		@Override
+		public void write(final int b) throws IOException {
+			this.commit().write(b);
+		}
+
+		/**
+		 * @see FilterOutputStream#write(byte[], int, int)
+		 */
+		@Override
+		public void write(final byte b[], final int off, final int len) throws IOException {
+			this.commit().write(b, off, len);
+		}
+
+		/**
+		 * @see FilterOutputStream#flush()
+		 */
+		@Override
+		public void flush() throws IOException {
+			this.commit().flush();
+		}
+
+		/**
+		 * @see FilterOutputStream#close()
+		 */
+		@Override
+		public void close() throws IOException {
+			this.commit().close();
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.server;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+
+import javax.annotation.Nonnull;
+import javax.management.JMException;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.SAXException;
+
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.impl.HunspellAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.impl.LanguageToolAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.metrics.AnalysisMetrics;
+
+/**
+ * Exports a {@linkplain MorphologicalAnalyzer morphological analyzer} via
+ * RMI behind a {@linkplain BoundedMorphologicalAnalyzer bounded worker
+ * pool}, using {@linkplain BufferedSocketFactory sockets} with
+ * {@code TCP_NODELAY} and buffered streams, and binds it in a registry.
+ *
+ * <p>Clients look the analyzer up by {@linkplain #DEFAULT_NAME name}, e.&nbsp;g.:</p>
+ * <pre>
+ * final MorphologicalAnalyzer analyzer = (MorphologicalAnalyzer) LocateRegistry.getRegistry(host, port)
+ *		.lookup(MorphologicalAnalyzerServer.DEFAULT_NAME);
+ * </pre>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class MorphologicalAnalyzerServer implements AutoCloseable {
+	public static final String DEFAULT_NAME = MorphologicalAnalyzer.class.getName();
+
+	@Nonnull
+	private final BoundedMorphologicalAnalyzer analyzer;
+
+	@Nonnull
+	private final Registry registry;
+
+	@Nonnull
+	private final String name;
+
+	/**
+	 * @param delegate the analyzer to export.
+	 * @param workerCount the number of calls which may run concurrently.
+	 * @param queueDepth the number of calls which may wait for a free
+	 *        worker before further calls are rejected.
+	 * @param port the port to export the analyzer on, or {@code 0} for
+	 *        an anonymous port.
+	 * @param registry the registry to bind the analyzer in.
+	 * @param name the name to bind the analyzer under.
+	 * @throws RemoteException
+	 */
+	public MorphologicalAnalyzerServer(@Nonnull final MorphologicalAnalyzer delegate,
+			final int workerCount,
+			final int queueDepth,
+			final int port,
+			@Nonnull final Registry registry,
+			@Nonnull final String name)
+	throws RemoteException {
+		this.analyzer = new BoundedMorphologicalAnalyzer(delegate, workerCount, queueDepth);
+		this.registry = registry;
+		this.name = name;
+
+		final BufferedSocketFactory socketFactory = new BufferedSocketFactory();
+		final MorphologicalAnalyzer stub = (MorphologicalAnalyzer) UnicastRemoteObject.exportObject(this.analyzer, port, socketFactory, socketFactory);
+		try {
+			registry.rebind(name, stub);
+		} catch (final RemoteException re) {
+			UnicastRemoteObject.unexportObject(this.analyzer, true);
+			this.analyzer.shutdown();
+			throw re;
+		}
+	}
+
+	/**
+	 * @return the exported analyzer, which also provides the numbers
+	 *         of calls accepted and rejected.
+	 */
+	public BoundedMorphologicalAnalyzer getAnalyzer() {
+		return this.analyzer;
+	}
+
+	/**
+	 * Unbinds and unexports the analyzer. Calls in progress still run
+	 * to completion.
+	 *
+	 * @see AutoCloseable#close()
+	 */
+	@Override
+	public void close() throws RemoteException {
+		try {
+			this.registry.unbind(this.name);
+		} catch (final NotBoundException nbe) {
+			// ignore
+		} finally {
+			UnicastRemoteObject.unexportObject(this.analyzer, true);
+			this.analyzer.shutdown();
+		}
+	}
+
+	/**
+	 * Usage: {@code MorphologicalAnalyzerServer [languagetool|hunspell
+	 * [registryPort [workerCount [queueDepth]]]]}
+	 *
+	 * <p>Creates a registry on the <em>registryPort</em> (1099 by default)
+	 * and serves the analyzer until the VM is terminated. By default,
+	 * there are as many workers as there are processors, and four
+	 * queued calls per worker.</p>
+	 *
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(final String args[]) throws Exception {
+		final String engine = args.length > 0 ? args[0] : "languagetool";
+		final int registryPort = args.length > 1 ? Integer.parseInt(args[1]) : Registry.REGISTRY_PORT;
+		final int workerCount = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		final int queueDepth = args.length > 3 ? Integer.parseInt(args[3]) : 4 * workerCount;
+
+		final MorphologicalAnalyzer delegate = createAnalyzer(engine, workerCount);
+
+		final Registry registry = LocateRegistry.createRegistry(registryPort);
+		final MorphologicalAnalyzerServer server = new MorphologicalAnalyzerServer(delegate, workerCount, queueDepth, 0, registry, DEFAULT_NAME);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				server.close();
+			} catch (final RemoteException re) {
+				re.printStackTrace();
+			}
+		}));
+		System.out.println(String.format("%s bound on port %d: %s", DEFAULT_NAME, Integer.valueOf(registryPort), server.getAnalyzer()));
+	}
+
+	/**
+	 * Creates an analyzer, and publishes its metrics over JMX, under the
+	 * <em>engine</em> name.
+	 *
+	 * @param engine either {@code languagetool} or {@code hunspell}.
+	 * @param workerCount the number of calls which may run concurrently.
+	 * @throws IOException
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws JMException
+	 * @see AnalysisMetrics
+	 */
+	static MorphologicalAnalyzer createAnalyzer(@Nonnull final String engine, final int workerCount)
+	throws IOException, ParserConfigurationException, SAXException, JMException {
+		switch (engine) {
+		case "languagetool":
+			/*
+			 * One LanguageTool instance per worker, so that workers
+			 * never wait for each other. Grammar rules are never
+			 * used by the server, so they aren't loaded.
+			 */
+			final LanguageToolAnalyzer languageToolAnalyzer = LanguageToolAnalyzer.builder()
+					.poolSize(workerCount)
+					.mode(LanguageToolAnalyzer.Mode.ANALYSIS)
+					.eager(true)
+					.build();
+			languageToolAnalyzer.getMetrics().register(ManagementFactory.getPlatformMBeanServer(), engine);
+			return languageToolAnalyzer;
+		case "hunspell":
+			/*
+			 * Likewise, a Hunspell handle per worker, since the handles
+			 * are not reentrant.
+			 */
+			final HunspellAnalyzer hunspellAnalyzer = HunspellAnalyzer.builder()
+					.concurrency(HunspellAnalyzer.Concurrency.POOLED)
+					.poolSize(workerCount)
+					.eager(true)
+					.build();
+			hunspellAnalyzer.getMetrics().register(ManagementFactory.getPlatformMBeanServer(), engine);
+			return hunspellAnalyzer;
+		default:
+			throw new IllegalArgumentException("Unknown engine: " + engine);
+		}
+	}
+}
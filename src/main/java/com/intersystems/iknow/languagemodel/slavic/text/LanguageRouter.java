@@ -0,0 +1,325 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.text;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Tells which languages a word may belong to, judging by its alphabet,
+ * so that the word is only sent to the engines of those languages.
+ *
+ * <p>A word containing a letter unique to a single language (e.&nbsp;g.
+ * "і", "ї", "є" or "ґ" for Ukrainian; "ы", "э", "ъ" or "ё" for Russian)
+ * is routed to that language only. A word with no Cyrillic letters at all
+ * (Latin words, numbers) isn't routed anywhere. Any other word, including
+ * one mixing letters unique to different languages, is routed to all the
+ * languages.</p>
+ *
+ * <p>Candidate languages are returned as a bit mask, bit <em>i</em>
+ * standing for the <em>i</em>-th {@linkplain #getLanguages() language},
+ * so routing doesn't allocate anything. Instances are thread-safe.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class LanguageRouter {
+	/**
+	 * Routes words between Russian ({@code "ru"}) and Ukrainian
+	 * ({@code "uk"}).
+	 */
+	public static final Map<String, String> SLAVIC_UNIQUE_LETTERS;
+
+	static {
+		final Map<String, String> uniqueLetters = new LinkedHashMap<>();
+		uniqueLetters.put("ru", "ЫыЭэЪъЁё");
+		uniqueLetters.put("uk", "ІіЇїЄєҐґ");
+		SLAVIC_UNIQUE_LETTERS = unmodifiableMap(uniqueLetters);
+	}
+
+	/**
+	 * The maximum number of languages, limited by the width of the mask.
+	 */
+	private static final int MAXIMUM_LANGUAGES = Integer.SIZE - 1;
+
+	private static final char CYRILLIC_START = 'Ѐ';
+
+	/**
+	 * Exclusive; includes Cyrillic Supplement.
+	 */
+	private static final char CYRILLIC_END = '԰';
+
+	@Nonnull
+	private final List<String> languages;
+
+	/**
+	 * The mask of all the languages.
+	 */
+	private final int allLanguages;
+
+	/**
+	 * For each Cyrillic {@code char} (relative to {@link
+	 * Character.UnicodeBlock#CYRILLIC}), the languages the letter is unique
+	 * to, or {@link #allLanguages}.
+	 */
+	private final int cyrillicLetters[] = new int[CYRILLIC_END - CYRILLIC_START];
+
+	private final LongAdder routedCount = new LongAdder();
+
+	private final LongAdder skippedCounts[];
+
+	private final LongAdder skippedInvocationCounts[];
+
+	/**
+	 * @param uniqueLetters for each language supported, in the order of
+	 *        languages, the (Cyrillic) letters which are unique to the
+	 *        language.
+	 */
+	public LanguageRouter(@Nonnull final Map<String, String> uniqueLetters) {
+		if (uniqueLetters.isEmpty() || uniqueLetters.size() > MAXIMUM_LANGUAGES) {
+			throw new IllegalArgumentException("Unsupported number of languages: " + uniqueLetters.size());
+		}
+
+		this.languages = unmodifiableList(new ArrayList<>(uniqueLetters.keySet()));
+		this.allLanguages = (1 << this.languages.size()) - 1;
+		for (int i = 0; i < this.cyrillicLetters.length; i++) {
+			this.cyrillicLetters[i] = this.allLanguages;
+		}
+
+		int language = 0;
+		for (final String letters : uniqueLetters.values()) {
+			final int mask = 1 << language++;
+			letters.chars().forEach(c -> {
+				if (c < CYRILLIC_START || c >= CYRILLIC_END) {
+					throw new IllegalArgumentException(String.format("Not a Cyrillic letter: U+%04X", Integer.valueOf(c)));
+				}
+				final int i = c - CYRILLIC_START;
+				this.cyrillicLetters[i] = this.cyrillicLetters[i] == this.allLanguages ? mask : this.cyrillicLetters[i] | mask;
+			});
+		}
+
+		this.skippedCounts = new LongAdder[this.languages.size()];
+		this.skippedInvocationCounts = new LongAdder[this.languages.size()];
+		for (int i = 0; i < this.languages.size(); i++) {
+			this.skippedCounts[i] = new LongAdder();
+			this.skippedInvocationCounts[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * @return the languages supported, in the order of mask bits.
+	 */
+	public List<String> getLanguages() {
+		return this.languages;
+	}
+
+	/**
+	 * @return the mask of all the languages supported.
+	 */
+	public int getAllLanguages() {
+		return this.allLanguages;
+	}
+
+	/**
+	 * @param language
+	 * @return the mask bit of the <em>language</em>, or {@code 0} if the
+	 *         <em>language</em> is not supported.
+	 */
+	public int getMask(final String language) {
+		final int index = this.languages.indexOf(language);
+		return index == -1 ? 0 : 1 << index;
+	}
+
+	/**
+	 * @param text
+	 * @param start the index of the first character of the word.
+	 * @param end the index following the last character of the word.
+	 * @return the mask of candidate languages for the word, {@code 0} if
+	 *         the word contains no Cyrillic letters.
+	 */
+	public int route(@Nonnull final CharSequence text, final int start, final int end) {
+		boolean cyrillic = false;
+		int exclusive = 0;
+		for (int i = start; i < end; i++) {
+			final char c = text.charAt(i);
+			if (c >= CYRILLIC_START && c < CYRILLIC_END) {
+				cyrillic = true;
+				final int candidates = this.cyrillicLetters[c - CYRILLIC_START];
+				if (candidates != this.allLanguages) {
+					exclusive |= candidates;
+				}
+			}
+		}
+
+		if (!cyrillic) {
+			return 0;
+		}
+		/*
+		 * Letters unique to different languages in the same word:
+		 * don't guess.
+		 */
+		return exclusive == 0 || Integer.bitCount(exclusive) > 1 ? this.allLanguages : exclusive;
+	}
+
+	/**
+	 * @param word
+	 * @return the mask of candidate languages for the <em>word</em>.
+	 * @see #route(CharSequence, int, int)
+	 */
+	public int route(@Nonnull final CharSequence word) {
+		return this.route(word, 0, word.length());
+	}
+
+	/**
+	 * Reports each word of the <em>text</em> (a run of letters, digits,
+	 * hyphens and apostrophes) along with its candidate languages.
+	 *
+	 * @param text
+	 * @param handler
+	 */
+	public void route(@Nonnull final CharSequence text, @Nonnull final RouteHandler handler) {
+		final int length = text.length();
+		int i = 0;
+		while (i < length) {
+			if (!isWordCharacter(text.charAt(i))) {
+				i++;
+				continue;
+			}
+
+			final int start = i;
+			while (i < length && isWordCharacter(text.charAt(i))) {
+				i++;
+			}
+			handler.word(start, i, this.route(text, start, i));
+		}
+	}
+
+	/**
+	 * @param candidates a mask of languages.
+	 * @return the languages, in the order of mask bits.
+	 */
+	public Set<String> getLanguages(final int candidates) {
+		final Set<String> languagesSubset = new LinkedHashSet<>();
+		for (int i = 0; i < this.languages.size(); i++) {
+			if ((candidates & 1 << i) != 0) {
+				languagesSubset.add(this.languages.get(i));
+			}
+		}
+		return unmodifiableSet(languagesSubset);
+	}
+
+	/**
+	 * Records a word routed, and the engines it hasn't been sent to.
+	 *
+	 * @param candidates the mask of candidate languages for the word.
+	 */
+	public void record(final int candidates) {
+		this.routedCount.increment();
+		for (int i = 0; i < this.skippedCounts.length; i++) {
+			if ((candidates & 1 << i) == 0) {
+				this.skippedCounts[i].increment();
+			}
+		}
+	}
+
+	/**
+	 * Records an engine not having been invoked at all, since no word
+	 * has been routed to it.
+	 *
+	 * @param language
+	 */
+	public void recordSkippedInvocation(final int language) {
+		for (int i = 0; i < this.skippedInvocationCounts.length; i++) {
+			if ((language & 1 << i) != 0) {
+				this.skippedInvocationCounts[i].increment();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of words routed.
+	 */
+	public long getRoutedCount() {
+		return this.routedCount.sum();
+	}
+
+	/**
+	 * @param language
+	 * @return the number of words not sent to the engine of the
+	 *         <em>language</em>.
+	 */
+	public long getSkippedCount(final String language) {
+		final int index = this.languages.indexOf(language);
+		return index == -1 ? 0 : this.skippedCounts[index].sum();
+	}
+
+	/**
+	 * @return the total number of words not sent to an engine, summed
+	 *         over all the engines.
+	 */
+	public long getSkippedCount() {
+		long skippedCount = 0;
+		for (final LongAdder count : this.skippedCounts) {
+			skippedCount += count.sum();
+		}
+		return skippedCount;
+	}
+
+	/**
+	 * @param language
+	 * @return the number of times the engine of the <em>language</em>
+	 *         hasn't been invoked at all.
+	 */
+	public long getSkippedInvocationCount(final String language) {
+		final int index = this.languages.indexOf(language);
+		return index == -1 ? 0 : this.skippedInvocationCounts[index].sum();
+	}
+
+	/**
+	 * @param c
+	 */
+	private static boolean isWordCharacter(final char c) {
+		return Character.isLetterOrDigit(c) || c == '-' || c == '\'';
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder skipped = new StringBuilder();
+		for (int i = 0; i < this.languages.size(); i++) {
+			skipped.append(i == 0 ? "" : " ")
+				.append(':').append(this.languages.get(i))
+				.append(' ').append(this.skippedCounts[i].sum())
+				.append('/').append(this.skippedInvocationCounts[i].sum());
+		}
+		return String.format("{:routed %d :skipped {%s}}",
+				Long.valueOf(this.getRoutedCount()),
+				skipped);
+	}
+
+	/**
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	@FunctionalInterface
+	public interface RouteHandler {
+		/**
+		 * @param start the index of the first character of the word.
+		 * @param end the index following the last character of the word.
+		 * @param candidates the mask of candidate languages for the word.
+		 */
+		void word(final int start, final int end, final int candidates);
+	}
+}
@@ -0,0 +1,142 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.text;
+
+import static java.util.Arrays.copyOf;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalysisResult;
+import com.intersystems.iknow.languagemodel.slavic.TokenSpan;
+
+/**
+ * Collects token occurrences (token text and start offset) reported by
+ * a {@link WordTokenizer} or any other tokenizer, in the order of
+ * occurrence, so that they can be turned into {@linkplain TokenSpan token
+ * spans} once the tokens have been analyzed.
+ *
+ * <p>Not thread-safe.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class TokenOccurrences implements WordTokenizer.TokenHandler {
+	private final List<String> tokens = new ArrayList<>();
+
+	private int starts[] = new int[16];
+
+	/**
+	 * @see WordTokenizer.TokenHandler#token(CharSequence, int, int)
+	 */
+	@Override
+	public void token(final CharSequence text, final int start, final int end) {
+		this.add(text.subSequence(start, end).toString(), start);
+	}
+
+	/**
+	 * @param token
+	 * @param start the index of the first character of the <em>token</em>
+	 *        within the text.
+	 */
+	public void add(@Nonnull final String token, final int start) {
+		final int size = this.tokens.size();
+		if (size == this.starts.length) {
+			this.starts = copyOf(this.starts, size << 1);
+		}
+		this.starts[size] = start;
+		this.tokens.add(token);
+	}
+
+	public int size() {
+		return this.tokens.size();
+	}
+
+	public boolean isEmpty() {
+		return this.tokens.isEmpty();
+	}
+
+	/**
+	 * @param index
+	 */
+	public String getToken(final int index) {
+		return this.tokens.get(index);
+	}
+
+	/**
+	 * @param index
+	 */
+	public int getStart(final int index) {
+		return this.starts[index];
+	}
+
+	/**
+	 * @return distinct tokens, in the order of their first occurrence.
+	 */
+	public Set<String> distinctTokens() {
+		return new LinkedHashSet<>(this.tokens);
+	}
+
+	/**
+	 * Merges two sequences of token occurrences, each ordered by start
+	 * offset, into a single ordered one. An occurrence present in both
+	 * sequences (e.g. the same word found by two engines) is only included
+	 * once.
+	 *
+	 * @param left
+	 * @param right
+	 */
+	public static TokenOccurrences merge(@Nonnull final TokenOccurrences left, @Nonnull final TokenOccurrences right) {
+		final TokenOccurrences merged = new TokenOccurrences();
+		final int leftSize = left.size();
+		final int rightSize = right.size();
+		int i = 0;
+		int j = 0;
+		while (i < leftSize || j < rightSize) {
+			if (j == rightSize || i < leftSize && left.starts[i] < right.starts[j]) {
+				merged.add(left.tokens.get(i), left.starts[i]);
+				i++;
+			} else if (i == leftSize || right.starts[j] < left.starts[i]) {
+				merged.add(right.tokens.get(j), right.starts[j]);
+				j++;
+			} else {
+				final String leftToken = left.tokens.get(i);
+				final String rightToken = right.tokens.get(j);
+				merged.add(leftToken, left.starts[i]);
+				if (!leftToken.equals(rightToken)) {
+					/*
+					 * Engines may tokenize the same text
+					 * differently; keep both tokens.
+					 */
+					merged.add(rightToken, right.starts[j]);
+				}
+				i++;
+				j++;
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * @param results the analyzes of (at least) every distinct token.
+	 * @return a span for each token occurrence, referencing the set of
+	 *         analyzes mapped to its token.
+	 */
+	public List<TokenSpan> toSpans(@Nonnull final Map<String, Set<MorphologicalAnalysisResult>> results) {
+		final int size = this.tokens.size();
+		final List<TokenSpan> spans = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			final String token = this.tokens.get(i);
+			final Set<MorphologicalAnalysisResult> tokenResults = results.get(token);
+			if (tokenResults != null) {
+				spans.add(new TokenSpan(token, this.starts[i], this.starts[i] + token.length(), tokenResults));
+			}
+		}
+		return spans;
+	}
+}
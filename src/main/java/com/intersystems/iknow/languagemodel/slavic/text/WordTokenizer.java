@@ -0,0 +1,89 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.text;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Splits text into words separated by runs of delimiter characters.
+ *
+ * <p>Delimiters are looked up in a precomputed table covering the whole
+ * Basic Multilingual Plane, and words are reported as {@code (start, end)}
+ * offsets into the original text, so tokenizing doesn't allocate anything.
+ * Instances are immutable and can be shared between threads.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class WordTokenizer {
+	/**
+	 * One bit per {@code char}.
+	 */
+	private final long delimiters[] = new long[(Character.MAX_VALUE + 1) >>> 6];
+
+	/**
+	 * @param delimiters the characters which separate words.
+	 */
+	public WordTokenizer(@Nonnull final CharSequence delimiters) {
+		delimiters.chars().forEach(c -> this.delimiters[c >>> 6] |= 1L << c);
+	}
+
+	/**
+	 * @param c
+	 */
+	public boolean isDelimiter(final char c) {
+		return (this.delimiters[c >>> 6] & 1L << c) != 0;
+	}
+
+	/**
+	 * Reports each non-empty word of the <em>text</em> to the
+	 * <em>handler</em>, in the order of occurrence.
+	 *
+	 * @param text
+	 * @param handler
+	 */
+	public void tokenize(@Nonnull final CharSequence text, @Nonnull final TokenHandler handler) {
+		final int length = text.length();
+		int start = -1;
+		for (int i = 0; i < length; i++) {
+			if (this.isDelimiter(text.charAt(i))) {
+				if (start != -1) {
+					handler.token(text, start, i);
+					start = -1;
+				}
+			} else if (start == -1) {
+				start = i;
+			}
+		}
+		if (start != -1) {
+			handler.token(text, start, length);
+		}
+	}
+
+	/**
+	 * @param text
+	 * @return distinct words of the <em>text</em>, in the order of their
+	 *         first occurrence.
+	 */
+	public Set<String> distinctWords(@Nonnull final CharSequence text) {
+		final Set<String> words = new LinkedHashSet<>();
+		this.tokenize(text, (source, start, end) -> words.add(source.subSequence(start, end).toString()));
+		return words;
+	}
+
+	/**
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	@FunctionalInterface
+	public interface TokenHandler {
+		/**
+		 * @param text the text being tokenized.
+		 * @param start the index of the first character of the word.
+		 * @param end the index following the last character of the word.
+		 */
+		void token(final CharSequence text, final int start, final int end);
+	}
+}
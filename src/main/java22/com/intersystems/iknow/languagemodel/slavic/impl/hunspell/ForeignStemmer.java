@@ -0,0 +1,286 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.impl.hunspell;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A {@linkplain Stemmer stemmer} which calls the Hunspell C API of
+ * {@code libhunspell} directly, via the Foreign Function &amp; Memory API
+ * (Java 22+).
+ *
+ * <p>Words are encoded into a native buffer allocated once per stemmer, in
+ * the encoding of the dictionary, and stems are decoded straight from the
+ * native memory Hunspell returns them in. All the native memory of the
+ * stemmer, including the Hunspell handle, is freed by {@link #close()}.</p>
+ *
+ * <p>The library is looked up by the name given by the {@value
+ * #LIBRARY_PROPERTY} system property, or else by the names {@code
+ * libhunspell} is usually installed under. Native access has to be enabled
+ * with {@code --enable-native-access=ALL-UNNAMED}, or Java warns about it.</p>
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class ForeignStemmer implements Stemmer {
+	/**
+	 * The name or the path of the Hunspell shared library.
+	 */
+	public static final String LIBRARY_PROPERTY = "hunspell.library";
+
+	private static final String LIBRARY_NAMES[] = {
+		"libhunspell-1.7.so.0",
+		"libhunspell-1.6.so.0",
+		"libhunspell.so",
+		"libhunspell-1.7.0.dylib",
+		"libhunspell.dylib",
+	};
+
+	/**
+	 * Far longer than any dictionary word: Hunspell refuses words longer
+	 * than 100 characters anyway.
+	 */
+	private static final int INPUT_BUFFER_SIZE = 1024;
+
+	@Nonnull
+	private final Arena arena = Arena.ofShared();
+
+	@Nonnull
+	private final MemorySegment handle;
+
+	@Nonnull
+	private final Charset charset;
+
+	@Nonnull
+	private final CharsetEncoder encoder;
+
+	@Nonnull
+	private final CharsetDecoder decoder;
+
+	/**
+	 * Whether {@link MemorySegment#getString(long, Charset)} supports
+	 * the {@link #charset}.
+	 */
+	private final boolean standardCharset;
+
+	/**
+	 * The word, in the dictionary encoding, null-terminated.
+	 */
+	@Nonnull
+	private final MemorySegment inputBuffer;
+
+	@Nonnull
+	private final ByteBuffer input;
+
+	/**
+	 * The {@code char **} Hunspell stores its list of stems at.
+	 */
+	@Nonnull
+	private final MemorySegment stemList;
+
+	private boolean closed;
+
+	/**
+	 * @param dictionaryPath the path of the {@code .dic} file.
+	 * @param affixPath the path of the {@code .aff} file.
+	 */
+	public ForeignStemmer(@Nonnull final String dictionaryPath, @Nonnull final String affixPath) {
+		MemorySegment handle = MemorySegment.NULL;
+		try {
+			handle = (MemorySegment) Library.CREATE.invokeExact(this.arena.allocateFrom(affixPath), this.arena.allocateFrom(dictionaryPath));
+			if (handle.equals(MemorySegment.NULL)) {
+				throw new IllegalStateException("Hunspell_create() failed for " + dictionaryPath);
+			}
+			final MemorySegment encoding = (MemorySegment) Library.GET_DIC_ENCODING.invokeExact(handle);
+			this.charset = Charset.forName(encoding.reinterpret(Long.MAX_VALUE).getString(0, US_ASCII));
+		} catch (final Throwable t) {
+			if (!handle.equals(MemorySegment.NULL)) {
+				try {
+					Library.DESTROY.invokeExact(handle);
+				} catch (final Throwable suppressed) {
+					t.addSuppressed(suppressed);
+				}
+			}
+			this.arena.close();
+			if (t instanceof RuntimeException) {
+				throw (RuntimeException) t;
+			} else if (t instanceof Error) {
+				throw (Error) t;
+			}
+			throw new IllegalStateException(t);
+		}
+		this.handle = handle;
+
+		this.encoder = this.charset.newEncoder();
+		this.decoder = this.charset.newDecoder();
+		this.standardCharset = this.charset.equals(UTF_8) || this.charset.equals(ISO_8859_1) || this.charset.equals(US_ASCII);
+		this.inputBuffer = this.arena.allocate(INPUT_BUFFER_SIZE);
+		this.input = this.inputBuffer.asByteBuffer();
+		this.stemList = this.arena.allocate(ADDRESS);
+	}
+
+	/**
+	 * Words which can't be encoded in the dictionary encoding, or don't fit
+	 * the input buffer, have no stems.
+	 *
+	 * @see Stemmer#stem(String, List)
+	 */
+	@Override
+	public int stem(final String word, final List<String> stems) {
+		if (this.closed) {
+			throw new IllegalStateException("Stemmer closed");
+		}
+
+		this.input.clear();
+		this.encoder.reset();
+		final CharBuffer chars = CharBuffer.wrap(word);
+		final CoderResult encodeResult = this.encoder.encode(chars, this.input, true);
+		if (encodeResult.isError() || encodeResult.isOverflow() || this.encoder.flush(this.input).isOverflow() || !this.input.hasRemaining()) {
+			return 0;
+		}
+		this.inputBuffer.set(JAVA_BYTE, this.input.position(), (byte) 0);
+
+		try {
+			final int stemCount = (int) Library.STEM.invokeExact(this.handle, this.stemList, this.inputBuffer);
+			if (stemCount <= 0) {
+				return 0;
+			}
+
+			try {
+				final MemorySegment stemPointers = this.stemList.get(ADDRESS, 0).reinterpret(stemCount * ADDRESS.byteSize());
+				for (int i = 0; i < stemCount; i++) {
+					stems.add(this.decode(stemPointers.getAtIndex(ADDRESS, i).reinterpret(Long.MAX_VALUE)));
+				}
+			} finally {
+				Library.FREE_LIST.invokeExact(this.handle, this.stemList, stemCount);
+			}
+			return stemCount;
+		} catch (final RuntimeException | Error e) {
+			throw e;
+		} catch (final Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+
+	/**
+	 * @param string a null-terminated string in the dictionary encoding.
+	 * @throws CharacterCodingException
+	 */
+	private String decode(final MemorySegment string) throws CharacterCodingException {
+		if (this.standardCharset) {
+			return string.getString(0, this.charset);
+		}
+
+		long length = 0;
+		while (string.get(JAVA_BYTE, length) != 0) {
+			length++;
+		}
+		return this.decoder.decode(string.asSlice(0, length).asByteBuffer()).toString();
+	}
+
+	/**
+	 * @see Stemmer#close()
+	 */
+	@Override
+	public void close() {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+
+		try {
+			Library.DESTROY.invokeExact(this.handle);
+		} catch (final RuntimeException | Error e) {
+			throw e;
+		} catch (final Throwable t) {
+			throw new IllegalStateException(t);
+		} finally {
+			this.arena.close();
+		}
+	}
+
+	/**
+	 * The downcall handles, bound once the library has been loaded.
+	 *
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	private static final class Library {
+		/**
+		 * {@code Hunhandle *Hunspell_create(const char *affpath, const char *dpath)}
+		 */
+		static final MethodHandle CREATE;
+
+		/**
+		 * {@code void Hunspell_destroy(Hunhandle *pHunspell)}
+		 */
+		static final MethodHandle DESTROY;
+
+		/**
+		 * {@code char *Hunspell_get_dic_encoding(Hunhandle *pHunspell)}
+		 */
+		static final MethodHandle GET_DIC_ENCODING;
+
+		/**
+		 * {@code int Hunspell_stem(Hunhandle *pHunspell, char ***slst, const char *word)}
+		 */
+		static final MethodHandle STEM;
+
+		/**
+		 * {@code void Hunspell_free_list(Hunhandle *pHunspell, char ***slst, int n)}
+		 */
+		static final MethodHandle FREE_LIST;
+
+		static {
+			final SymbolLookup library = load();
+			final Linker linker = Linker.nativeLinker();
+			CREATE = linker.downcallHandle(library.find("Hunspell_create").orElseThrow(), FunctionDescriptor.of(ADDRESS, ADDRESS, ADDRESS));
+			DESTROY = linker.downcallHandle(library.find("Hunspell_destroy").orElseThrow(), FunctionDescriptor.ofVoid(ADDRESS));
+			GET_DIC_ENCODING = linker.downcallHandle(library.find("Hunspell_get_dic_encoding").orElseThrow(), FunctionDescriptor.of(ADDRESS, ADDRESS));
+			STEM = linker.downcallHandle(library.find("Hunspell_stem").orElseThrow(), FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+			FREE_LIST = linker.downcallHandle(library.find("Hunspell_free_list").orElseThrow(), FunctionDescriptor.ofVoid(ADDRESS, ADDRESS, JAVA_INT));
+		}
+
+		private Library() {
+			assert false;
+		}
+
+		private static SymbolLookup load() {
+			final String libraryName = System.getProperty(LIBRARY_PROPERTY);
+			if (libraryName != null) {
+				return SymbolLookup.libraryLookup(libraryName, Arena.global());
+			}
+
+			IllegalArgumentException lastFailure = null;
+			for (final String candidateName : LIBRARY_NAMES) {
+				try {
+					return SymbolLookup.libraryLookup(candidateName, Arena.global());
+				} catch (final IllegalArgumentException iae) {
+					lastFailure = iae;
+				}
+			}
+			throw new IllegalStateException("libhunspell not found; set the " + LIBRARY_PROPERTY + " system property", lastFailure);
+		}
+	}
+}
@@ -0,0 +1,207 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.intersystems.iknow.languagemodel.slavic.cache.WordFormCache;
+
+/**
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class CachingMorphologicalAnalyzerTest {
+	private static final List<String> LANGUAGES = asList("ru", "uk");
+
+	/**
+	 * @throws RemoteException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testTextsAnalyzedOnMiss() throws RemoteException {
+		final List<String> requests = new ArrayList<>();
+		final CachingMorphologicalAnalyzer analyzer = new CachingMorphologicalAnalyzer(text -> {
+			requests.add(text);
+			return analyze(text);
+		}, LANGUAGES);
+
+		assertEquals(analyze("Мама мыла раму."), analyzer.analyze("Мама мыла раму."));
+		assertEquals(analyze("мыла раму, мыла"), analyzer.analyze("мыла раму, мыла"));
+		assertEquals(analyze("раму, мыло"), analyzer.analyze("раму, мыло"));
+
+		/*
+		 * Texts with any word form not cached are analyzed
+		 * as a whole, in a single call.
+		 */
+		assertEquals(asList("Мама мыла раму.", "раму, мыло"), requests);
+
+		/*
+		 * One entry per language and token.
+		 */
+		final WordFormCache<?> cache = analyzer.getCache();
+		assertEquals(8, cache.size());
+		assertEquals(8, cache.getMissCount());
+		assertEquals(6, cache.getHitCount());
+		assertEquals(0, cache.getEvictionCount());
+	}
+
+	/**
+	 * @throws RemoteException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSpans() throws RemoteException {
+		final MorphologicalAnalyzer delegate = CachingMorphologicalAnalyzerTest::analyze;
+		final String text = "Мыла раму, мыла.";
+
+		/*
+		 * The second call to the caching analyzer is served from
+		 * the cache.
+		 */
+		final CachingMorphologicalAnalyzer cachingAnalyzer = new CachingMorphologicalAnalyzer(delegate, LANGUAGES);
+		for (final MorphologicalAnalyzer analyzer : asList(delegate, cachingAnalyzer, cachingAnalyzer)) {
+			final List<TokenSpan> spans = analyzer.analyzeSpans(text);
+			assertEquals(3, spans.size());
+			assertEquals("Мыла", spans.get(0).getToken());
+			assertEquals(0, spans.get(0).getStart());
+			assertEquals(4, spans.get(0).getEnd());
+			assertEquals("раму", text.substring(spans.get(1).getStart(), spans.get(1).getEnd()));
+			assertEquals("мыла", text.substring(spans.get(2).getStart(), spans.get(2).getEnd()));
+			assertEquals(spans.get(0).getResults(), analyzer.analyze(text).get("Мыла"));
+		}
+		assertTrue(cachingAnalyzer.getCache().getHitCount() > 0);
+	}
+
+	/**
+	 * @throws RemoteException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testBatch() throws RemoteException {
+		final List<String> requests = new ArrayList<>();
+		final MorphologicalAnalyzer delegate = text -> {
+			requests.add(text);
+			return analyze(text);
+		};
+		final List<String> texts = asList("Мама мыла раму.", "мыла раму", "", "Мама мыла раму.");
+
+		/*
+		 * The default implementation: identical texts are only
+		 * analyzed once.
+		 */
+		final List<Map<String, Set<MorphologicalAnalysisResult>>> expected = delegate.analyzeBatch(texts);
+		assertEquals(asList("Мама мыла раму.", "мыла раму", ""), requests);
+		assertEquals(texts.size(), expected.size());
+
+		requests.clear();
+		final CachingMorphologicalAnalyzer analyzer = new CachingMorphologicalAnalyzer(delegate, LANGUAGES);
+		assertEquals(expected, analyzer.analyzeBatch(texts));
+		assertEquals(asList("Мама мыла раму.", "мыла раму"), requests);
+
+		/*
+		 * Only the text with a word form not cached yet is passed
+		 * to the delegate.
+		 */
+		requests.clear();
+		final List<String> moreTexts = asList("раму мыла", "мыла мыло");
+		assertEquals(asList(analyze("раму мыла"), analyze("мыла мыло")), analyzer.analyzeBatch(moreTexts));
+		assertEquals(singletonList("мыла мыло"), requests);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testFrequentWordFormsRetained() {
+		final WordFormCache<String> cache = new WordFormCache<>(1024, String::length);
+		for (int i = 0; i < 10; i++) {
+			if (cache.get("раму") == null) {
+				cache.put("раму", "раму");
+			}
+		}
+
+		/*
+		 * A stream of one-off word forms shouldn't flush out
+		 * the frequent one.
+		 */
+		for (int i = 0; i < 1000; i++) {
+			final String wordForm = "слово" + i;
+			if (cache.get(wordForm) == null) {
+				cache.put(wordForm, wordForm);
+			}
+		}
+		assertEquals("раму", cache.get("раму"));
+		assertTrue(cache.weight() <= cache.getMaximumWeight());
+		assertTrue(cache.getRejectionCount() > 0);
+	}
+
+	/**
+	 * A candidate rejected on the second victim mustn't have evicted
+	 * the first one.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testRejectAfterPartialEviction() {
+		final WordFormCache<Integer> cache = new WordFormCache<>(10000, Integer::intValue);
+
+		/*
+		 * The least recently used entry is requested once,
+		 * the next one ten times.
+		 */
+		cache.get("мама");
+		cache.put("мама", Integer.valueOf(4000));
+		for (int i = 0; i < 10; i++) {
+			if (cache.get("рама") == null) {
+				cache.put("рама", Integer.valueOf(4000));
+			}
+		}
+		final long weight = cache.weight();
+
+		/*
+		 * Requested twice, and heavy enough to need both entries evicted.
+		 */
+		cache.get("мыла");
+		cache.get("мыла");
+		cache.put("мыла", Integer.valueOf(7000));
+
+		assertEquals(2, cache.size());
+		assertEquals(weight, cache.weight());
+		assertEquals(Integer.valueOf(4000), cache.get("мама"));
+		assertEquals(Integer.valueOf(4000), cache.get("рама"));
+		assertEquals(0, cache.getEvictionCount());
+		assertEquals(1, cache.getRejectionCount());
+	}
+
+	/**
+	 * Analyzes each word of the <em>text</em> on its own, in both
+	 * languages for words with no Russian-only letters.
+	 *
+	 * @param text
+	 */
+	private static Map<String, Set<MorphologicalAnalysisResult>> analyze(final String text) {
+		final Map<String, Set<MorphologicalAnalysisResult>> results = new LinkedHashMap<>();
+		for (final String token : text.split("[^\\p{L}]+")) {
+			if (token.isEmpty()) {
+				continue;
+			}
+			final Set<MorphologicalAnalysisResult> tokenResults = new LinkedHashSet<>();
+			tokenResults.add(new MorphologicalAnalysisResult("ru", token.toLowerCase()));
+			if (token.indexOf('ы') == -1) {
+				tokenResults.add(new MorphologicalAnalysisResult("uk", token.toLowerCase()));
+			}
+			results.put(token, tokenResults);
+		}
+		return results;
+	}
+}
@@ -0,0 +1,156 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic;
+
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class CoalescingMorphologicalAnalyzerTest {
+	/**
+	 * @throws Exception
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testFullBatch() throws Exception {
+		final List<List<String>> batches = new CopyOnWriteArrayList<>();
+		final CoalescingMorphologicalAnalyzer analyzer = new CoalescingMorphologicalAnalyzer(new BatchRecordingAnalyzer(batches), 1, SECONDS, 4);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			final String texts[] = {"Мама мыла", "мыла раму", "раму мыла"};
+			final List<Future<Map<String, Set<MorphologicalAnalysisResult>>>> futures = new ArrayList<>();
+			for (final String text : texts) {
+				futures.add(executor.submit(() -> analyzer.analyze(text)));
+			}
+			while (analyzer.getRequestCount() < texts.length) {
+				Thread.sleep(1);
+			}
+
+			/*
+			 * The fourth distinct word form closes the batch long
+			 * before the wait elapses.
+			 */
+			final long start = System.nanoTime();
+			assertEquals(analyze("Мама мыла раму рано"), analyzer.analyze("Мама мыла раму рано"));
+			assertTrue(System.nanoTime() - start < SECONDS.toNanos(1));
+			for (int i = 0; i < texts.length; i++) {
+				assertEquals(analyze(texts[i]), futures.get(i).get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(1, batches.size());
+		assertEquals(4, batches.get(0).size());
+		assertEquals(4, analyzer.getRequestCount());
+		assertEquals(1, analyzer.getBatchCount());
+		assertEquals(1, analyzer.getFullBatchCount());
+		assertEquals(4.0, analyzer.getAverageRequestsPerBatch());
+		assertEquals(4, analyzer.getMaximumBatchSize());
+	}
+
+	/**
+	 * @throws RemoteException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testWaitWindow() throws RemoteException {
+		final List<List<String>> batches = new CopyOnWriteArrayList<>();
+		final CoalescingMorphologicalAnalyzer analyzer = new CoalescingMorphologicalAnalyzer(new BatchRecordingAnalyzer(batches), 20, MILLISECONDS, 100);
+
+		assertEquals(analyze("Мама мыла раму"), analyzer.analyze("Мама мыла раму"));
+		assertEquals(1, batches.size());
+		/*
+		 * Texts are passed as a whole, so that the delegate
+		 * sees each word in its context.
+		 */
+		assertEquals(singletonList("Мама мыла раму"), batches.get(0));
+		assertEquals(1, analyzer.getBatchCount());
+		assertEquals(0, analyzer.getFullBatchCount());
+		assertEquals(3.0, analyzer.getAverageBatchSize());
+		assertTrue(analyzer.getMaximumWaitNanos() >= MILLISECONDS.toNanos(20));
+	}
+
+	/**
+	 * @throws RemoteException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testFailure() throws RemoteException {
+		final CoalescingMorphologicalAnalyzer analyzer = new CoalescingMorphologicalAnalyzer(text -> {
+			throw new AnalysisException("Failed: " + text);
+		}, 0, MILLISECONDS, 100);
+
+		try {
+			analyzer.analyze("Мама");
+			fail("The analysis should have failed");
+		} catch (final AnalysisException ae) {
+			assertEquals("Failed: Мама", ae.getMessage());
+		}
+	}
+
+	/**
+	 * @param text
+	 */
+	private static Map<String, Set<MorphologicalAnalysisResult>> analyze(final String text) {
+		final Map<String, Set<MorphologicalAnalysisResult>> results = new LinkedHashMap<>();
+		for (final String token : text.split(" ")) {
+			results.put(token, singleton(new MorphologicalAnalysisResult("ru", token.toLowerCase())));
+		}
+		return results;
+	}
+
+	/**
+	 * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+	 */
+	private static final class BatchRecordingAnalyzer implements MorphologicalAnalyzer {
+		private final List<List<String>> batches;
+
+		/**
+		 * @param batches
+		 */
+		BatchRecordingAnalyzer(final List<List<String>> batches) {
+			this.batches = batches;
+		}
+
+		/**
+		 * @see MorphologicalAnalyzer#analyze(String)
+		 */
+		@Override
+		public Map<String, Set<MorphologicalAnalysisResult>> analyze(final String text) {
+			return CoalescingMorphologicalAnalyzerTest.analyze(text);
+		}
+
+		/**
+		 * @see MorphologicalAnalyzer#analyzeBatch(List)
+		 */
+		@Override
+		public List<Map<String, Set<MorphologicalAnalysisResult>>> analyzeBatch(final List<String> texts)
+		throws AnalysisException, RemoteException {
+			this.batches.add(new ArrayList<>(texts));
+			return MorphologicalAnalyzer.super.analyzeBatch(texts);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.intersystems.iknow.languagemodel.slavic.categories.Declension;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalAspect;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalCase;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalGender;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalNumber;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalPerson;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalTense;
+
+/**
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class GrammaticalCategoriesTest {
+	@SuppressWarnings("static-method")
+	@Test
+	public void testRoundTrip() {
+		final List<GrammaticalCategory> categories = new ArrayList<>();
+		categories.addAll(asList(GrammaticalCase.values()));
+		categories.addAll(asList(GrammaticalGender.values()));
+		categories.addAll(asList(GrammaticalNumber.values()));
+		categories.addAll(asList(GrammaticalPerson.values()));
+		categories.addAll(asList(GrammaticalTense.values()));
+		categories.addAll(asList(GrammaticalAspect.values()));
+		categories.addAll(asList(Declension.values()));
+
+		final long mask = GrammaticalCategories.mask(categories);
+		assertEquals(GrammaticalCategories.allCategories(), mask);
+		assertEquals(categories.size(), Long.bitCount(mask));
+		assertEquals(categories, new ArrayList<>(GrammaticalCategories.asSet(mask)));
+
+		/*
+		 * Same-named constants of different types.
+		 */
+		assertFalse(GrammaticalCategories.mask(GrammaticalPerson.FIRST) == GrammaticalCategories.mask(Declension.FIRST));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSetView() {
+		final Set<GrammaticalCategory> expected = new HashSet<>(asList(GrammaticalGender.FEMININE, GrammaticalNumber.SINGLE, GrammaticalCase.ACCUSATIVE));
+		final Set<GrammaticalCategory> actual = GrammaticalCategories.asSet(GrammaticalCategories.mask(expected));
+
+		assertEquals(expected, actual);
+		assertEquals(actual, expected);
+		assertEquals(expected.hashCode(), actual.hashCode());
+		assertTrue(actual.contains(GrammaticalNumber.SINGLE));
+		assertFalse(actual.contains(GrammaticalNumber.PLURAL));
+		assertFalse(actual.contains("SINGLE"));
+		assertTrue(GrammaticalCategories.NONE.isEmpty());
+	}
+
+	@SuppressWarnings("static-method")
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnly() {
+		GrammaticalCategories.asSet(GrammaticalCategories.mask(GrammaticalAspect.PERFECTIVE)).add(GrammaticalAspect.IMPERFECTIVE);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testResultEquality() {
+		final MorphologicalAnalysisResult left = new MorphologicalAnalysisResult("ru", "рама", PartOfSpeech.NOUN, GrammaticalGender.FEMININE, GrammaticalCase.ACCUSATIVE);
+		final MorphologicalAnalysisResult right = new MorphologicalAnalysisResult("ru", "рама", PartOfSpeech.NOUN, asList(GrammaticalCase.ACCUSATIVE, GrammaticalGender.FEMININE));
+		assertEquals(left, right);
+		assertEquals(left.hashCode(), right.hashCode());
+		assertEquals(new HashSet<>(asList(GrammaticalGender.FEMININE, GrammaticalCase.ACCUSATIVE)), left.getCategories());
+		assertFalse(left.equals(new MorphologicalAnalysisResult("ru", "рама", PartOfSpeech.NOUN, GrammaticalGender.FEMININE)));
+	}
+}
@@ -0,0 +1,105 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalCase;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalGender;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalNumber;
+
+/**
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class MorphologicalAnalysisCodecTest {
+	@SuppressWarnings("static-method")
+	@Test
+	public void testRoundTrip() {
+		final Map<String, Set<MorphologicalAnalysisResult>> results = sampleResults();
+
+		final ByteBuffer encoded = MorphologicalAnalysisCodec.encode(results);
+		final Map<String, Set<MorphologicalAnalysisResult>> decoded = MorphologicalAnalysisCodec.decode(encoded);
+		assertEquals(results, decoded);
+		assertEquals(asList(results.keySet().toArray()), asList(decoded.keySet().toArray()));
+		assertFalse(encoded.hasRemaining());
+
+		assertEquals(emptyMap(), MorphologicalAnalysisCodec.decode(MorphologicalAnalysisCodec.encode(emptyMap())));
+
+		/*
+		 * Several messages in a direct buffer, back to back.
+		 */
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+		MorphologicalAnalysisCodec.encode(results, buffer);
+		MorphologicalAnalysisCodec.encode(results, buffer);
+		buffer.flip();
+		assertEquals(results, MorphologicalAnalysisCodec.decode(buffer));
+		assertEquals(results, MorphologicalAnalysisCodec.decode(buffer));
+		assertFalse(buffer.hasRemaining());
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSmallerThanJson() {
+		final Map<String, Set<MorphologicalAnalysisResult>> results = sampleResults();
+		final int binarySize = MorphologicalAnalysisCodec.encode(results).remaining();
+		final int jsonSize = new MorphologicalAnalysisJsonWriter().toJson(results).getBytes(UTF_8).length;
+		assertTrue(binarySize * 3 < jsonSize);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testVarLong() {
+		final ByteBuffer buffer = ByteBuffer.allocate(16);
+		for (final long value : new long[] {0L, 1L, 127L, 128L, 16383L, 16384L, GrammaticalCategories.allCategories(), Long.MAX_VALUE, -1L}) {
+			buffer.clear();
+			MorphologicalAnalysisCodec.writeVarLong(value, buffer);
+			assertEquals(MorphologicalAnalysisCodec.varLongSize(value), buffer.position());
+			buffer.flip();
+			assertEquals(value, MorphologicalAnalysisCodec.readVarLong(buffer));
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test(expected = BufferUnderflowException.class)
+	public void testTruncated() {
+		final ByteBuffer encoded = MorphologicalAnalysisCodec.encode(sampleResults());
+		encoded.limit(encoded.limit() - 1);
+		MorphologicalAnalysisCodec.decode(encoded);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedVersion() {
+		final ByteBuffer encoded = MorphologicalAnalysisCodec.encode(sampleResults());
+		encoded.put(0, (byte) (MorphologicalAnalysisCodec.VERSION + 1));
+		MorphologicalAnalysisCodec.decode(encoded);
+	}
+
+	private static Map<String, Set<MorphologicalAnalysisResult>> sampleResults() {
+		final Map<String, Set<MorphologicalAnalysisResult>> results = new LinkedHashMap<>();
+		results.put("Мама", new LinkedHashSet<>(asList(
+				new MorphologicalAnalysisResult("ru", "мама", PartOfSpeech.NOUN, GrammaticalGender.FEMININE, GrammaticalNumber.SINGLE, GrammaticalCase.NOMINATIVE),
+				new MorphologicalAnalysisResult("uk", "мама", PartOfSpeech.NOUN, GrammaticalGender.FEMININE, GrammaticalNumber.SINGLE, GrammaticalCase.NOMINATIVE))));
+		results.put("маму", new LinkedHashSet<>(asList(
+				new MorphologicalAnalysisResult("ru", "мама", PartOfSpeech.NOUN, GrammaticalGender.FEMININE, GrammaticalNumber.SINGLE, GrammaticalCase.ACCUSATIVE),
+				new MorphologicalAnalysisResult("uk", "мама"))));
+		results.put("iKnow", emptySet());
+		return results;
+	}
+}
@@ -0,0 +1,73 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
+import static junit.framework.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalCase;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalGender;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalNumber;
+
+/**
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class MorphologicalAnalysisJsonWriterTest {
+	/**
+	 * @throws IOException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSameAsGson() throws IOException {
+		final Map<String, Set<MorphologicalAnalysisResult>> results = new LinkedHashMap<>();
+		results.put("Мама", new LinkedHashSet<>(asList(
+				new MorphologicalAnalysisResult("ru", "мама", PartOfSpeech.NOUN, GrammaticalGender.FEMININE, GrammaticalNumber.SINGLE, GrammaticalCase.NOMINATIVE),
+				new MorphologicalAnalysisResult("uk", "мама"))));
+		results.put("п'ятниця", new LinkedHashSet<>(asList(new MorphologicalAnalysisResult("uk", "п'ятниця", PartOfSpeech.NOUN))));
+		results.put("\"foo\\\n\u0001 ", emptySet());
+
+		for (final boolean prettyPrinting : new boolean[] {false, true}) {
+			final GsonBuilder builder = new GsonBuilder()
+					.registerTypeAdapter(MorphologicalAnalysisResult.class, new MorphologicalAnalysisResultSerializer())
+					.disableHtmlEscaping();
+			if (prettyPrinting) {
+				builder.setPrettyPrinting();
+			}
+			final Gson gson = builder.create();
+			final MorphologicalAnalysisJsonWriter writer = new MorphologicalAnalysisJsonWriter(prettyPrinting);
+
+			assertEquals(gson.toJson(results), writer.toJson(results));
+			assertEquals(gson.toJson(emptyMap()), writer.toJson(emptyMap()));
+
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			writer.write(results, out);
+			assertEquals(gson.toJson(results), new String(out.toByteArray(), UTF_8));
+
+			final List<Map<String, Set<MorphologicalAnalysisResult>>> batchResults = asList(results, Collections.<String, Set<MorphologicalAnalysisResult>>emptyMap(), results);
+			out.reset();
+			writer.writeBatch(batchResults, out);
+			assertEquals(gson.toJson(batchResults), new String(out.toByteArray(), UTF_8));
+			out.reset();
+			writer.writeBatch(Collections.<Map<String, Set<MorphologicalAnalysisResult>>>emptyList(), out);
+			assertEquals(gson.toJson(emptyList()), new String(out.toByteArray(), UTF_8));
+		}
+	}
+}
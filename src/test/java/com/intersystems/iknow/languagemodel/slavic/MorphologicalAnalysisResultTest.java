@@ -0,0 +1,90 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalCase;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalGender;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalNumber;
+
+/**
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class MorphologicalAnalysisResultTest {
+	/**
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+		final Map<String, Set<MorphologicalAnalysisResult>> results = new LinkedHashMap<>();
+		results.put("маму", new LinkedHashSet<>(asList(
+				new MorphologicalAnalysisResult("ru", "мама", PartOfSpeech.NOUN, GrammaticalGender.FEMININE, GrammaticalNumber.SINGLE, GrammaticalCase.ACCUSATIVE),
+				new MorphologicalAnalysisResult("uk", "мама"))));
+		results.put("iKnow", new LinkedHashSet<>());
+
+		assertEquals(results, deserialize(serialize(results)));
+	}
+
+	/**
+	 * The analyzers share a single instance of each stem across the results
+	 * of a call, and serialization writes it only once.
+	 *
+	 * @throws IOException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testRepeatedStems() throws IOException {
+		final String stem = "существительное";
+		final MorphologicalAnalysisResult first = new MorphologicalAnalysisResult("ru", stem, PartOfSpeech.NOUN, GrammaticalCase.NOMINATIVE);
+		final MorphologicalAnalysisResult second = new MorphologicalAnalysisResult("ru", stem, PartOfSpeech.NOUN, GrammaticalCase.GENITIVE);
+
+		final int single = serialize(asList(first)).length;
+		final int both = serialize(asList(first, second)).length;
+		final int perResult = both - single;
+		/*
+		 * The stem alone takes more than that.
+		 */
+		assertTrue(String.valueOf(perResult), perResult < stem.getBytes("UTF-8").length);
+	}
+
+	/**
+	 * @param object
+	 * @throws IOException
+	 */
+	private static byte[] serialize(final Object object) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @param bytes
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private static Object deserialize(final byte bytes[]) throws IOException, ClassNotFoundException {
+		try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readObject();
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.impl;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import com.intersystems.iknow.languagemodel.slavic.AnalysisException;
+
+/**
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class EnginePoolTest {
+	/**
+	 * @throws AnalysisException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testBorrowTimeout() throws AnalysisException {
+		final EnginePool<String> pool = new EnginePool<>(asList("ru-1", "ru-2"), 50, MILLISECONDS);
+		final String first = pool.borrow();
+		final String second = pool.borrow();
+		assertEquals(2, pool.getActiveCount());
+		assertEquals(1.0, pool.getUtilization());
+
+		try {
+			pool.borrow();
+			fail("Pool should have been exhausted");
+		} catch (final AnalysisException ae) {
+			assertTrue(ae.getCause() instanceof TimeoutException);
+		}
+		assertEquals(1, pool.getTimeoutCount());
+
+		pool.release(first);
+		pool.release(second);
+		assertEquals(0, pool.getActiveCount());
+		assertEquals(2, pool.getBorrowCount());
+
+		pool.release(pool.borrow());
+		assertEquals(3, pool.getBorrowCount());
+	}
+}
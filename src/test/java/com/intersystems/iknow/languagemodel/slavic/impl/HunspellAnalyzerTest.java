@@ -4,22 +4,48 @@
 package com.intersystems.iknow.languagemodel.slavic.impl;
 
 import static java.lang.System.out;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
 import static java.util.Arrays.stream;
+import static java.util.Collections.singletonMap;
+import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 import static junit.framework.Assert.fail;
+import static org.junit.Assume.assumeNoException;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.junit.Test;
 import org.xml.sax.SAXException;
 
+import com.intersystems.iknow.languagemodel.slavic.AnalysisException;
 import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalysisResult;
 import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalyzer;
 import com.intersystems.iknow.languagemodel.slavic.SerializingMorphologicalAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.impl.HunspellAnalyzer.Binding;
+import com.intersystems.iknow.languagemodel.slavic.impl.HunspellAnalyzer.Concurrency;
+import com.intersystems.iknow.languagemodel.slavic.impl.hunspell.Stemmer;
 
 /**
  * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
@@ -65,6 +91,276 @@ public final class HunspellAnalyzerTest {
 		});
 	}
 
+	/**
+	 * @throws AnalysisException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testBatch() throws AnalysisException {
+		final HunspellAnalyzer analyzer = new HunspellAnalyzer();
+		final List<String> texts = asList("Мама мыла раму.", "мыла п'ятниця", "", "Мама мыла раму.");
+		final List<Map<String, Set<MorphologicalAnalysisResult>>> results = analyzer.analyzeBatch(texts);
+		assertEquals(texts.size(), results.size());
+		for (int i = 0; i < texts.size(); i++) {
+			assertEquals(analyzer.analyze(texts.get(i)), results.get(i));
+		}
+
+		/*
+		 * The analyzes of "мыла" are shared by the first two texts.
+		 */
+		assertSame(results.get(0).get("мыла"), results.get(1).get("мыла"));
+		try {
+			results.get(3).remove("мыла");
+			fail("Batch results should be read-only");
+		} catch (final UnsupportedOperationException uoe) {
+			// expected
+		}
+
+		/*
+		 * With no dictionaries installed, no token is reported at all.
+		 */
+		final Set<MorphologicalAnalysisResult> analyzes = results.get(1).get("мыла");
+		if (analyzes != null) {
+			try {
+				analyzes.add(new MorphologicalAnalysisResult("ru", "мыло"));
+				fail("Batch results should be read-only");
+			} catch (final UnsupportedOperationException uoe) {
+				// expected
+			}
+		}
+	}
+
+	/**
+	 * Each mode should return the same analyzes as a single thread,
+	 * with no handle ever used by two threads at once.
+	 *
+	 * @throws Exception
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testConcurrency() throws Exception {
+		final List<String> texts = asList("Мама мыла раму.", "Садок вишневий коло хати.", "толстый и красивый", "жовтогарячий");
+		final Map<String, Map<String, Set<MorphologicalAnalysisResult>>> expectedResults = new HashMap<>();
+		final HunspellAnalyzer singleThreadedAnalyzer = new HunspellAnalyzer();
+		for (final String text : texts) {
+			expectedResults.put(text, singleThreadedAnalyzer.analyze(text));
+		}
+
+		final int threadCount = 4;
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			for (final Concurrency concurrency : Concurrency.values()) {
+				final HunspellAnalyzer analyzer = HunspellAnalyzer.builder().concurrency(concurrency).poolSize(2).build();
+				final List<Future<?>> futures = new ArrayList<>();
+				for (int i = 0; i < 200; i++) {
+					final String text = texts.get(i % texts.size());
+					futures.add(executor.submit(() -> {
+						assertEquals(expectedResults.get(text), analyzer.analyze(text));
+						return null;
+					}));
+				}
+				for (final Future<?> future : futures) {
+					future.get();
+				}
+
+				for (final String language : analyzer.getLanguages()) {
+					assertTrue(analyzer.getMinNativeMemoryPerInstance(language) > 0);
+					final int instanceCount = analyzer.getInstanceCount(language);
+					switch (concurrency) {
+					case SYNCHRONIZED:
+						assertEquals(1, instanceCount);
+						assertNull(analyzer.getEnginePool(language));
+						break;
+					case PER_THREAD:
+						assertTrue(String.valueOf(instanceCount), instanceCount >= 1 && instanceCount <= threadCount);
+						break;
+					case POOLED:
+						assertEquals(2, instanceCount);
+						assertEquals(2, analyzer.getEnginePool(language).getSize());
+						break;
+					default:
+						fail(concurrency.name());
+					}
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Closing the analyzer should destroy the handles of every thread,
+	 * including those of the threads which have terminated.
+	 *
+	 * @throws Exception
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testClose() throws Exception {
+		for (final Concurrency concurrency : Concurrency.values()) {
+			final HunspellAnalyzer analyzer = HunspellAnalyzer.builder().concurrency(concurrency).poolSize(2).build();
+			final ExecutorService executor = Executors.newFixedThreadPool(4);
+			try {
+				final List<Future<?>> futures = new ArrayList<>();
+				for (int i = 0; i < 16; i++) {
+					futures.add(executor.submit(() -> analyzer.analyze("Мама мыла раму.")));
+				}
+				for (final Future<?> future : futures) {
+					future.get();
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+
+			analyzer.close();
+			analyzer.close();
+			for (final String language : analyzer.getLanguages()) {
+				assertEquals(0, analyzer.getInstanceCount(language));
+				try {
+					analyzer.analyze("Мама мыла раму.");
+					fail("Closed analyzer should be unusable");
+				} catch (final IllegalStateException ise) {
+					// expected
+				}
+			}
+		}
+	}
+
+	/**
+	 * Both bindings should return the same stems, provided the FFM one
+	 * is available.
+	 *
+	 * @throws AnalysisException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testBindings() throws AnalysisException {
+		if (!Binding.FFM.isAvailable()) {
+			try {
+				HunspellAnalyzer.builder().binding(Binding.FFM);
+				fail("FFM binding should only be available in Java 22+");
+			} catch (final IllegalArgumentException iae) {
+				assertTrue(iae.getMessage(), iae.getMessage().startsWith("FFM binding is not available"));
+			}
+			return;
+		}
+
+		final HunspellAnalyzer bridjAnalyzer = HunspellAnalyzer.builder().binding(Binding.BRIDJ).build();
+		final HunspellAnalyzer ffmAnalyzer = HunspellAnalyzer.builder().binding(Binding.FFM).build();
+		for (final String text : asList("Мама мыла раму.", "Садок вишневий коло хати.", "п'ятниця", "Hello, world!")) {
+			assertEquals(bridjAnalyzer.analyze(text), ffmAnalyzer.analyze(text));
+		}
+	}
+
+	/**
+	 * Each binding available should stem against a real dictionary, and
+	 * free its native handle when closed. The FFM binding also needs
+	 * {@code libhunspell} installed, or named by the {@code
+	 * hunspell.library} system property.
+	 *
+	 * @throws IOException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testStemmers() throws IOException {
+		final Path root = Files.createTempDirectory("hunspell");
+		try {
+			final String path = createDictionary(root, "SET UTF-8\nSFX A Y 1\nSFX A а у а\n", "2\nмама/A\nрама/A\n");
+			for (final Binding binding : Binding.values()) {
+				if (!binding.isAvailable()) {
+					continue;
+				}
+				if (binding == Binding.BRIDJ && !Charset.defaultCharset().equals(UTF_8)) {
+					/*
+					 * hunspell-bridj passes words in the platform encoding.
+					 */
+					continue;
+				}
+
+				final Stemmer stemmer;
+				try {
+					stemmer = binding.open(path + ".dic", path + ".aff");
+				} catch (final LinkageError | IllegalStateException e) {
+					/*
+					 * No native library to bind to.
+					 */
+					assumeNoException(e);
+					return;
+				}
+				try {
+					final List<String> stems = new ArrayList<>();
+					assertEquals(1, stemmer.stem("раму", stems));
+					assertEquals(asList("рама"), stems);
+					assertEquals(0, stemmer.stem("мыла", stems));
+				} finally {
+					stemmer.close();
+				}
+
+				if (binding == Binding.FFM) {
+					stemmer.close();
+					try {
+						stemmer.stem("раму", new ArrayList<>());
+						fail("Closed stemmer should be unusable");
+					} catch (final IllegalStateException ise) {
+						// expected
+					}
+				}
+			}
+		} finally {
+			try (final Stream<Path> paths = Files.walk(root)) {
+				paths.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+			}
+		}
+	}
+
+	/**
+	 * @throws IOException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testDeduplication() throws IOException {
+		final Path root = Files.createTempDirectory("hunspell");
+		try {
+			final String original = createDictionary(root.resolve("a"), "2\nмама\nрама\n");
+			final String copy = createDictionary(root.resolve("b"), "2\nмама\nрама\n");
+			final String sameSize = createDictionary(root.resolve("c"), "2\nмама\nмыла\n");
+			final String different = createDictionary(root.resolve("d"), "1\nмама\n");
+
+			final Map<String, String> collapsedPaths = new LinkedHashMap<>();
+			final Set<String> distinctPaths = HunspellAnalyzer.deduplicate(new LinkedHashSet<>(asList(copy, original, sameSize, different)), collapsedPaths);
+			assertEquals(asList(copy, sameSize, different), new ArrayList<>(distinctPaths));
+			assertEquals(singletonMap(original, copy), collapsedPaths);
+		} finally {
+			try (final Stream<Path> paths = Files.walk(root)) {
+				paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			}
+		}
+	}
+
+	/**
+	 * @param directory
+	 * @param words
+	 * @return the dictionary path, with no suffix.
+	 * @throws IOException
+	 */
+	private static String createDictionary(final Path directory, final String words) throws IOException {
+		return createDictionary(directory, "SET UTF-8\n", words);
+	}
+
+	/**
+	 * @param directory
+	 * @param affixes
+	 * @param words
+	 * @return the dictionary path, with no suffix.
+	 * @throws IOException
+	 */
+	private static String createDictionary(final Path directory, final String affixes, final String words) throws IOException {
+		Files.createDirectories(directory);
+		Files.write(directory.resolve("ru_RU.aff"), affixes.getBytes(UTF_8));
+		Files.write(directory.resolve("ru_RU.dic"), words.getBytes(UTF_8));
+		return directory.resolve("ru_RU").toString();
+	}
+
 	/**
 	 * @throws IOException
 	 */
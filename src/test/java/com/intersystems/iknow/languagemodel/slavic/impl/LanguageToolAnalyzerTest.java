@@ -3,16 +3,26 @@
  */
 package com.intersystems.iknow.languagemodel.slavic.impl;
 
-import static com.intersystems.iknow.languagemodel.slavic.impl.LanguageToolAnalyzer.RUSSIAN_WORD_FILTER;
+import static com.intersystems.iknow.languagemodel.slavic.impl.LanguageToolAnalyzer.RUSSIAN_WORD_MASK;
 import static java.lang.System.out;
+import static java.util.Arrays.asList;
 import static java.util.Arrays.stream;
+import static java.util.Collections.singleton;
+import static java.util.stream.Collectors.toSet;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 import static junit.framework.Assert.fail;
 
 import java.io.IOException;
 import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -22,6 +32,10 @@ import org.xml.sax.SAXException;
 import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalysisResult;
 import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalyzer;
 import com.intersystems.iknow.languagemodel.slavic.SerializingMorphologicalAnalyzer;
+import com.intersystems.iknow.languagemodel.slavic.TokenSpan;
+import com.intersystems.iknow.languagemodel.slavic.impl.LanguageToolAnalyzer.Mode;
+import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.UkrainianWordFilter;
+import com.intersystems.iknow.languagemodel.slavic.impl.languagetool.WordFilter;
 
 /**
  * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
@@ -30,17 +44,31 @@ public final class LanguageToolAnalyzerTest {
 	@SuppressWarnings("static-method")
 	@Test
 	public void testWordFilter() {
-		assertEquals("він   вона", RUSSIAN_WORD_FILTER.getFilteredText("він п'ятниця п'ятниця вона"));
-		assertEquals("він  вона", RUSSIAN_WORD_FILTER.getFilteredText("він п'ятниця вона"));
-		assertEquals("він ", RUSSIAN_WORD_FILTER.getFilteredText("він п'ятниця"));
-		assertEquals(" вона", RUSSIAN_WORD_FILTER.getFilteredText("п'ятниця вона"));
-		assertEquals("", RUSSIAN_WORD_FILTER.getFilteredText("п'ятниця"));
-		assertEquals("", RUSSIAN_WORD_FILTER.getFilteredText("П'ЯТНИЦЯ"));
-
-		assertEquals("foo-bar", RUSSIAN_WORD_FILTER.getFilteredText("foo-bar"));
-		assertEquals("", RUSSIAN_WORD_FILTER.getFilteredText("foo-b'ar"));
-		assertEquals("", RUSSIAN_WORD_FILTER.getFilteredText("f'oo-bar"));
-		assertEquals("", RUSSIAN_WORD_FILTER.getFilteredText("f'oo-b'ar"));
+		/*
+		 * Removes words rather than blanking them out, unlike
+		 * the filter of the Russian engine.
+		 */
+		final WordFilter filter = new UkrainianWordFilter(false);
+		assertEquals("він   вона", filter.getFilteredText("він п'ятниця п'ятниця вона"));
+		assertEquals("він  вона", filter.getFilteredText("він п'ятниця вона"));
+		assertEquals("він ", filter.getFilteredText("він п'ятниця"));
+		assertEquals(" вона", filter.getFilteredText("п'ятниця вона"));
+		assertEquals("", filter.getFilteredText("п'ятниця"));
+		assertEquals("", filter.getFilteredText("П'ЯТНИЦЯ"));
+
+		assertEquals("foo-bar", filter.getFilteredText("foo-bar"));
+		assertEquals("", filter.getFilteredText("foo-b'ar"));
+		assertEquals("", filter.getFilteredText("f'oo-bar"));
+		assertEquals("", filter.getFilteredText("f'oo-b'ar"));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testWordMask() {
+		assertEquals("він                   вона", RUSSIAN_WORD_MASK.getFilteredText("він п'ятниця п'ятниця вона"));
+		assertEquals("він ", RUSSIAN_WORD_MASK.getFilteredText("він "));
+		assertEquals("foo-bar     ", RUSSIAN_WORD_MASK.getFilteredText("foo-bar f'oo"));
+		assertEquals("         ", RUSSIAN_WORD_MASK.getFilteredText("f'oo-b'ar"));
 	}
 
 	/**
@@ -83,6 +111,31 @@ public final class LanguageToolAnalyzerTest {
 		});
 	}
 
+	/**
+	 * @throws IOException
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSentences() throws IOException, ParserConfigurationException, SAXException {
+		final MorphologicalAnalyzer analyzer = new LanguageToolAnalyzer();
+		final String text = "Мама мыла раму. Садок вишневий коло хати. Він п'ятниця!";
+
+		final List<TokenSpan> spans = analyzer.analyzeSpans(text);
+		assertFalse(spans.isEmpty());
+		for (final TokenSpan span : spans) {
+			/*
+			 * Offsets should be relative to the whole text,
+			 * not to the sentence.
+			 */
+			assertEquals(span.getToken(), text.substring(span.getStart(), span.getEnd()));
+		}
+		assertTrue(spans.stream().map(TokenSpan::getToken).anyMatch(token -> token.equals("хати")));
+		assertTrue(spans.stream().map(TokenSpan::getToken).anyMatch(token -> token.equals("п'ятниця")));
+		assertEquals(analyzer.analyze(text).keySet(), spans.stream().map(TokenSpan::getToken).collect(toSet()));
+	}
+
 	/**
 	 * @throws IOException
 	 * @throws ParserConfigurationException
@@ -120,4 +173,107 @@ public final class LanguageToolAnalyzerTest {
 			}
 		});
 	}
+
+	/**
+	 * @throws IOException
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testLazyLoading() throws IOException, ParserConfigurationException, SAXException {
+		final LanguageToolAnalyzer analyzer = LanguageToolAnalyzer.builder().languages("ru").build();
+		analyzer.setRoutingEnabled(true);
+		assertEquals(singleton("ru"), analyzer.getLanguages());
+		assertFalse(analyzer.isLoaded("ru"));
+		assertNull(analyzer.getEnginePool("ru"));
+		assertNull(analyzer.getEnginePool("uk"));
+
+		/*
+		 * Words with no Cyrillic letters aren't routed to any
+		 * engine, so nothing gets loaded.
+		 */
+		assertEquals(new HashSet<>(asList("Hello", "world")), analyzer.analyze("Hello, world!").keySet());
+		assertFalse(analyzer.isLoaded("ru"));
+
+		final LanguageToolAnalyzer eagerAnalyzer = LanguageToolAnalyzer.builder().poolSize(2).eager(true).build();
+		assertEquals(LanguageToolAnalyzer.SUPPORTED_LANGUAGES, new ArrayList<>(eagerAnalyzer.getLanguages()));
+		for (final String language : LanguageToolAnalyzer.SUPPORTED_LANGUAGES) {
+			assertTrue(eagerAnalyzer.isLoaded(language));
+			assertEquals(2, eagerAnalyzer.getEnginePool(language).getSize());
+		}
+
+		try {
+			LanguageToolAnalyzer.builder().languages("pl");
+			fail("Polish should not be supported");
+		} catch (final IllegalArgumentException iae) {
+			assertEquals("Unsupported language: pl", iae.getMessage());
+		}
+	}
+
+	/**
+	 * Rules play no part in the analysis, so skipping them shouldn't
+	 * change the analyzes.
+	 *
+	 * @throws IOException
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testModes() throws IOException, ParserConfigurationException, SAXException {
+		final MorphologicalAnalyzer rulesAnalyzer = LanguageToolAnalyzer.builder().mode(Mode.RULES).build();
+		final MorphologicalAnalyzer analysisAnalyzer = LanguageToolAnalyzer.builder().mode(Mode.ANALYSIS).build();
+		final MorphologicalAnalyzer taggingAnalyzer = LanguageToolAnalyzer.builder().mode(Mode.TAGGING).build();
+		for (final String text : new String[] {
+				"Мама мыла раму.",
+				"Садок вишневий коло хати. Він п'ятниця!",
+				"Варкалось, хливкие шорьки пырялись по наве.\n\nтолстый и красивый  ",
+		}) {
+			final Map<String, Set<MorphologicalAnalysisResult>> results = analysisAnalyzer.analyze(text);
+			assertEquals(rulesAnalyzer.analyze(text), results);
+			assertEquals(rulesAnalyzer.analyzeSpans(text).toString(), analysisAnalyzer.analyzeSpans(text).toString());
+
+			/*
+			 * The disambiguator only ever removes readings.
+			 */
+			final Map<String, Set<MorphologicalAnalysisResult>> taggingResults = taggingAnalyzer.analyze(text);
+			assertEquals(results.keySet(), taggingResults.keySet());
+			results.forEach((token, tokenResults) -> assertTrue(token, taggingResults.get(token).containsAll(tokenResults)));
+		}
+	}
+
+	/**
+	 * Equal stems found by a single call share a single instance.
+	 *
+	 * @throws IOException
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSharedStems() throws IOException, ParserConfigurationException, SAXException {
+		final LanguageToolAnalyzer analyzer = LanguageToolAnalyzer.builder().languages("ru").build();
+
+		final Map<String, Set<MorphologicalAnalysisResult>> results = analyzer.analyze("Мама мыла раму, рама блестела.");
+		assertSame(stem(results.get("раму"), "рама"), stem(results.get("рама"), "рама"));
+
+		final List<Map<String, Set<MorphologicalAnalysisResult>>> batchResults = analyzer.analyzeBatch(asList("Мама мыла раму.", "Рама блестела."));
+		assertSame(stem(batchResults.get(0).get("раму"), "рама"), stem(batchResults.get(1).get("Рама"), "рама"));
+	}
+
+	/**
+	 * @param results
+	 * @param stem
+	 * @return the instance of the <em>stem</em> found in the <em>results</em>.
+	 */
+	private static String stem(final Set<MorphologicalAnalysisResult> results, final String stem) {
+		for (final MorphologicalAnalysisResult result : results) {
+			if (result.getStem().equals(stem)) {
+				return result.getStem();
+			}
+		}
+		fail("No " + stem + " in " + results);
+		return null;
+	}
 }
@@ -0,0 +1,43 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.impl.languagetool;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import com.intersystems.iknow.languagemodel.slavic.PartOfSpeech;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalCase;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalGender;
+import com.intersystems.iknow.languagemodel.slavic.categories.GrammaticalNumber;
+
+/**
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class TagTableTest {
+	@SuppressWarnings("static-method")
+	@Test
+	public void testCanonicalResults() {
+		final TagTable russianTagTable = new TagTable(new RussianTagParser());
+		final TagParseResult result = russianTagTable.parse("NN:Inanim:Fem:Sin:V");
+		assertEquals(PartOfSpeech.NOUN, result.getPartOfSpeech());
+		assertEquals(new HashSet<>(asList(GrammaticalGender.FEMININE, GrammaticalNumber.SINGLE, GrammaticalCase.ACCUSATIVE)), result.getCategories());
+		assertSame(result, russianTagTable.parse(new String("NN:Inanim:Fem:Sin:V")));
+
+		final TagTable ukrainianTagTable = new TagTable(new UkrainianTagParser());
+		ukrainianTagTable.compile(asList("noun:f:v_naz", "noun:f:v_rod", "noun:f:v_naz"));
+		assertEquals(2, ukrainianTagTable.size());
+		assertSame(ukrainianTagTable.parse("noun:f:v_naz"), ukrainianTagTable.parse("noun:f:v_naz"));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullTags() {
+		new TagTable(new RussianTagParser()).parse(null);
+	}
+}
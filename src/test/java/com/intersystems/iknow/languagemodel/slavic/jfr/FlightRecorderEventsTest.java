@@ -0,0 +1,133 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.jfr;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalysisResult;
+import com.intersystems.iknow.languagemodel.slavic.SerializingMorphologicalAnalyzer;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class FlightRecorderEventsTest {
+	private static final String SERIALIZATION = FlightRecorderEvents.NAME_PREFIX + "Serialization";
+
+	/**
+	 * @throws Exception
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testRecording() throws Exception {
+		assertTrue(FlightRecorderEvents.AVAILABLE);
+
+		final List<RecordedEvent> events;
+		try (final Recording recording = new Recording()) {
+			recording.enable(SERIALIZATION);
+			recording.start();
+			analyze();
+			recording.stop();
+			events = read(recording);
+		}
+
+		assertEquals(2, events.size());
+
+		final RecordedEvent event = events.get(0);
+		assertNull(event.getString("language"));
+		assertEquals(14, event.getInt("inputLength"));
+		assertEquals(3, event.getInt("tokenCount"));
+		assertEquals(4, event.getInt("readingCount"));
+		assertTrue(event.getDuration().toNanos() > 0);
+
+		final RecordedEvent batchEvent = events.get(1);
+		assertEquals(28, batchEvent.getInt("inputLength"));
+		assertEquals(6, batchEvent.getInt("tokenCount"));
+		assertEquals(8, batchEvent.getInt("readingCount"));
+	}
+
+	/**
+	 * The settings shipped with the JDK know nothing about the events,
+	 * so they stay disabled.
+	 *
+	 * @throws Exception
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testDisabledByDefault() throws Exception {
+		final List<RecordedEvent> events;
+		try (final Recording recording = new Recording(Configuration.getConfiguration("default"))) {
+			recording.start();
+			analyze();
+			recording.stop();
+			events = read(recording);
+		}
+
+		assertTrue(events.isEmpty());
+	}
+
+	/**
+	 * Serializes a single text, and then a batch of two.
+	 *
+	 * @throws Exception
+	 */
+	private static void analyze() throws Exception {
+		final SerializingMorphologicalAnalyzer analyzer = new SerializingMorphologicalAnalyzer(text -> {
+			final Map<String, Set<MorphologicalAnalysisResult>> results = new LinkedHashMap<>();
+			for (final String token : text.split(" ")) {
+				final Set<MorphologicalAnalysisResult> readings = new LinkedHashSet<>();
+				readings.add(new MorphologicalAnalysisResult("ru", token.toLowerCase()));
+				if (token.equals("мыла")) {
+					readings.add(new MorphologicalAnalysisResult("ru", "мыло"));
+				}
+				results.put(token, readings);
+			}
+			return results;
+		});
+		analyzer.analyze("Мама мыла раму");
+
+		final List<String> texts = new ArrayList<>();
+		texts.add("Мама мыла раму");
+		texts.add("Мама мыла раму");
+		analyzer.analyzeBatch(texts, new ByteArrayOutputStream());
+	}
+
+	/**
+	 * @param recording a stopped recording.
+	 * @throws Exception
+	 */
+	private static List<RecordedEvent> read(final Recording recording) throws Exception {
+		final Path path = Files.createTempFile("analysis", ".jfr");
+		try {
+			recording.dump(path);
+			final List<RecordedEvent> events = new ArrayList<>();
+			for (final RecordedEvent event : RecordingFile.readAllEvents(path)) {
+				if (event.getEventType().getName().equals(SERIALIZATION)) {
+					events.add(event);
+				}
+			}
+			return events;
+		} finally {
+			Files.delete(path);
+		}
+	}
+}
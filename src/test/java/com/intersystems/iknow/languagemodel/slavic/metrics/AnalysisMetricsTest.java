@@ -0,0 +1,98 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.metrics;
+
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonMap;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.EnumSet;
+import java.util.Locale;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalysisResult;
+import com.intersystems.iknow.languagemodel.slavic.SerializingMorphologicalAnalyzer;
+
+/**
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class AnalysisMetricsTest {
+	/**
+	 * @throws Exception
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testRegistration() throws Exception {
+		final AnalysisMetrics metrics = new AnalysisMetrics(EnumSet.of(Stage.TOKENIZATION), singleton("ru"), EnumSet.of(Stage.TAGGING));
+		metrics.record(Stage.TOKENIZATION, 1000);
+		metrics.getLanguage("ru").record(Stage.TAGGING, 2000);
+		metrics.getLanguage("ru").record(Stage.SERIALIZATION, 3000);
+		metrics.getLanguage("ru").recordTokens(4, 6, 1);
+
+		final MBeanServer server = MBeanServerFactory.newMBeanServer();
+		metrics.register(server, "test");
+		try {
+			final ObjectName tokenization = new ObjectName(AnalysisMetrics.DOMAIN + ":type=AnalysisMetrics,name=\"test\",stage=tokenization");
+			assertEquals(Long.valueOf(1), server.getAttribute(tokenization, "Count"));
+			assertEquals(Long.valueOf(1000), server.getAttribute(tokenization, "MaximumNanos"));
+
+			final ObjectName russian = new ObjectName(AnalysisMetrics.DOMAIN + ":type=AnalysisMetrics,name=\"test\",language=ru");
+			assertEquals("ru", server.getAttribute(russian, "Language"));
+			assertEquals(Long.valueOf(4), server.getAttribute(russian, "TokenCount"));
+			assertEquals(Double.valueOf(1.5), server.getAttribute(russian, "ReadingsPerToken"));
+			assertEquals(Double.valueOf(0.25), server.getAttribute(russian, "OutOfVocabularyRate"));
+			assertEquals(Double.valueOf(2e6), server.getAttribute(russian, "TokensPerSecond"));
+
+			/*
+			 * Stages which aren't timed per language are neither
+			 * recorded nor registered.
+			 */
+			assertEquals(Long.valueOf(1), server.getAttribute(new ObjectName(russian + ",stage=tagging"), "Count"));
+			assertFalse(server.isRegistered(new ObjectName(russian + ",stage=serialization")));
+		} finally {
+			metrics.unregister(server);
+		}
+		assertTrue(server.queryNames(new ObjectName(AnalysisMetrics.DOMAIN + ":*"), null).isEmpty());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSerialization() throws Exception {
+		final SerializingMorphologicalAnalyzer analyzer = new SerializingMorphologicalAnalyzer(text -> singletonMap(text, singleton(new MorphologicalAnalysisResult("ru", text))));
+		analyzer.analyze("мама");
+		analyzer.analyze("рама");
+
+		final LatencyHistogram serialization = analyzer.getMetrics().getStage(Stage.SERIALIZATION);
+		assertEquals(2, serialization.getCount());
+		assertTrue(serialization.getMaximumNanos() >= serialization.getMedianNanos());
+	}
+
+	/**
+	 * JMX object names shouldn't depend on the default locale: in
+	 * Turkish, "I".toLowerCase() is a dotless "ı".
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testStageKeys() {
+		final Locale defaultLocale = Locale.getDefault();
+		Locale.setDefault(new Locale("tr", "TR"));
+		try {
+			assertEquals("tagging", Stage.TAGGING.getKey());
+			assertEquals("tag-parsing", Stage.TAG_PARSING.getKey());
+			assertEquals("tokenization", Stage.TOKENIZATION.getKey());
+		} finally {
+			Locale.setDefault(defaultLocale);
+		}
+	}
+}
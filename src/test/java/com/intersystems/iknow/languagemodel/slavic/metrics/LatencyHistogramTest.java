@@ -0,0 +1,60 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.metrics;
+
+import static com.intersystems.iknow.languagemodel.slavic.metrics.LatencyHistogram.bucketOf;
+import static com.intersystems.iknow.languagemodel.slavic.metrics.LatencyHistogram.upperBoundOf;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class LatencyHistogramTest {
+	@SuppressWarnings("static-method")
+	@Test
+	public void testBuckets() {
+		for (final long value : new long[] {0, 1, 3, 4, 5, 7, 8, 1000, 999_999, 1L << 40, Long.MAX_VALUE}) {
+			final int bucket = bucketOf(value);
+			assertTrue(value + " > " + upperBoundOf(bucket), value <= upperBoundOf(bucket));
+			if (bucket > 0) {
+				assertTrue(value + " <= " + upperBoundOf(bucket - 1), value > upperBoundOf(bucket - 1));
+			}
+		}
+
+		/*
+		 * A bucket is no wider than a quarter of its lower bound.
+		 */
+		assertEquals(bucketOf(1000), bucketOf(1023));
+		assertEquals(bucketOf(1024) - 1, bucketOf(1023));
+		assertEquals(Long.MAX_VALUE, upperBoundOf(bucketOf(Long.MAX_VALUE)));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testPercentiles() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getMedianNanos());
+
+		for (long i = 1; i <= 100; i++) {
+			histogram.record(i * 1000);
+		}
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(5_050_000, histogram.getTotalNanos());
+		assertEquals(50_500.0, histogram.getMeanNanos());
+		assertEquals(100_000, histogram.getMaximumNanos());
+		assertEquals(100_000, histogram.get999thPercentileNanos());
+
+		/*
+		 * Percentiles are accurate to the bucket width.
+		 */
+		final long median = histogram.getMedianNanos();
+		assertTrue(String.valueOf(median), median >= 50_000 && median < 50_000 * 5 / 4);
+		final long p90 = histogram.get90thPercentileNanos();
+		assertTrue(String.valueOf(p90), p90 >= 90_000 && p90 <= 100_000);
+	}
+}
@@ -0,0 +1,229 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.server;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Test;
+
+import com.intersystems.iknow.languagemodel.slavic.AnalysisException;
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalysisJsonWriter;
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalysisResult;
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalyzer;
+
+/**
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class MorphologicalAnalyzerHttpServerTest {
+	private static final MorphologicalAnalyzer ANALYZER = text -> {
+		if (text.equals("сбой")) {
+			throw new AnalysisException("Failed: " + text);
+		}
+		final Map<String, Set<MorphologicalAnalysisResult>> results = new LinkedHashMap<>();
+		for (final String token : text.split("\\s+")) {
+			if (token.length() != 0) {
+				results.put(token, singleton(new MorphologicalAnalysisResult("ru", token.toLowerCase())));
+			}
+		}
+		return results;
+	};
+
+	/**
+	 * @throws IOException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testEndpoints() throws IOException {
+		final ExecutorService executor = MorphologicalAnalyzerHttpServer.newWorkerPool(2);
+		try (final MorphologicalAnalyzerHttpServer server = new MorphologicalAnalyzerHttpServer(ANALYZER, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), executor)) {
+			final MorphologicalAnalysisJsonWriter writer = new MorphologicalAnalysisJsonWriter();
+
+			assertEquals(writer.toJson(ANALYZER.analyze("Мама мыла раму")),
+					post(server, MorphologicalAnalyzerHttpServer.ANALYZE_PATH, "Мама мыла раму", HttpURLConnection.HTTP_OK));
+
+			final StringBuilder expected = new StringBuilder();
+			writer.writeBatch(asList(ANALYZER.analyze("Мама мыла"), ANALYZER.analyze(""), ANALYZER.analyze("раму")), expected);
+			assertEquals(expected.toString(),
+					post(server, MorphologicalAnalyzerHttpServer.ANALYZE_BATCH_PATH, "[\"Мама мыла\", \"\", \"раму\"]", HttpURLConnection.HTTP_OK));
+
+			post(server, MorphologicalAnalyzerHttpServer.ANALYZE_BATCH_PATH, "[\"Мама\"", HttpURLConnection.HTTP_BAD_REQUEST);
+			post(server, MorphologicalAnalyzerHttpServer.ANALYZE_BATCH_PATH, "{}", HttpURLConnection.HTTP_BAD_REQUEST);
+			post(server, MorphologicalAnalyzerHttpServer.ANALYZE_BATCH_PATH, "[null]", HttpURLConnection.HTTP_BAD_REQUEST);
+			post(server, MorphologicalAnalyzerHttpServer.ANALYZE_PATH + "/foo", "Мама", HttpURLConnection.HTTP_NOT_FOUND);
+			assertEquals("Failed: сбой", post(server, MorphologicalAnalyzerHttpServer.ANALYZE_PATH, "сбой", HttpURLConnection.HTTP_INTERNAL_ERROR));
+
+			final HttpURLConnection connection = (HttpURLConnection) url(server, MorphologicalAnalyzerHttpServer.ANALYZE_PATH).openConnection();
+			assertEquals(HttpURLConnection.HTTP_BAD_METHOD, connection.getResponseCode());
+			assertEquals("POST", connection.getHeaderField("Allow"));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Sends several requests over a single connection.
+	 *
+	 * @throws IOException
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testKeepAlive() throws IOException {
+		final ExecutorService executor = MorphologicalAnalyzerHttpServer.newWorkerPool(2);
+		try (final MorphologicalAnalyzerHttpServer server = new MorphologicalAnalyzerHttpServer(ANALYZER, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), executor);
+				final Socket socket = new Socket(server.getAddress().getAddress(), server.getAddress().getPort())) {
+			final OutputStream out = socket.getOutputStream();
+			final DataInputStream in = new DataInputStream(socket.getInputStream());
+			final MorphologicalAnalysisJsonWriter writer = new MorphologicalAnalysisJsonWriter();
+			for (final String text : new String[] {"Мама", "мыла раму", "сбой", "раму"}) {
+				final byte body[] = text.getBytes(UTF_8);
+				out.write(("POST " + MorphologicalAnalyzerHttpServer.ANALYZE_PATH + " HTTP/1.1\r\n"
+						+ "Host: localhost\r\n"
+						+ "Content-Type: text/plain; charset=UTF-8\r\n"
+						+ "Content-Length: " + body.length + "\r\n"
+						+ "\r\n").getBytes(US_ASCII));
+				out.write(body);
+				out.flush();
+
+				final String response = readResponse(in);
+				if (text.equals("сбой")) {
+					assertTrue(response, response.startsWith("HTTP/1.1 500 "));
+				} else {
+					assertTrue(response, response.startsWith("HTTP/1.1 200 "));
+					assertTrue(response, response.endsWith("\r\n\r\n" + writer.toJson(ANALYZER.analyze(text))));
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @param server
+	 * @param path
+	 * @param body
+	 * @param expectedStatus
+	 * @return the response body.
+	 * @throws IOException
+	 */
+	private static String post(final MorphologicalAnalyzerHttpServer server,
+			final String path,
+			final String body,
+			final int expectedStatus)
+	throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) url(server, path).openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		try (final OutputStream out = connection.getOutputStream()) {
+			out.write(body.getBytes(UTF_8));
+		}
+		assertEquals(expectedStatus, connection.getResponseCode());
+		try (final InputStream in = expectedStatus == HttpURLConnection.HTTP_OK ? connection.getInputStream() : connection.getErrorStream()) {
+			return new String(readFully(in), UTF_8);
+		}
+	}
+
+	/**
+	 * @param server
+	 * @param path
+	 * @throws IOException
+	 */
+	private static URL url(final MorphologicalAnalyzerHttpServer server, final String path) throws IOException {
+		return new URL("http", server.getAddress().getHostString(), server.getAddress().getPort(), path);
+	}
+
+	/**
+	 * Reads a single response, either of a fixed length or chunked,
+	 * leaving the connection ready for the next one.
+	 *
+	 * @param in
+	 * @return the status line and the headers, followed by the (de-chunked)
+	 *         body.
+	 * @throws IOException
+	 */
+	private static String readResponse(final DataInputStream in) throws IOException {
+		final StringBuilder head = new StringBuilder();
+		int contentLength = -1;
+		boolean chunked = false;
+		String line;
+		while ((line = readLine(in)).length() != 0) {
+			head.append(line).append("\r\n");
+			final String lowerCaseLine = line.toLowerCase();
+			if (lowerCaseLine.startsWith("content-length:")) {
+				contentLength = Integer.parseInt(line.substring(line.indexOf(':') + 1).trim());
+			} else if (lowerCaseLine.startsWith("transfer-encoding:") && lowerCaseLine.contains("chunked")) {
+				chunked = true;
+			}
+		}
+		head.append("\r\n");
+
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		if (chunked) {
+			int chunkSize;
+			while ((chunkSize = Integer.parseInt(readLine(in).trim(), 16)) != 0) {
+				final byte chunk[] = new byte[chunkSize];
+				in.readFully(chunk);
+				body.write(chunk);
+				readLine(in);
+			}
+			readLine(in);
+		} else {
+			final byte content[] = new byte[contentLength];
+			in.readFully(content);
+			body.write(content);
+		}
+		return head + new String(body.toByteArray(), UTF_8);
+	}
+
+	/**
+	 * @param in
+	 * @throws IOException
+	 */
+	private static String readLine(final InputStream in) throws IOException {
+		final StringBuilder line = new StringBuilder();
+		int c;
+		while ((c = in.read()) != '\n') {
+			if (c == -1) {
+				throw new IOException("Connection closed");
+			}
+			if (c != '\r') {
+				line.append((char) c);
+			}
+		}
+		return line.toString();
+	}
+
+	/**
+	 * @param in
+	 * @throws IOException
+	 */
+	private static byte[] readFully(final InputStream in) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte buffer[] = new byte[8192];
+		int length;
+		while ((length = in.read(buffer)) != -1) {
+			out.write(buffer, 0, length);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,252 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.server;
+
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonMap;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.rmi.NotBoundException;
+import java.rmi.ServerException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+import com.intersystems.iknow.languagemodel.slavic.AnalysisException;
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalysisResult;
+import com.intersystems.iknow.languagemodel.slavic.MorphologicalAnalyzer;
+
+/**
+ * Runs the server against a registry on the loopback interface.
+ *
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class MorphologicalAnalyzerServerTest {
+	/**
+	 * @throws Exception
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testOverload() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final MorphologicalAnalyzer delegate = text -> {
+			try {
+				release.await();
+			} catch (final InterruptedException ie) {
+				throw new AnalysisException(ie);
+			}
+			return analyze(text);
+		};
+
+		final int registryPort = freePort();
+		final Registry registry = LocateRegistry.createRegistry(registryPort);
+		final ExecutorService clients = Executors.newCachedThreadPool();
+		try (final MorphologicalAnalyzerServer server = new MorphologicalAnalyzerServer(delegate, 2, 2, 0, registry, MorphologicalAnalyzerServer.DEFAULT_NAME)) {
+			final MorphologicalAnalyzer analyzer = lookup(registryPort);
+
+			/*
+			 * Two calls running, two more queued.
+			 */
+			final List<Future<Map<String, Set<MorphologicalAnalysisResult>>>> futures = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				final String text = "слово" + i;
+				futures.add(clients.submit(() -> analyzer.analyze(text)));
+			}
+			final BoundedMorphologicalAnalyzer boundedAnalyzer = server.getAnalyzer();
+			while (boundedAnalyzer.getAcceptedCount() < 4) {
+				for (final Future<?> future : futures) {
+					if (future.isDone()) {
+						/*
+						 * Rethrows whatever the call has failed with.
+						 */
+						future.get();
+						fail("The call should still be running");
+					}
+				}
+				Thread.sleep(10);
+			}
+
+			try {
+				analyzer.analyze("лишнее");
+				fail("The call should have been rejected");
+			} catch (final ServerException se) {
+				/*
+				 * RMI wraps any RemoteException thrown by the server.
+				 */
+				assertTrue(se.getCause() instanceof AnalysisException);
+				assertTrue(se.getCause().getCause() instanceof RejectedExecutionException);
+			}
+			assertEquals(1, boundedAnalyzer.getRejectedCount());
+
+			release.countDown();
+			for (int i = 0; i < futures.size(); i++) {
+				assertEquals(analyze("слово" + i), futures.get(i).get());
+			}
+			assertEquals(4, boundedAnalyzer.getAcceptedCount());
+		} finally {
+			clients.shutdownNow();
+			UnicastRemoteObject.unexportObject(registry, true);
+		}
+	}
+
+	/**
+	 * A call whose caller has been interrupted keeps its permit for as long
+	 * as the delegate is still running it.
+	 *
+	 * @throws Exception
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testInterrupt() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final MorphologicalAnalyzer delegate = text -> {
+			started.countDown();
+			boolean interrupted = false;
+			while (true) {
+				try {
+					release.await();
+					break;
+				} catch (final InterruptedException ie) {
+					/*
+					 * Ignores cancellation, like a native call would.
+					 */
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			return analyze(text);
+		};
+
+		final BoundedMorphologicalAnalyzer boundedAnalyzer = new BoundedMorphologicalAnalyzer(delegate, 1, 0);
+		final ExecutorService clients = Executors.newCachedThreadPool();
+		try {
+			final CountDownLatch abandoned = new CountDownLatch(1);
+			final Future<?> interrupted = clients.submit(() -> {
+				try {
+					return boundedAnalyzer.analyze("слово");
+				} finally {
+					abandoned.countDown();
+				}
+			});
+			started.await();
+			interrupted.cancel(true);
+
+			/*
+			 * The caller has given up and cancelled the call by now,
+			 * but the worker is still busy with it.
+			 */
+			abandoned.await();
+
+			/*
+			 * Were the permit released, the call would be queued
+			 * and never complete.
+			 */
+			try {
+				clients.submit(() -> boundedAnalyzer.analyze("лишнее")).get(10, SECONDS);
+				fail("The call should have been rejected while the worker is busy");
+			} catch (final ExecutionException ee) {
+				assertTrue(ee.getCause() instanceof AnalysisException);
+				assertTrue(ee.getCause().getCause() instanceof RejectedExecutionException);
+			}
+			assertEquals(1, boundedAnalyzer.getRejectedCount());
+
+			release.countDown();
+			while (boundedAnalyzer.getActiveCount() != 0) {
+				Thread.sleep(10);
+			}
+			assertEquals(analyze("слово"), boundedAnalyzer.analyze("слово"));
+		} finally {
+			clients.shutdownNow();
+			boundedAnalyzer.shutdown();
+		}
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public void testLoad() throws Exception {
+		final int clientCount = 16;
+		final int callsPerClient = 100;
+
+		final int registryPort = freePort();
+		final Registry registry = LocateRegistry.createRegistry(registryPort);
+		final ExecutorService clients = Executors.newFixedThreadPool(clientCount);
+		try (final MorphologicalAnalyzerServer server = new MorphologicalAnalyzerServer(MorphologicalAnalyzerServerTest::analyze, 4, clientCount, 0, registry, MorphologicalAnalyzerServer.DEFAULT_NAME)) {
+			final MorphologicalAnalyzer analyzer = lookup(registryPort);
+
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < clientCount; i++) {
+				final int client = i;
+				futures.add(clients.submit(() -> {
+					for (int j = 0; j < callsPerClient; j++) {
+						final String text = "слово" + client + '-' + j;
+						assertEquals(analyze(text), analyzer.analyze(text));
+					}
+					return null;
+				}));
+			}
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+
+			/*
+			 * The queue is deep enough for all the clients.
+			 */
+			final BoundedMorphologicalAnalyzer boundedAnalyzer = server.getAnalyzer();
+			assertEquals(clientCount * callsPerClient, boundedAnalyzer.getAcceptedCount());
+			assertEquals(0, boundedAnalyzer.getRejectedCount());
+		} finally {
+			clients.shutdownNow();
+			UnicastRemoteObject.unexportObject(registry, true);
+		}
+	}
+
+	/**
+	 * @param text
+	 */
+	private static Map<String, Set<MorphologicalAnalysisResult>> analyze(final String text) {
+		return singletonMap(text, singleton(new MorphologicalAnalysisResult("ru", text)));
+	}
+
+	/**
+	 * @param registryPort
+	 * @throws IOException
+	 * @throws NotBoundException
+	 */
+	private static MorphologicalAnalyzer lookup(final int registryPort) throws IOException, NotBoundException {
+		return (MorphologicalAnalyzer) LocateRegistry.getRegistry("localhost", registryPort)
+				.lookup(MorphologicalAnalyzerServer.DEFAULT_NAME);
+	}
+
+	/**
+	 * @throws IOException
+	 */
+	private static int freePort() throws IOException {
+		try (final ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
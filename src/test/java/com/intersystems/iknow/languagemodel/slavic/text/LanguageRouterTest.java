@@ -0,0 +1,66 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.text;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static junit.framework.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class LanguageRouterTest {
+	@SuppressWarnings("static-method")
+	@Test
+	public void testRoute() {
+		final LanguageRouter router = new LanguageRouter(LanguageRouter.SLAVIC_UNIQUE_LETTERS);
+
+		assertEquals(singleton("ru"), router.getLanguages(router.route("мыла")));
+		assertEquals(singleton("ru"), router.getLanguages(router.route("ЁЛКА")));
+		assertEquals(singleton("uk"), router.getLanguages(router.route("їжак")));
+		assertEquals(singleton("uk"), router.getLanguages(router.route("Ґанок")));
+		assertEquals(new LinkedHashSet<>(asList("ru", "uk")), router.getLanguages(router.route("мама")));
+		assertEquals(new LinkedHashSet<>(asList("ru", "uk")), router.getLanguages(router.route("п'ятниця")));
+		/*
+		 * Letters unique to both languages.
+		 */
+		assertEquals(new LinkedHashSet<>(asList("ru", "uk")), router.getLanguages(router.route("ыї")));
+		assertEquals(emptySet(), router.getLanguages(router.route("foo-bar")));
+		assertEquals(emptySet(), router.getLanguages(router.route("2014")));
+		assertEquals(router.getAllLanguages(), router.route("2014-го"));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testRouteText() {
+		final LanguageRouter router = new LanguageRouter(LanguageRouter.SLAVIC_UNIQUE_LETTERS);
+		final String text = "Мы, ми і iKnow 2.0";
+		final List<String> words = new ArrayList<>();
+		final List<Integer> candidates = new ArrayList<>();
+		router.route(text, (start, end, languages) -> {
+			words.add(text.substring(start, end));
+			candidates.add(Integer.valueOf(languages));
+			router.record(languages);
+		});
+
+		assertEquals(asList("Мы", "ми", "і", "iKnow", "2", "0"), words);
+		assertEquals(asList(Integer.valueOf(router.getMask("ru")),
+				Integer.valueOf(router.getAllLanguages()),
+				Integer.valueOf(router.getMask("uk")),
+				Integer.valueOf(0),
+				Integer.valueOf(0),
+				Integer.valueOf(0)), candidates);
+		assertEquals(6, router.getRoutedCount());
+		assertEquals(4, router.getSkippedCount("ru"));
+		assertEquals(4, router.getSkippedCount("uk"));
+		assertEquals(8, router.getSkippedCount());
+	}
+}
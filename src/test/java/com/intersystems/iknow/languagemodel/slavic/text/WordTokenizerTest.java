@@ -0,0 +1,55 @@
+/*-
+ * $Id$
+ */
+package com.intersystems.iknow.languagemodel.slavic.text;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Andrey Shcheglov (mailto:andrey.shcheglov@intersystems.com)
+ */
+public final class WordTokenizerTest {
+	private static final WordTokenizer TOKENIZER = new WordTokenizer("!\"()*,./:;<>?[]^`{} \t\r\n");
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testHyphenAndApostrophe() {
+		assertEquals(asList("красно-белый", "флаг"), tokenize("красно-белый флаг"));
+		assertEquals(asList("п'ятниця", "вона"), tokenize("п'ятниця, вона"));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testDelimiterRuns() {
+		assertEquals(asList("Мама", "мыла", "раму"), tokenize("  Мама мыла\r\n\tраму.  "));
+		assertEquals(asList(), tokenize(" ...!"));
+		assertEquals(asList(), tokenize(""));
+		assertEquals(asList("мыла", "раму"), new ArrayList<>(TOKENIZER.distinctWords("мыла раму, мыла")));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testOffsets() {
+		final List<Integer> offsets = new ArrayList<>();
+		TOKENIZER.tokenize("Мама мыла раму.", (text, start, end) -> {
+			offsets.add(Integer.valueOf(start));
+			offsets.add(Integer.valueOf(end));
+		});
+		assertEquals(asList(0, 4, 5, 9, 10, 14), offsets);
+	}
+
+	/**
+	 * @param text
+	 */
+	private static List<String> tokenize(final String text) {
+		final List<String> words = new ArrayList<>();
+		TOKENIZER.tokenize(text, (source, start, end) -> words.add(source.subSequence(start, end).toString()));
+		return words;
+	}
+}